@@ -74,15 +74,24 @@ const History = () => {
       setError(null);
 
       const token = localStorage.getItem("token"); // Assuming token is stored in localStorage
-      const response = await axios.get(
-        "http://localhost:9192/api/booking/history",
-        {
-          headers: {
-            Authorization: `Bearer ${token}`,
-            "Content-Type": "application/json",
-          },
-        }
-      );
+
+      // The history comes a page at a time; follow X-Next-Cursor to the last page
+      const bookings = [];
+      let cursor = null;
+      do {
+        const page = await axios.get(
+          "http://localhost:9192/api/booking/history",
+          {
+            headers: {
+              Authorization: `Bearer ${token}`,
+              "Content-Type": "application/json",
+            },
+            params: cursor ? { cursor } : {},
+          }
+        );
+        bookings.push(...page.data);
+        cursor = page.headers["x-next-cursor"] || null;
+      } while (cursor);
 
       // Transform API data to component format
       // const transformedData = response.data.map((booking) => {
@@ -107,7 +116,7 @@ const History = () => {
 
       // Transform API data to component format
       // Transform API data to component format
-      const transformedData = response.data.map((booking) => {
+      const transformedData = bookings.map((booking) => {
         const { status, displayStatus } = mapStatus(booking.status);
 
         return {
@@ -1,8 +1,11 @@
 package com.ticketBooking;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
@@ -19,4 +22,14 @@ public class TicketBookingSystemApplication {
 		// System.setProperty("JWT_EXPIRATION", dotenv.get("JWT_EXPIRATION"));
 		SpringApplication.run(TicketBookingSystemApplication.class, args);
 	}
+
+	// the default scheduler has one thread: a long reconciliation run, refund drain or reaper
+	// pass would hold up the hold expiry, inventory and seat map flushes behind it
+	@Bean
+	public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduling.pool-size:8}") int poolSize) {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(poolSize);
+		scheduler.setThreadNamePrefix("scheduled-");
+		return scheduler;
+	}
 }	
@@ -5,27 +5,36 @@ import com.ticketBooking.booking.model.EventQueue;
 import com.ticketBooking.booking.repository.BookingRepository;
 import com.ticketBooking.booking.repository.EventQueueRepository;
 import com.ticketBooking.booking.service.BookingCancelService;
+import com.ticketBooking.booking.service.BookingConfirmationPipeline;
+import com.ticketBooking.booking.service.BookingHistoryCache;
 import com.ticketBooking.booking.service.BookingService;
-import com.ticketBooking.booking.service.PaymentService;
+import com.ticketBooking.booking.service.ExpiredBookingReaper;
+import com.ticketBooking.booking.service.GateManifestService;
+import com.ticketBooking.booking.service.IdempotencyCache;
+import com.ticketBooking.booking.service.QRCodeGenerator;
+import com.ticketBooking.booking.service.QrRenderService;
+import com.ticketBooking.booking.service.TicketTokenService;
+import com.ticketBooking.booking.service.TicketVerificationService;
+import com.ticketBooking.booking.service.WaitingRoomService;
 import com.ticketBooking.event.model.Event;
 import com.ticketBooking.event.repository.EventRepository;
 import com.ticketBooking.user.model.User;
 import com.ticketBooking.user.repository.UserRepository;
-import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
-import com.razorpay.RazorpayException;
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -35,6 +44,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/booking")
@@ -51,120 +65,185 @@ public class BookingController {
     private BookingService bookingService;
 
     @Autowired
-    private PaymentService paymentService;
+    private BookingConfirmationPipeline confirmationPipeline;
 
-    private RazorpayClient client;
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Autowired
+    private QrRenderService qrRenderService;
+
+    @Autowired
+    private TicketTokenService ticketTokenService;
+
+    @Autowired
+    private TicketVerificationService ticketVerificationService;
+
+    @Autowired
+    private GateManifestService gateManifestService;
+
+    @Autowired
+    private BookingHistoryCache bookingHistoryCache;
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private ExpiredBookingReaper expiredBookingReaper;
+
+    @Value("${history.page-size:50}")
+    private int historyPageSize;
+
+    @Value("${history.max-page-size:200}")
+    private int historyMaxPageSize;
 
     @Value("${RZP_KEY_ID}")
     private String razorpayKey;
 
-    @Value("${RZP_KEY_SECRET}")
-    private String razorpaySecret;
-
-    @PostConstruct
-    public void init() throws RazorpayException {
-        client = new RazorpayClient(razorpayKey, razorpaySecret);
-    }
+    // /order waits on Razorpay; it runs here so a slow provider never ties up request threads
+    private final Executor offload = new DelegatingSecurityContextExecutor(
+            Executors.newVirtualThreadPerTaskExecutor());
 
     @GetMapping("/getKey")
     public ResponseEntity<?> getKey() {
         return ResponseEntity.ok(razorpayKey);
     }
 
+    // Retries carrying the same Idempotency-Key get the first response back.
+    // Events with a waiting room also need the X-Admission-Token it handed out;
+    // the token is spent by the first order placed with it, a retry gets that order back.
     @PostMapping("/order")
-@Transactional
-public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String, Object> data) {
-    try {
-        // 1. Getting logged-in user email
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        String email;
-
-        if (principal instanceof UserDetails userDetails) {
-            email = userDetails.getUsername();
-        } else {
-            email = principal.toString();
-        }
-
-        // 2. Fetching the User
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // 3. Fetching the Event
-        UUID eventId = UUID.fromString(data.get("eventId").toString());
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new RuntimeException("Event not found"));
-
-        // 4. Parsing the amount (in rupees)
-        int amount = Integer.parseInt(data.get("amount").toString());
+    public CompletableFuture<ResponseEntity<?>> createOrder(@RequestBody Map<String, Object> data,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken) {
+        String user = SecurityContextHolder.getContext().getAuthentication().getName();
+        UUID eventId = data.get("eventId") != null ? UUID.fromString(data.get("eventId").toString()) : null;
+        if (eventId != null && !waitingRoomService.admits(eventId, user, admissionToken))
+            return CompletableFuture.completedFuture(joinTheRoom());
+        return CompletableFuture.supplyAsync(() -> idempotencyCache.execute(user + ":/order", idempotencyKey,
+                String.valueOf(data), () -> eventId != null && !waitingRoomService.spend(eventId, user, admissionToken)
+                        ? joinTheRoom()
+                        : placeOrder(data)), offload);
+    }
 
-        // 5. Creating Razorpay order
-        JSONObject options = new JSONObject();
-        options.put("amount", amount * 100);     // convert to paise
-        options.put("currency", "INR");
-        options.put("receipt", "txn_" + UUID.randomUUID());
+    private static ResponseEntity<?> joinTheRoom() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(Map.of("error", "Join the waiting room first", "waitingRoom", true));
+    }
 
-        Order order = client.orders.create(options);
-        String razorpayOrderId = order.get("id");
+    private ResponseEntity<?> placeOrder(Map<String, Object> data) {
+        try {
+            // 1. Getting logged-in user email
+            Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            String email;
 
-        // 6. we have to ALWAYS create a new booking (no reuse)
-        Booking booking = new Booking();
-        booking.setBookingId(UUID.randomUUID());
-        booking.setUserId(user.getId());
-        booking.setEventId(event.getEventId());
-        booking.setAmount(amount);
-        booking.setOrderId(razorpayOrderId);
-        booking.setStatus("PENDING");
+            if (principal instanceof UserDetails userDetails) {
+                email = userDetails.getUsername();
+            } else {
+                email = principal.toString();
+            }
 
-        bookingRepository.save(booking);
+            // 2. Fetching the User
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
 
-        // 7. Response 
-        Map<String, Object> response = new HashMap<>();
-        response.put("orderId", razorpayOrderId);
-        response.put("amount", amount);
-        response.put("currency", "INR");
-        response.put("bookingId", booking.getBookingId());
+            // 3. Parsing event, amount (in rupees, per ticket) and quantity
+            UUID eventId = UUID.fromString(data.get("eventId").toString());
+            int amount = Integer.parseInt(data.get("amount").toString());
+            int quantity = data.get("quantity") != null ? Integer.parseInt(data.get("quantity").toString()) : 1;
+            boolean adjacent = data.get("adjacent") == null || Boolean.parseBoolean(data.get("adjacent").toString());
+
+            // 4. One Razorpay order + N PENDING bookings, slots held until payment
+            Optional<BookingService.PendingOrder> created = bookingService.createOrder(user.getId(), eventId, amount,
+                    quantity, adjacent);
+            if (created.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "No slots available", "soldOut",
+                                bookingService.isSoldOut(eventId)));
+            }
+            BookingService.PendingOrder order = created.get();
+
+            // 5. Response 
+            Map<String, Object> response = new HashMap<>();
+            response.put("orderId", order.orderId());
+            response.put("amount", order.amount() * order.quantity());
+            response.put("currency", "INR");
+            response.put("quantity", order.quantity());
+            response.put("bookingId", order.bookingIds().get(0));
+            response.put("bookingIds", order.bookingIds());
+            if (!order.seats().isEmpty())
+                response.put("seats", order.seats());
+            response.put("holdExpiresAt", order.holdExpiresAt());
 
-        return ResponseEntity.ok(response);
+            return ResponseEntity.ok(response);
 
-    } catch (Exception e) {
-        e.printStackTrace();
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
     }
-}
 
 
     @PostMapping("/verify")
     public ResponseEntity<?> verifyPayment(@RequestParam String orderId,
-            @RequestParam String paymentId) {
+            @RequestParam String paymentId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication auth) {
+        // /verify is open (payment callback), so anonymous keys are scoped to the order
+        String user = auth != null && auth.isAuthenticated() ? auth.getName() : "order:" + orderId;
+        return idempotencyCache.execute(user + ":/verify", idempotencyKey, orderId + ":" + paymentId,
+                () -> confirmOrder(orderId, paymentId));
+    }
+
+    private ResponseEntity<?> confirmOrder(String orderId, String paymentId) {
         try {
-            Booking booking = bookingRepository.findByOrderId(orderId)
-                    .orElseThrow(() -> new RuntimeException("Booking not found for orderId: " + orderId));
+            // One order can carry several tickets (quantity > 1)
+            List<Booking> bookings = bookingRepository.findAllByOrderId(orderId);
+            if (bookings.isEmpty())
+                throw new RuntimeException("Booking not found for orderId: " + orderId);
+            Booking booking = bookings.get(0);
 
-            // Idempotent check: if same payment already stored and booking is CONFIRMED,
+            // Idempotent check: if same payment already stored and bookings are CONFIRMED,
             // return existing QR
-            if (paymentId.equals(booking.getPaymentId()) && "CONFIRMED".equalsIgnoreCase(booking.getStatus())) {
+            boolean allConfirmed = bookings.stream().allMatch(b -> paymentId.equals(b.getPaymentId())
+                    && "CONFIRMED".equalsIgnoreCase(b.getStatus()));
+            if (allConfirmed) {
+                List<Map<String, Object>> tickets = ticketsOf(bookings);
                 return ResponseEntity.ok(Map.of(
                         "message", "Already verified and confirmed",
                         "bookingId", booking.getBookingId(),
-                        "qrCodeUrl", booking.getQrCodeUrl()));
+                        "qrCodeUrl", tickets.get(0).get("qrCodeUrl"),
+                        "tickets", tickets));
             }
 
-            // Persist payment id and mark as PAID
-            booking.setPaymentId(paymentId);
-            booking.setStatus("PAID");
-            bookingRepository.save(booking);
+            // Confirm through the group-commit pipeline: payment id, PAID/CONFIRMED,
+            // slots and QR are written together with the other verifies of this event
+            BookingConfirmationPipeline.Result result = confirmationPipeline.submit(orderId, bookings, paymentId)
+                    .join();
 
-            // Attempting to confirm booking by atomically decrementing slots
-            boolean assigned = bookingService.confirmBookingIfSlotAvailable(booking.getBookingId());
-
-            if (assigned) {
-                // bookingService ensures QR is generated; reload booking to get QR fields
-                Booking confirmed = bookingRepository.findById(booking.getBookingId()).orElse(booking);
+            if (result.outcome() == BookingConfirmationPipeline.Outcome.CLOSED) {
+                // cancelled or failed (and refunded) already; a replay must not confirm it again
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("message", "Booking is " + booking.getStatus() + " and cannot be confirmed",
+                                "bookingId", booking.getBookingId()));
+            }
+            if (result.outcome() != BookingConfirmationPipeline.Outcome.NO_SLOT) {
+                List<Map<String, Object>> tickets = new ArrayList<>();
+                for (BookingConfirmationPipeline.Ticket t : result.tickets()) {
+                    tickets.add(ticket(t.bookingId(), t.seat(), t.qrPayload(), t.qrCodeUrl()));
+                }
+                if (result.outcome() == BookingConfirmationPipeline.Outcome.ALREADY_CONFIRMED) {
+                    // confirmed earlier by another path; reload bookings to get QR fields
+                    tickets = ticketsOf(bookingRepository.findAllByOrderId(orderId).stream()
+                            .filter(b -> "CONFIRMED".equalsIgnoreCase(b.getStatus()))
+                            .toList());
+                }
                 return ResponseEntity.ok(Map.of(
                         "message", "Payment verified and booking confirmed",
-                        "bookingId", confirmed.getBookingId(),
-                        "qrCodeUrl", confirmed.getQrCodeUrl()));
+                        "bookingId", tickets.get(0).get("bookingId"),
+                        "qrCodeUrl", tickets.get(0).get("qrCodeUrl"),
+                        "tickets", tickets));
             } else {
                 // Not assigned because no slot now. If booking is queued -> keep PAID + WAITING
                 // (no refund).
@@ -174,25 +253,18 @@ public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String,
                             "message", "Payment recorded — you are in queue (WAITING).",
                             "bookingId", booking.getBookingId()));
                 } else {
-                    // Non-queued payment but no slot -> refund and mark failed
-                    try {
-                        Integer amountPaise = booking.getAmount() != null ? booking.getAmount() * 100 : null;
-                        paymentService.refundPayment(paymentId, amountPaise);
-                    } catch (RazorpayException rex) {
-                        // log and continue — refund attempt failed
-                        rex.printStackTrace();
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-
-                    booking.setStatus("FAILED_NO_SLOTS");
-                    bookingRepository.save(booking);
+                    // Non-queued payment but no slot -> mark failed; the refund goes out via the outbox
+                    bookingService.failNoSlots(bookings, paymentId);
 
                     return ResponseEntity.status(HttpStatus.CONFLICT)
-                            .body(Map.of("message", "No slots available. Payment refunded (or refund attempted).",
+                            .body(Map.of("message", "No slots available. Your payment will be refunded.",
                                     "bookingId", booking.getBookingId()));
                 }
             }
+        } catch (CompletionException ce) {
+            ce.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", String.valueOf(ce.getCause().getMessage())));
         } catch (RuntimeException re) {
             re.printStackTrace();
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", re.getMessage()));
@@ -202,47 +274,70 @@ public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String,
         }
     }
 
+    private List<Map<String, Object>> ticketsOf(List<Booking> bookings) {
+        List<Map<String, Object>> tickets = new ArrayList<>();
+        for (Booking b : bookings) {
+            tickets.add(ticket(b.getBookingId(), b.getSeatLabel(), b.getQrPayload(), b.getQrCodeUrl()));
+        }
+        return tickets;
+    }
+
+    // QR image is served separately, tickets only carry its url
+    private Map<String, Object> ticket(UUID bookingId, String seat, String qrPayload, String qrCodeUrl) {
+        Map<String, Object> ticket = new HashMap<>();
+        ticket.put("bookingId", bookingId);
+        ticket.put("qrCodeUrl", qrPayload != null ? qrImageUrl(bookingId) : "");
+        if (seat != null)
+            ticket.put("seat", seat);
+        return ticket;
+    }
+
+    /** Totals of the expired-booking reaper since startup; organizers and admins only. */
+    @GetMapping("/reaper/stats")
+    public ResponseEntity<?> reaperStats(Authentication auth) {
+        User user = auth == null ? null : userRepository.findByEmail(auth.getName()).orElse(null);
+        if (user == null || !("ORGANIZER".equalsIgnoreCase(user.getRole()) || "ADMIN".equalsIgnoreCase(user.getRole())))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only organizers and admins"));
+        return ResponseEntity.ok(expiredBookingReaper.stats());
+    }
+
+    /**
+     * Newest bookings first, one page at a time. Pass the X-Next-Cursor header
+     * of a page back as ?cursor= to get the next one; it is absent on the last
+     * page. ?status= narrows the list to one booking status.
+     *
+     * Pages come from BookingHistoryCache; a client that sends the ETag back
+     * in If-None-Match gets a 304 until one of its bookings changes.
+     */
     @GetMapping("/history")
-    public ResponseEntity<?> getBookingHistory(Authentication auth) {
+    public ResponseEntity<?> getBookingHistory(Authentication auth,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             // Get current user email from JWT
             String email = (auth.getPrincipal() instanceof UserDetails ud)
                     ? ud.getUsername()
                     : auth.getName();
 
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            Integer userId = bookingHistoryCache.userIdFor(email);
+            CacheControl revalidate = CacheControl.noCache().cachePrivate();
 
-            // Get all bookings for this user
-            List<Booking> bookings = bookingRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
-
-            // Build combined response from existing tables
-            List<Map<String, Object>> response = new ArrayList<>();
-
-            for (Booking b : bookings) {
-                Event e = eventRepository.findById(b.getEventId()).orElse(null);
-
-                if (e != null) {
-                    Map<String, Object> entry = new HashMap<>();
-                    entry.put("bookingId", b.getBookingId());
-                    entry.put("status", b.getStatus());
-                    entry.put("queue_position", b.getQueuePosition());
-                    entry.put("bookedOn", b.getCreatedAt());
-                    entry.put("eventId", e.getEventId());
-                    entry.put("eventName", e.getName());
-                    entry.put("photo", e.getImageUrl());
-                    entry.put("category", e.getCategory());
-                    entry.put("price", e.getTicketPrice());
-                    entry.put("eventDate", e.getEventDate());
-                    entry.put("time", e.getStartTime());
-                    entry.put("venue", e.getVenue());
-                    entry.put("city", e.getCity());
-                    entry.put("orderId", b.getOrderId());
-                    response.add(entry);
-                }
-            }
-            return ResponseEntity.ok(response);
+            String etag = bookingHistoryCache.etag(userId);
+            if (etag.equals(ifNoneMatch))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(revalidate).build();
+
+            int pageSize = limit == null ? historyPageSize : Math.max(1, Math.min(limit, historyMaxPageSize));
+            BookingHistoryCache.View view = bookingHistoryCache.page(userId, status, cursor, pageSize);
+
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(view.etag()).cacheControl(revalidate);
+            if (view.page().nextCursor() != null)
+                ok.header("X-Next-Cursor", view.page().nextCursor());
+            return ok.body(view.page().items());
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -250,6 +345,48 @@ public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String,
         }
     }
 
+    private boolean isOrganizerOf(UUID eventId, Authentication auth) {
+        if (auth == null)
+            return false;
+        User user = userRepository.findByEmail(auth.getName()).orElse(null);
+        Event event = eventRepository.findById(eventId).orElse(null);
+        return user != null && event != null
+                && "ORGANIZER".equalsIgnoreCase(user.getRole())
+                && user.getId().equals(event.getOrganizerId());
+    }
+
+    private String qrImageUrl(UUID bookingId) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().toUriString() + qrRenderService.urlFor(bookingId);
+    }
+
+    /**
+     * Ticket QR as raw PNG. The url is signed per booking so an <img> tag can
+     * load it without the JWT; the image never changes for a booking, so it
+     * is cacheable forever and revalidated by ETag.
+     */
+    @GetMapping("/ticket/{bookingId}/qr.png")
+    public ResponseEntity<byte[]> getTicketQr(@PathVariable UUID bookingId,
+            @RequestParam String sig,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!qrRenderService.isValidSignature(bookingId, sig))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+
+        Booking b = bookingRepository.findById(bookingId).orElse(null);
+        if (b == null || b.getQrPayload() == null)
+            return ResponseEntity.notFound().build();
+
+        QrRenderService.Image image = qrRenderService.image(bookingId, b.getQrPayload());
+        CacheControl cache = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+        if (image.etag().equals(ifNoneMatch))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(image.etag()).cacheControl(cache).build();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .eTag(image.etag())
+                .cacheControl(cache)
+                .body(image.png());
+    }
+
     @GetMapping("/ticket/{bookingId}")
     public ResponseEntity<?> getTicketDetails(@PathVariable UUID bookingId, Authentication auth) {
         try {
@@ -278,7 +415,8 @@ public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String,
             response.put("bookingId", b.getBookingId());
             response.put("orderId", b.getOrderId());
             response.put("paymentId", b.getPaymentId());
-            response.put("qrCodeUrl", b.getQrCodeUrl());
+            response.put("qrCodeUrl", b.getQrPayload() != null ? qrImageUrl(b.getBookingId()) : null);
+            response.put("seat", b.getSeatLabel());
             response.put("status", b.getStatus());
             response.put("bookedOn", b.getCreatedAt());
             response.put("queue_position", b.getQueuePosition());
@@ -309,6 +447,36 @@ public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String,
         }
     }
 
+    @Value("${gate.batch.max-size:500}")
+    private int maxVerifyBatch;
+
+    /**
+     * Multi-lane scanners: verify up to gate.batch.max-size scans at once.
+     * Body: { "eventId": "...", "tickets": ["<scanned text>", ...] }
+     * Results are in request order, one per scan, with the same statuses as /verify-ticket.
+     * Like the gate endpoints, only the event's organizer may call it.
+     */
+    @PostMapping("/verify-ticket/batch")
+    public ResponseEntity<?> verifyTicketBatch(@RequestBody Map<String, Object> req, Authentication auth) {
+        try {
+            UUID eventId = UUID.fromString(String.valueOf(req.get("eventId")));
+            if (!isOrganizerOf(eventId, auth))
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only the event organizer"));
+            List<String> tickets = new ArrayList<>();
+            if (req.get("tickets") instanceof List<?> list) {
+                for (Object o : list)
+                    tickets.add(o == null ? null : o.toString());
+            }
+            if (tickets.isEmpty() || tickets.size() > maxVerifyBatch) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Send between 1 and " + maxVerifyBatch + " tickets"));
+            }
+            return ResponseEntity.ok(Map.of("results", ticketVerificationService.verifyBatch(eventId, tickets)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid eventId"));
+        }
+    }
+
  @PostMapping("/verify-ticket")
 @Transactional
 public ResponseEntity<?> verifyTicket(@RequestBody Map<String, String> req, Authentication auth) {
@@ -320,7 +488,12 @@ public ResponseEntity<?> verifyTicket(@RequestBody Map<String, String> req, Auth
             return ResponseEntity.ok(Map.of("status", "INVALID", "message", "Empty QR"));
         }
 
-        // Extract bookingId & eventId from scanned text
+        // Signed token: one signature check + one UPDATE
+        if (ticketTokenService.isToken(scanned)) {
+            return ResponseEntity.ok(ticketVerificationService.verify(eventId, scanned));
+        }
+
+        // Legacy multi-line ticket: extract bookingId & eventId from scanned text
         UUID bookingId = null, scannedEventId = null;
         for (String line : scanned.split("\\r?\\n")) {
             String t = line.trim();
@@ -352,9 +525,7 @@ public ResponseEntity<?> verifyTicket(@RequestBody Map<String, String> req, Auth
         // Ensure QR exists
         String expectedPayload = b.getQrPayload();
         if (expectedPayload == null || expectedPayload.isBlank()) {
-            expectedPayload = "Booking ID: " + b.getBookingId() +
-                    "\nEvent ID: " + b.getEventId() +
-                    "\nUser ID: " + b.getUserId();
+            expectedPayload = QRCodeGenerator.payloadFor(b.getBookingId(), b.getEventId(), b.getUserId());
 
             b.setQrPayload(expectedPayload);
             bookingRepository.save(b);
@@ -392,6 +563,7 @@ public ResponseEntity<?> verifyTicket(@RequestBody Map<String, String> req, Auth
         b.setVerified(true);
         b.setVerifiedAt(LocalDateTime.now());
         bookingRepository.save(b);
+        gateManifestService.markVerified(eventId, b.getBookingId());
 
         return ResponseEntity.ok(Map.of(
                 "status", "VERIFIED_OK",
@@ -0,0 +1,100 @@
+package com.ticketBooking.booking.controller;
+
+import com.ticketBooking.booking.service.GateManifestService;
+import com.ticketBooking.event.model.Event;
+import com.ticketBooking.event.repository.EventRepository;
+import com.ticketBooking.user.model.User;
+import com.ticketBooking.user.repository.UserRepository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Endpoints for gate scanner devices (event organizer only).
+ *
+ * GET  /manifest          - sorted packed ticket ids + verified bitmap + event key
+ * GET  /delta             - indices verified since the device's last sync
+ * POST /scans             - scans made while the device was offline
+ */
+@RestController
+@RequestMapping("/api/booking/gate/{eventId}")
+public class GateController {
+
+    private final GateManifestService gateManifestService;
+    private final EventRepository eventRepository;
+    private final UserRepository userRepository;
+
+    public GateController(GateManifestService gateManifestService,
+                          EventRepository eventRepository,
+                          UserRepository userRepository) {
+        this.gateManifestService = gateManifestService;
+        this.eventRepository = eventRepository;
+        this.userRepository = userRepository;
+    }
+
+    @GetMapping("/manifest")
+    public ResponseEntity<?> manifest(@PathVariable UUID eventId, Authentication auth) {
+        if (!isOrganizerOf(eventId, auth))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only the event organizer"));
+
+        GateManifestService.Manifest m = gateManifestService.manifest(eventId);
+        Base64.Encoder b64 = Base64.getEncoder();
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("eventId", m.eventId());
+        resp.put("version", m.version());
+        resp.put("count", m.count());
+        resp.put("seq", m.seq());
+        resp.put("ids", b64.encodeToString(m.ids()));
+        resp.put("verified", b64.encodeToString(m.verified()));
+        resp.put("eventKey", b64.encodeToString(m.eventKey()));
+        return ResponseEntity.ok(resp);
+    }
+
+    @GetMapping("/delta")
+    public ResponseEntity<?> delta(@PathVariable UUID eventId,
+                                   @RequestParam long version,
+                                   @RequestParam(defaultValue = "0") int since,
+                                   Authentication auth) {
+        if (!isOrganizerOf(eventId, auth))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only the event organizer"));
+        return ResponseEntity.ok(gateManifestService.delta(eventId, version, since));
+    }
+
+    /**
+     * Body: { "bookingIds": ["...", "..."] }
+     */
+    @PostMapping("/scans")
+    public ResponseEntity<?> scans(@PathVariable UUID eventId,
+                                   @RequestBody Map<String, List<String>> body,
+                                   Authentication auth) {
+        if (!isOrganizerOf(eventId, auth))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only the event organizer"));
+        try {
+            List<UUID> ids = body.getOrDefault("bookingIds", List.of()).stream().map(UUID::fromString).toList();
+            GateManifestService.ScanResult result = gateManifestService.recordScans(eventId, ids);
+            return ResponseEntity.ok(Map.of("recorded", result.recorded(),
+                    "alreadyVerified", result.alreadyVerified(),
+                    "invalid", result.invalid()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid booking id"));
+        }
+    }
+
+    private boolean isOrganizerOf(UUID eventId, Authentication auth) {
+        if (auth == null)
+            return false;
+        User user = userRepository.findByEmail(auth.getName()).orElse(null);
+        Event event = eventRepository.findById(eventId).orElse(null);
+        return user != null && event != null
+                && "ORGANIZER".equalsIgnoreCase(user.getRole())
+                && user.getId().equals(event.getOrganizerId());
+    }
+}
@@ -0,0 +1,43 @@
+package com.ticketBooking.booking.controller;
+
+import com.ticketBooking.booking.service.SimulatedPaymentGateway;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stands in for the Razorpay Checkout popup when payment.gateway=simulator:
+ * paying an order returns the payment id the client then sends to /verify.
+ * Does not exist with the real gateway.
+ */
+@RestController
+@RequestMapping("/api/booking/simulator")
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "simulator")
+public class PaymentSimulatorController {
+
+    private final SimulatedPaymentGateway gateway;
+
+    public PaymentSimulatorController(SimulatedPaymentGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    @PostMapping("/orders/{orderId}/pay")
+    public CompletableFuture<ResponseEntity<?>> pay(@PathVariable String orderId) {
+        return gateway.capture(orderId).<ResponseEntity<?>>thenApply(paymentId -> ResponseEntity.ok(Map.of(
+                "orderId", orderId,
+                "paymentId", paymentId)))
+                .exceptionally(ex -> ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                        .body(Map.of("error", String.valueOf(ex.getCause() != null ? ex.getCause().getMessage()
+                                : ex.getMessage()))));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(gateway.stats());
+    }
+}
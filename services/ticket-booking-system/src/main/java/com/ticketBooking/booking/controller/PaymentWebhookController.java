@@ -0,0 +1,41 @@
+package com.ticketBooking.booking.controller;
+
+import com.ticketBooking.booking.service.PaymentWebhookService;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Razorpay webhook endpoint. Open like /verify; deliveries are authenticated
+ * by their signature. Answers as soon as the event is stored, 503 when it
+ * could not be stored so Razorpay retries later.
+ */
+@RestController
+@RequestMapping("/api/booking/webhooks")
+public class PaymentWebhookController {
+
+    private final PaymentWebhookService webhookService;
+
+    public PaymentWebhookController(PaymentWebhookService webhookService) {
+        this.webhookService = webhookService;
+    }
+
+    @PostMapping("/razorpay")
+    public ResponseEntity<?> razorpay(@RequestBody byte[] body,
+            @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+            @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId) {
+        return switch (webhookService.accept(body, signature, eventId)) {
+            case QUEUED, DUPLICATE -> ResponseEntity.ok().build();
+            case BAD_SIGNATURE -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid signature"));
+            case MALFORMED -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Malformed event"));
+            case BUSY -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5").build();
+        };
+    }
+}
@@ -3,17 +3,24 @@ package com.ticketBooking.booking.controller;
 import com.ticketBooking.booking.model.EventQueue;
 import com.ticketBooking.booking.repository.EventQueueRepository;
 import com.ticketBooking.booking.service.QueueService;
+import com.ticketBooking.booking.service.QueueUpdateBroadcaster;
+import com.ticketBooking.booking.service.WaitlistIndex;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Auth-aware QueueController.
@@ -27,6 +34,7 @@ import java.util.UUID;
 public class QueueController {
 
     private final QueueService queueService;
+    private final Executor offload = Executors.newVirtualThreadPerTaskExecutor();
 
     public QueueController(QueueService queueService) {
         this.queueService = queueService;
@@ -40,10 +48,15 @@ public class QueueController {
      * { "amount": 500 }
      */
     @PostMapping("/join/{eventId}")
-    public ResponseEntity<?> joinQueue(
+    public CompletableFuture<ResponseEntity<?>> joinQueue(
             @PathVariable UUID eventId,
             @RequestBody JoinQueueRequest request,
             Authentication auth) {
+        // joining creates a Razorpay order; wait for it off the request thread
+        return CompletableFuture.supplyAsync(() -> join(eventId, request, auth), offload);
+    }
+
+    private ResponseEntity<?> join(UUID eventId, JoinQueueRequest request, Authentication auth) {
         try {
             String email = getEmailFromAuth(auth);
             int amount = request.getAmount();
@@ -114,6 +127,12 @@ public class QueueController {
     @Autowired
     private EventQueueRepository eventQueueRepository;
 
+    @Autowired
+    private WaitlistIndex waitlistIndex;
+
+    @Autowired
+    private QueueUpdateBroadcaster queueUpdateBroadcaster;
+
     @GetMapping("/{orderId}/queue/{eventId}/position")
     public ResponseEntity<?> getQueuePosition(
             @PathVariable("orderId") String orderId,
@@ -124,16 +143,10 @@ public class QueueController {
         String email = authentication.getName();
         System.out.println("Authenticated email: " + email);
 
-        // Fetch queue position for this event + this queue entry + this user
-        Integer position = eventQueueRepository.getQueuePositionByEmail(
-                orderId,
-                eventId,
-                email);
-
-        // If no row found, treat as 0 (not in this queue)
-        if (position == null) {
-            position = 0;
-        }
+        // Find this queue entry of this user; the live rank comes from the waitlist index
+        int position = eventQueueRepository.findFirstByOrderIdAndEventIdAndUserEmail(orderId, eventId, email)
+                .map(q -> waitlistIndex.rank(eventId, q.getBookingId()))
+                .orElse(0); // no row found: not in this queue
 
         // You can also return queueId so frontend knows which entry is being shown
         return ResponseEntity.ok(
@@ -142,16 +155,37 @@ public class QueueController {
                         "position", position));
     }
 
-    @GetMapping("/{eventId}/queue-count")
-    public ResponseEntity<?> getQueueCount(@PathVariable UUID eventId) {
+    /**
+     * Live version of the position endpoint as Server-Sent Events: a "queue"
+     * event with position, queueCount and available whenever one of them
+     * changes.
+     */
+    @GetMapping(value = "/{orderId}/queue/{eventId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQueuePosition(
+            @PathVariable("orderId") String orderId,
+            @PathVariable("eventId") UUID eventId,
+            Authentication authentication) {
+        String email = getEmailFromAuth(authentication);
+        UUID bookingId = eventQueueRepository.findFirstByOrderIdAndEventIdAndUserEmail(orderId, eventId, email)
+                .map(EventQueue::getBookingId)
+                .orElse(null);
+        return queueUpdateBroadcaster.subscribe(eventId, bookingId, email);
+    }
 
-        Integer count = eventQueueRepository.countActiveQueueByEvent(eventId);
+    /**
+     * Live queue length and availability of an event. Needs a login, unlike
+     * the polled count below, so each stream counts against its user.
+     */
+    @GetMapping(value = "/{eventId}/queue-count/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQueueCount(@PathVariable UUID eventId, Authentication authentication) {
+        return queueUpdateBroadcaster.subscribe(eventId, null, getEmailFromAuth(authentication));
+    }
 
-        if (count == null) {
-            count = 0;
-        }
+    @GetMapping("/{eventId}/queue-count")
+    public ResponseEntity<?> getQueueCount(@PathVariable UUID eventId) {
+        // served from WaitlistIndex, which is kept in step with event_queue
+        int count = waitlistIndex.size(eventId);
 
-        // we just wanted “how many users are in queue”
         return ResponseEntity.ok(Map.of("count", count));
     }
 
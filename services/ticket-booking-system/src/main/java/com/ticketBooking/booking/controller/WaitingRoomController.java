@@ -0,0 +1,93 @@
+package com.ticketBooking.booking.controller;
+
+import com.ticketBooking.booking.service.WaitingRoomService;
+import com.ticketBooking.event.model.Event;
+import com.ticketBooking.event.repository.EventRepository;
+import com.ticketBooking.user.model.User;
+import com.ticketBooking.user.repository.UserRepository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Waiting room of an on-sale event.
+ *
+ * POST /join   - take a ticket (idempotent per user) and get its status
+ * GET  /status - poll the ticket; once admitted the response carries the
+ *                admissionToken to send as X-Admission-Token on /order
+ * PUT  /       - organizer turns the room on or off: { "ratePerSecond": 50 }
+ */
+@RestController
+@RequestMapping("/api/booking/waiting-room/{eventId}")
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+    private final EventRepository eventRepository;
+    private final UserRepository userRepository;
+
+    public WaitingRoomController(WaitingRoomService waitingRoomService,
+                                 EventRepository eventRepository,
+                                 UserRepository userRepository) {
+        this.waitingRoomService = waitingRoomService;
+        this.eventRepository = eventRepository;
+        this.userRepository = userRepository;
+    }
+
+    @PostMapping("/join")
+    public ResponseEntity<?> join(@PathVariable UUID eventId, Authentication auth) {
+        return waitingRoomService.join(eventId, auth.getName())
+                .<ResponseEntity<?>>map(s -> ResponseEntity.ok(body(s)))
+                .orElseGet(() -> ResponseEntity.ok(Map.of("active", false)));
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<?> status(@PathVariable UUID eventId, Authentication auth) {
+        if (!waitingRoomService.isActive(eventId))
+            return ResponseEntity.ok(Map.of("active", false));
+        return waitingRoomService.status(eventId, auth.getName())
+                .<ResponseEntity<?>>map(s -> ResponseEntity.ok(body(s)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not in the waiting room, join first")));
+    }
+
+    @PutMapping
+    public ResponseEntity<?> configure(@PathVariable UUID eventId,
+                                       @RequestBody Map<String, Integer> body,
+                                       Authentication auth) {
+        if (!isOrganizerOf(eventId, auth))
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only the event organizer"));
+        Integer rate = body.get("ratePerSecond");
+        waitingRoomService.configure(eventId, rate);
+        return ResponseEntity.ok(Map.of("active", rate != null && rate > 0));
+    }
+
+    private static Map<String, Object> body(WaitingRoomService.Status s) {
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("active", true);
+        resp.put("ticket", s.ticket());
+        resp.put("position", s.position());
+        resp.put("etaSeconds", s.etaSeconds());
+        resp.put("admitted", s.admitted());
+        if (s.admitted()) {
+            resp.put("admissionToken", s.admissionToken());
+            resp.put("tokenExpiresAt", s.tokenExpiresAt());
+        }
+        return resp;
+    }
+
+    private boolean isOrganizerOf(UUID eventId, Authentication auth) {
+        if (auth == null)
+            return false;
+        User user = userRepository.findByEmail(auth.getName()).orElse(null);
+        Event event = eventRepository.findById(eventId).orElse(null);
+        return user != null && event != null
+                && "ORGANIZER".equalsIgnoreCase(user.getRole())
+                && user.getId().equals(event.getOrganizerId());
+    }
+}
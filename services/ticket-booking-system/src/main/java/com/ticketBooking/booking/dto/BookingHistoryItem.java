@@ -0,0 +1,37 @@
+package com.ticketBooking.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * One row of "My Bookings": booking columns plus the event columns the page
+ * shows, read with a single join (see BookingHistoryRepository).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingHistoryItem {
+    private UUID bookingId;
+    private String status;
+    @JsonProperty("queue_position")
+    private Integer queuePosition;
+    private LocalDateTime bookedOn;
+    private UUID eventId;
+    private String eventName;
+    private String photo;
+    private String category;
+    private Integer price;
+    private LocalDate eventDate;
+    private LocalTime time;
+    private String venue;
+    private String city;
+    private String orderId;
+    private String seat;
+}
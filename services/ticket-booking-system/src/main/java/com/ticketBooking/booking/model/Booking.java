@@ -12,7 +12,12 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // keyset order of the booking history (BookingHistoryRepository)
+        @Index(name = "idx_bookings_user_history", columnList = "user_id, created_at DESC, booking_id DESC"),
+        // keyset scan of unpaid bookings (ExpiredBookingReaper)
+        @Index(name = "idx_bookings_status_created", columnList = "status, created_at, booking_id")
+})
 public class Booking {
 
     @Id
@@ -41,8 +46,11 @@ public class Booking {
     @Builder.Default
     private Integer queuePosition = 0;
 
+    @Column(name = "seat_label")
+    private String seatLabel; // e.g. "GOLD-3-14", null for events without a seat map
+
     @Column(name = "qr_code", columnDefinition = "text")
-    private String qrCodeUrl; // store base64 PNG or URL
+    private String qrCodeUrl; // signed image path, see QrRenderService.urlFor
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -13,7 +13,13 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "event_queue")
+@Table(name = "event_queue", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_event_queue_event_user", columnNames = { "event_id", "user_id" }),
+        @UniqueConstraint(name = "uk_event_queue_event_seq", columnNames = { "event_id", "join_seq" })
+}, indexes = {
+        // keyset scan of abandoned entries (ExpiredBookingReaper)
+        @Index(name = "idx_event_queue_status_created", columnList = "status, created_at, queue_id")
+})
 public class EventQueue {
 
     @Id
@@ -36,7 +42,10 @@ public class EventQueue {
     private String orderId;
 
     @Column(name = "position", nullable = false)
-    private Integer position;
+    private Integer position; // rank at join time; the live rank is in WaitlistIndex
+
+    @Column(name = "join_seq")
+    private Long joinSeq; // per-event admission order, see QueueSequenceAllocator
 
     @Column(nullable = false, length = 32)
     private String status; // WAITING, BOOKED, CANCELLED, FAILED
@@ -0,0 +1,59 @@
+package com.ticketBooking.booking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A booking whose status disagreed with the payment provider, found by
+ * PaymentReconciliationJob, and what the job did about it. One row per
+ * booking (or per order, for order-wide fixes) and run.
+ */
+@Entity
+@Table(name = "payment_discrepancy", indexes = {
+        @Index(name = "idx_payment_discrepancy_run", columnList = "run_id"),
+        @Index(name = "idx_payment_discrepancy_booking", columnList = "booking_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentDiscrepancy {
+
+    @Id
+    @Column(columnDefinition = "uuid")
+    private UUID id;
+
+    @Column(name = "run_id", columnDefinition = "uuid", nullable = false)
+    private UUID runId;
+
+    @Column(name = "booking_id", columnDefinition = "uuid", nullable = false)
+    private UUID bookingId;
+
+    @Column(name = "order_id")
+    private String orderId;
+
+    @Column(name = "payment_id")
+    private String paymentId;
+
+    @Column(name = "kind", nullable = false, length = 32)
+    private String kind; // PAID_NOT_CONFIRMED, CONFIRMED_NO_PAYMENT, CANCELLED_NO_REFUND
+
+    @Column(name = "booking_status", length = 32)
+    private String bookingStatus;
+
+    @Column(name = "gateway_status", length = 32)
+    private String gatewayStatus; // status of the matching payment, null if the gateway has none
+
+    @Column(name = "action", nullable = false, length = 32)
+    private String action; // CONFIRMED, REFUND_QUEUED, PAYMENT_ID_SET, NONE (needs a look)
+
+    @Column(name = "detail", columnDefinition = "text")
+    private String detail;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
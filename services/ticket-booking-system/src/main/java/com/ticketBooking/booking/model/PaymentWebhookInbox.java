@@ -0,0 +1,59 @@
+package com.ticketBooking.booking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Razorpay webhook delivery, stored before it is acknowledged and
+ * worked off by PaymentWebhookService. The event id is the key, so a
+ * redelivery is recognised even after a restart. A row stays PENDING until
+ * it has been processed; failed attempts are retried with backoff.
+ */
+@Entity
+@Table(name = "payment_webhook_inbox", indexes = {
+        @Index(name = "idx_payment_webhook_inbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_payment_webhook_inbox_order", columnList = "order_id, status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentWebhookInbox {
+
+    @Id
+    @Column(name = "event_id", length = 64)
+    private String eventId; // X-Razorpay-Event-Id, or a hash of the body if it was missing
+
+    @Column(name = "type", nullable = false, length = 32)
+    private String type;
+
+    @Column(name = "partition_key", nullable = false)
+    private String partitionKey; // order id, refund events: payment id
+
+    @Column(name = "order_id")
+    private String orderId; // payment events only; the reaper keeps such orders
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload; // the raw, signed body
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status; // PENDING, DONE
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // also the lease end while an attempt is running
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.ticketBooking.booking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * High-water mark of the waitlist join sequence of one event. Nodes take
+ * sequence numbers from it in blocks (QueueSequenceAllocator), so a join
+ * costs one upsert per block, not per joiner.
+ */
+@Entity
+@Table(name = "queue_sequences")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueueSequence {
+
+    @Id
+    @Column(name = "event_id", columnDefinition = "uuid")
+    private UUID eventId;
+
+    @Column(name = "allocated", nullable = false)
+    private Long allocated; // highest sequence number handed out so far
+}
@@ -0,0 +1,71 @@
+package com.ticketBooking.booking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A refund owed to a customer, written in the same transaction that marks
+ * the booking FAILED_NO_SLOTS or CANCELLED and worked off by
+ * RefundOutboxService. The idempotency key is unique, so the same refund is
+ * never queued twice, and is sent to the gateway to find a refund that a
+ * timed-out attempt already made.
+ */
+@Entity
+@Table(name = "refund_outbox", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_refund_outbox_key", columnNames = "idempotency_key")
+}, indexes = {
+        @Index(name = "idx_refund_outbox_due", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefundOutbox {
+
+    @Id
+    @Column(columnDefinition = "uuid")
+    private UUID id;
+
+    @Column(name = "booking_id", columnDefinition = "uuid")
+    private UUID bookingId; // null for a payment whose order no longer exists
+
+    @Column(name = "order_id")
+    private String orderId;
+
+    @Column(name = "payment_id", nullable = false)
+    private String paymentId;
+
+    @Column(name = "amount_paise")
+    private Integer amountPaise; // null: refund whatever is left of the payment
+
+    @Column(name = "reason", nullable = false, length = 32)
+    private String reason; // NO_SLOT, CANCELLED, UNMATCHED (paid after the order was gone or closed)
+
+    @Column(name = "idempotency_key", nullable = false, length = 40)
+    private String idempotencyKey;
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status; // PENDING, DONE, FAILED (rejected by the gateway, needs a look)
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // also the lease end while an attempt is running
+
+    @Column(name = "refund_id")
+    private String refundId;
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
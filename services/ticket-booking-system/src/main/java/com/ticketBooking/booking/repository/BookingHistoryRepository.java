@@ -0,0 +1,114 @@
+package com.ticketBooking.booking.repository;
+
+import com.ticketBooking.booking.dto.BookingHistoryItem;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read model for a user's booking history: one join of bookings and events,
+ * newest first, paged by keyset on (created_at, booking_id) so every page
+ * costs the same no matter how many bookings the user has.
+ */
+@Repository
+public class BookingHistoryRepository {
+
+    private static final String SELECT_SQL = """
+            SELECT b.booking_id, b.status, b.queue_position, b.created_at, b.order_id, b.seat_label,
+                   e.event_id, e.name, e.image_url, e.category, e.ticket_price, e.event_date,
+                   e.start_time, e.venue, e.city
+            FROM bookings b
+            JOIN events e ON e.event_id = b.event_id
+            WHERE b.user_id = ?
+            """;
+
+    private static final RowMapper<BookingHistoryItem> ROW = (rs, i) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Date eventDate = rs.getDate("event_date");
+        Time startTime = rs.getTime("start_time");
+        return BookingHistoryItem.builder()
+                .bookingId(rs.getObject("booking_id", UUID.class))
+                .status(rs.getString("status"))
+                .queuePosition((Integer) rs.getObject("queue_position"))
+                .bookedOn(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .orderId(rs.getString("order_id"))
+                .seat(rs.getString("seat_label"))
+                .eventId(rs.getObject("event_id", UUID.class))
+                .eventName(rs.getString("name"))
+                .photo(rs.getString("image_url"))
+                .category(rs.getString("category"))
+                .price((Integer) rs.getObject("ticket_price"))
+                .eventDate(eventDate != null ? eventDate.toLocalDate() : null)
+                .time(startTime != null ? startTime.toLocalTime() : null)
+                .venue(rs.getString("venue"))
+                .city(rs.getString("city"))
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookingHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** A page of history plus the cursor of the next page (null on the last page). */
+    public record Page(List<BookingHistoryItem> items, String nextCursor) {
+    }
+
+    /**
+     * @param status optional status filter (e.g. CONFIRMED)
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public Page findPage(Integer userId, String status, String cursor, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        if (status != null && !status.isBlank()) {
+            sql.append(" AND b.status = ?");
+            args.add(status.toUpperCase());
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] key = decodeCursor(cursor);
+            sql.append(" AND (b.created_at, b.booking_id) < (?, ?)");
+            args.add(key[0]);
+            args.add(key[1]);
+        }
+        sql.append(" ORDER BY b.created_at DESC, b.booking_id DESC LIMIT ?");
+        args.add(limit + 1); // one extra row tells us whether there is a next page
+
+        List<BookingHistoryItem> rows = jdbcTemplate.query(sql.toString(), ROW, args.toArray());
+        if (rows.size() <= limit)
+            return new Page(rows, null);
+        List<BookingHistoryItem> page = rows.subList(0, limit);
+        BookingHistoryItem last = page.get(limit - 1);
+        return new Page(page, encodeCursor(last.getBookedOn(), last.getBookingId()));
+    }
+
+    static String encodeCursor(LocalDateTime createdAt, UUID bookingId) {
+        String raw = createdAt + "|" + bookingId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int bar = raw.indexOf('|');
+            return new Object[] {
+                    Timestamp.valueOf(LocalDateTime.parse(raw.substring(0, bar))),
+                    UUID.fromString(raw.substring(bar + 1)) };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -5,6 +5,7 @@
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
     import java.util.Optional;
     import java.util.UUID;
@@ -13,6 +14,10 @@ import java.util.List;
         List<Booking> findByEventId(UUID eventId);
         long countByEventIdAndStatus(UUID eventId, String status);
         Optional<Booking> findByOrderId(String orderId);
+        List<Booking> findAllByOrderId(String orderId); // multi-ticket orders
+        long countByEventIdAndStatusIn(UUID eventId, Collection<String> statuses);
+        @Query("SELECT b.seatLabel FROM Booking b WHERE b.eventId = :eventId AND b.status = 'CONFIRMED' AND b.seatLabel IS NOT NULL")
+        List<String> findConfirmedSeatLabels(@Param("eventId") UUID eventId);
         List<Booking> findByUserIdOrderByCreatedAtDesc(Integer id);
         //Optional<Booking> findFirstByEventIdAndUserIdOrderByCreatedAtDesc(UUID eventId, Integer userId);
         @Query("SELECT b FROM Booking b WHERE b.eventId = :eventId AND b.userId = :userId")
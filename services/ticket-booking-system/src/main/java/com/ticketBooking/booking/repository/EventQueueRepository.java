@@ -11,8 +11,6 @@ import java.util.UUID;
 
 @Repository
 public interface EventQueueRepository extends JpaRepository<EventQueue, UUID> {
-    Optional<EventQueue> findFirstByEventIdAndStatusOrderByPositionAsc(UUID eventId, String status);
-
     long countByEventIdAndStatus(UUID eventId, String status);
 
     List<EventQueue> findByEventIdAndStatusOrderByCreatedAtAsc(UUID eventId, String status);
@@ -27,22 +25,36 @@ public interface EventQueueRepository extends JpaRepository<EventQueue, UUID> {
 
     Optional<EventQueue> findByBookingId(UUID bookingId);
 
+    List<EventQueue> findAllByBookingIdIn(List<UUID> bookingIds);
+
+    // rows from before join_seq was introduced have none and joined first
     @Query(value = """
-        SELECT position
+        SELECT *
         FROM event_queue
-        WHERE order_id = :orderId
-          AND event_id = :eventId
-          AND user_email = :email
-        LIMIT 1
+        WHERE event_id = :eventId
+          AND status = 'WAITING'
+        ORDER BY join_seq NULLS FIRST, created_at
         """, nativeQuery = true)
-    Integer getQueuePositionByEmail(String orderId, UUID eventId, String email);
+    List<EventQueue> findWaitingInJoinOrder(UUID eventId);
 
+    Optional<EventQueue> findFirstByOrderIdAndEventIdAndUserEmail(String orderId, UUID eventId, String email);
+
+    // every event's waitlist, for loading WaitlistIndex at startup
     @Query(value = """
-        SELECT COUNT(*)
+        SELECT *
         FROM event_queue
-        WHERE event_id = :eventId
-          AND position > 0
+        WHERE status = 'WAITING'
+        ORDER BY event_id, join_seq NULLS FIRST, created_at
+        """, nativeQuery = true)
+    List<EventQueue> findAllWaitingInJoinOrder();
+
+    // [event_id, count] per event with anyone waiting
+    @Query(value = """
+        SELECT event_id, COUNT(*)
+        FROM event_queue
+        WHERE status = 'WAITING'
+        GROUP BY event_id
         """, nativeQuery = true)
-    Integer countActiveQueueByEvent(UUID eventId);
+    List<Object[]> countWaitingByEvent();
 
 }
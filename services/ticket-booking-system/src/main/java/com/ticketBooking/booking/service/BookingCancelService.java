@@ -1,5 +1,6 @@
 package com.ticketBooking.booking.service;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -11,6 +12,7 @@ import com.ticketBooking.booking.model.Booking;
 import com.ticketBooking.booking.repository.BookingRepository;
 import com.ticketBooking.event.model.Event;
 import com.ticketBooking.event.repository.EventRepository;
+import com.ticketBooking.event.services.SeatMapService;
 import com.ticketBooking.user.model.User;
 import com.ticketBooking.user.repository.UserRepository;
 
@@ -26,7 +28,12 @@ public class BookingCancelService {
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final JavaMailSender mailSender; // if you don't want email now, you can remove this and the method below
-    private final QueueService queueService;
+    private final WaitlistPromotionService promotionService;
+    private final SlotInventory slotInventory;
+    private final SlotHoldService slotHoldService;
+    private final SeatMapService seatMapService;
+    private final BookingHistoryCache historyCache;
+    private final RefundOutboxService refundOutbox;
 
     @Transactional
     public Map<String, Object> cancelBooking(UUID bookingId, String email) {
@@ -44,29 +51,47 @@ public class BookingCancelService {
         if (Boolean.TRUE.equals(booking.getVerified()))
             throw new RuntimeException("Ticket verified - cannot cancel");
 
+        boolean hadSlot = "CONFIRMED".equalsIgnoreCase(booking.getStatus());
+        boolean paid = hadSlot || "PAID".equalsIgnoreCase(booking.getStatus());
+
         // mark cancelled
         booking.setStatus("CANCELLED");
         bookingRepository.save(booking);
+        historyCache.invalidate(booking.getUserId());
         System.out.println("[cancelBooking] booking " + bookingId + " -> CANCELLED");
 
-        UUID eventId = booking.getEventId();
+        // owe the ticket price back; sent by the refund outbox once this commits
+        if (paid)
+            refundOutbox.enqueue(bookingId, booking.getOrderId(), booking.getPaymentId(),
+                    booking.getAmount() != null ? booking.getAmount() * 100 : null, "CANCELLED",
+                    RefundOutboxService.cancelKey(bookingId));
 
-        // ATOMIC increment: use repository method
-        int inc = eventRepository.incrementAvailableSlots(eventId);
-        System.out.println("[cancelBooking] incrementAvailableSlots returned " + inc + " for event " + eventId);
+        UUID eventId = booking.getEventId();
 
-        // If increment didn't update (inc==0) it's still OK — we proceed to try
-        // auto-book,
-        // but log it so we can debug.
-        try {
-            // Call auto-book AFTER increment. autoBookNextUser will attempt atomic
-            // decrement.
-            queueService.autoBookNextUser(eventId);
-        } catch (Exception ex) {
-            System.err.println("[cancelBooking] autoBookNextUser threw: " + ex.getMessage());
-            ex.printStackTrace();
+        // Hand the slot back to the in-memory inventory (flushed to events later).
+        // A PENDING booking only owns a slot while its order hold is alive.
+        if (hadSlot) {
+            slotInventory.release(eventId, 1);
+            if (booking.getSeatLabel() != null) {
+                List<String> seat = List.of(booking.getSeatLabel());
+                seatMapService.release(eventId, seat);
+                TransactionCallbacks.onRollback(() -> seatMapService.retake(eventId, seat));
+            }
+            System.out.println("[cancelBooking] released 1 slot for event " + eventId);
+        } else if (slotHoldService.release(booking.getOrderId())) {
+            System.out.println("[cancelBooking] released order hold for event " + eventId);
         }
 
+        // Once the cancel commits, move waiters onto whatever capacity is free
+        TransactionCallbacks.afterCommit(() -> {
+            try {
+                promotionService.promote(eventId);
+            } catch (Exception ex) {
+                System.err.println("[cancelBooking] waitlist promotion threw: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        });
+
         // send email
         sendCancellationEmailSafe(user, eventRepository.findById(eventId).orElse(null), booking);
 
@@ -0,0 +1,426 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.Booking;
+import com.ticketBooking.event.services.SeatMapService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit for /api/booking/verify.
+ *
+ * Confirm requests (one per paid order, one or more bookings each) for the
+ * same event are collected for a short window and handled together: order
+ * holds are consumed, the rest are granted with a single SlotInventory
+ * reservation for the whole group, and all bookings (plus their queue
+ * entries) are written in one JDBC batch inside one transaction. Orders
+ * whose hold lapsed must also get their seats back from the SeatMap, else
+ * they are treated like orders without a slot. Every caller gets its own
+ * result through a CompletableFuture.
+ */
+@Component
+public class BookingConfirmationPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingConfirmationPipeline.class);
+
+    private static final String CONFIRM_SQL = """
+            UPDATE bookings SET status = 'CONFIRMED', payment_id = ?, qr_payload = ?, qr_code = ?,
+                                seat_label = COALESCE(?, seat_label)
+            WHERE booking_id = ? AND status IN ('PENDING', 'CREATED', 'PAID')
+            """;
+    private static final String PAID_SQL = """
+            UPDATE bookings SET status = 'PAID', payment_id = ?
+            WHERE booking_id = ? AND status IN ('PENDING', 'CREATED', 'PAID')
+            """;
+    private static final String QUEUE_BOOKED_SQL =
+            "UPDATE event_queue SET status = 'BOOKED', position = 0 WHERE booking_id = ? AND status = 'WAITING'";
+    private static final String LOCK_SQL = """
+            SELECT booking_id, status, seat_label, qr_payload, qr_code FROM bookings
+            WHERE booking_id IN (%s) ORDER BY booking_id FOR UPDATE
+            """;
+
+    private final SlotInventory slotInventory;
+    private final SlotHoldService slotHoldService;
+    private final SeatMapService seatMapService;
+    private final QrRenderService qrRenderService;
+    private final TicketTokenService ticketTokenService;
+    private final BookingHistoryCache historyCache;
+    private final WaitlistIndex waitlistIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long windowMs;
+    private final int maxBatch;
+    private final ScheduledExecutorService workers;
+
+    private final Map<UUID, Group> groups = new ConcurrentHashMap<>();
+
+    public BookingConfirmationPipeline(SlotInventory slotInventory,
+                                       SlotHoldService slotHoldService,
+                                       SeatMapService seatMapService,
+                                       QrRenderService qrRenderService,
+                                       TicketTokenService ticketTokenService,
+                                       BookingHistoryCache historyCache,
+                                       WaitlistIndex waitlistIndex,
+                                       JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${booking.confirm.window-ms:5}") long windowMs,
+                                       @Value("${booking.confirm.max-batch:256}") int maxBatch,
+                                       @Value("${booking.confirm.workers:4}") int workers) {
+        this.slotInventory = slotInventory;
+        this.slotHoldService = slotHoldService;
+        this.seatMapService = seatMapService;
+        this.qrRenderService = qrRenderService;
+        this.ticketTokenService = ticketTokenService;
+        this.historyCache = historyCache;
+        this.waitlistIndex = waitlistIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.windowMs = windowMs;
+        this.maxBatch = maxBatch;
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newScheduledThreadPool(workers, r -> {
+            Thread t = new Thread(r, "booking-confirm-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * CLOSED: nothing left to confirm and nothing confirmed either, the
+     * bookings were cancelled, failed or reaped meanwhile. A payment the
+     * caller holds for such an order is owed back.
+     */
+    public enum Outcome {
+        CONFIRMED, ALREADY_CONFIRMED, NO_SLOT, CLOSED
+    }
+
+    /** Only these states can still be confirmed; CANCELLED and FAILED_* are final. */
+    static boolean isConfirmable(Booking b) {
+        return isOpen(b.getStatus());
+    }
+
+    private static boolean isOpen(String status) {
+        return "PENDING".equalsIgnoreCase(status) || "CREATED".equalsIgnoreCase(status)
+                || "PAID".equalsIgnoreCase(status);
+    }
+
+    public record Ticket(UUID bookingId, String seat, String qrPayload, String qrCodeUrl) {
+    }
+
+    /** Per-order result; tickets are in the order of the submitted bookings. */
+    public record Result(Outcome outcome, List<Ticket> tickets) {
+    }
+
+    private record Pending(String orderId, List<Booking> bookings, String paymentId,
+                           CompletableFuture<Result> future) {
+    }
+
+    /** An order in the current group together with the slots it still needs. */
+    private static final class Claim {
+        final Pending pending;
+        final List<Booking> open; // bookings that can still be confirmed
+        final int held;
+        final int need;
+        List<String> seats; // one per open booking, null entries for unseated events
+
+        Claim(Pending pending, List<Booking> open, int held) {
+            this.pending = pending;
+            this.open = open;
+            this.held = Math.min(held, open.size());
+            this.need = open.size() - this.held;
+            this.seats = open.stream().map(Booking::getSeatLabel).toList();
+        }
+    }
+
+    private static final class Group {
+        final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Queue the bookings of a paid order for confirmation. An order is
+     * confirmed all-or-nothing. The bookings are snapshots loaded by the
+     * caller; writes are guarded on status so a stale snapshot can never
+     * confirm twice.
+     */
+    public CompletableFuture<Result> submit(String orderId, List<Booking> bookings, String paymentId) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        UUID eventId = bookings.get(0).getEventId();
+        Group group = groups.computeIfAbsent(eventId, id -> new Group());
+        group.queue.add(new Pending(orderId, bookings, paymentId, future));
+        if (group.scheduled.compareAndSet(false, true))
+            workers.schedule(() -> drain(eventId, group), windowMs, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private void drain(UUID eventId, Group group) {
+        List<Pending> batch = new ArrayList<>();
+        Pending p;
+        while (batch.size() < maxBatch && (p = group.queue.poll()) != null)
+            batch.add(p);
+
+        try {
+            if (!batch.isEmpty())
+                process(eventId, batch);
+        } catch (Exception ex) {
+            log.error("BookingConfirmationPipeline: group of {} for event {} failed", batch.size(), eventId, ex);
+            batch.forEach(b -> b.future().completeExceptionally(ex));
+        } finally {
+            group.scheduled.set(false);
+            if (!group.queue.isEmpty() && group.scheduled.compareAndSet(false, true))
+                workers.execute(() -> drain(eventId, group));
+        }
+    }
+
+    private void process(UUID eventId, List<Pending> batch) {
+        // same order submitted twice in one window (double click / retry): handle once
+        Map<String, List<Pending>> byOrder = new LinkedHashMap<>();
+        for (Pending p : batch)
+            byOrder.computeIfAbsent(p.orderId(), k -> new ArrayList<>()).add(p);
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        List<Claim> confirmed = new ArrayList<>();
+        List<Claim> needSlot = new ArrayList<>();
+
+        for (List<Pending> same : byOrder.values()) {
+            Pending first = same.get(0);
+            List<Booking> open = first.bookings().stream()
+                    .filter(BookingConfirmationPipeline::isConfirmable)
+                    .toList();
+            if (open.isEmpty()) {
+                // a replayed /verify or late webhook must not revive a cancelled or failed booking
+                List<Ticket> tickets = first.bookings().stream()
+                        .filter(b -> "CONFIRMED".equalsIgnoreCase(b.getStatus()))
+                        .map(b -> new Ticket(b.getBookingId(), b.getSeatLabel(), b.getQrPayload(), b.getQrCodeUrl()))
+                        .toList();
+                results.put(first.orderId(),
+                        new Result(tickets.isEmpty() ? Outcome.CLOSED : Outcome.ALREADY_CONFIRMED, tickets));
+                continue;
+            }
+            int held = slotHoldService.consume(first.orderId());
+            if (held > open.size())
+                slotInventory.release(eventId, held - open.size());
+            Claim claim = new Claim(first, open, held);
+            (claim.need == 0 ? confirmed : needSlot).add(claim);
+        }
+
+        if (confirmed.isEmpty() && needSlot.isEmpty()) {
+            // every order was confirmed or closed already: nothing to reserve or write
+            complete(byOrder, results);
+            return;
+        }
+
+        // one reservation for everyone in the group without a (full) hold,
+        // handed out in arrival order, each order all-or-nothing
+        int totalNeed = needSlot.stream().mapToInt(c -> c.need).sum();
+        int granted = slotInventory.tryReserveUpTo(eventId, totalNeed);
+        int remaining = granted;
+        List<Claim> unassigned = new ArrayList<>();
+        for (Claim c : needSlot) {
+            if (c.need <= remaining && retakeSeats(eventId, c)) {
+                remaining -= c.need;
+                confirmed.add(c);
+            } else {
+                unassigned.add(c);
+            }
+        }
+        int unused = remaining + unassigned.stream().mapToInt(c -> c.held).sum();
+        if (unused > 0)
+            slotInventory.release(eventId, unused);
+        unassigned.stream().filter(c -> c.held > 0).forEach(c -> seatMapService.release(eventId, c.seats));
+
+        Map<UUID, String> payloads = new HashMap<>();
+        for (Claim c : confirmed)
+            for (Booking b : c.open)
+                payloads.put(b.getBookingId(), ticketTokenService.issue(b.getBookingId(), b.getEventId()));
+
+        Written w;
+        try {
+            w = write(confirmed, unassigned, payloads, results);
+        } catch (RuntimeException ex) {
+            slotInventory.release(eventId, confirmed.stream().mapToInt(c -> c.open.size()).sum());
+            confirmed.forEach(c -> seatMapService.release(eventId, c.seats));
+            throw ex;
+        }
+
+        // orders confirmed by a concurrent path keep their own slot; orders cancelled,
+        // failed or reaped since the snapshot give back everything they were granted
+        int returned = 0;
+        for (Claim c : w.lost()) {
+            if (confirmed.contains(c)) {
+                returned += c.open.size();
+                seatMapService.release(eventId, c.seats);
+            }
+        }
+        for (Claim c : w.duplicate()) {
+            if (confirmed.contains(c)) {
+                returned += c.open.size();
+                if (c.held == 0)
+                    seatMapService.release(eventId, c.seats);
+            }
+        }
+        if (returned > 0)
+            slotInventory.release(eventId, returned);
+
+        // the written ones get their QR image cache warmed after commit, off this thread
+        for (Claim c : w.confirmed())
+            c.open.forEach(b -> qrRenderService.renderLater(b.getBookingId(), payloads.get(b.getBookingId())));
+        confirmed.forEach(c -> c.open.forEach(b -> waitlistIndex.remove(eventId, b.getBookingId())));
+        confirmed.forEach(c -> c.open.forEach(b -> historyCache.invalidate(b.getUserId())));
+        unassigned.forEach(c -> c.open.forEach(b -> historyCache.invalidate(b.getUserId())));
+
+        complete(byOrder, results);
+        log.debug("BookingConfirmationPipeline: event {} orders={} confirmed={} granted={} noSlot={} duplicates={} lost={}",
+                eventId, byOrder.size(), w.confirmed().size(), granted, unassigned.size(), w.duplicate().size(),
+                w.lost().size());
+    }
+
+    private static void complete(Map<String, List<Pending>> byOrder, Map<String, Result> results) {
+        for (Map.Entry<String, List<Pending>> e : byOrder.entrySet()) {
+            Result r = results.get(e.getKey());
+            e.getValue().forEach(p -> p.future().complete(r));
+        }
+    }
+
+    /**
+     * Seats of an order that still had its hold are already taken for it;
+     * otherwise take the booked seats again (or new ones for bookings that
+     * never had a seat, e.g. from the waitlist).
+     */
+    private boolean retakeSeats(UUID eventId, Claim c) {
+        if (c.held > 0)
+            return true;
+        List<String> seats = seatMapService.retake(eventId, c.seats);
+        if (seats == null)
+            return false;
+        c.seats = seats;
+        return true;
+    }
+
+    /** What write() did with each claim. */
+    private record Written(List<Claim> confirmed, List<Claim> duplicate, List<Claim> lost) {
+    }
+
+    /**
+     * Write the whole group in one short transaction. The rows are locked and
+     * re-read first, since the snapshots may be stale: an order is written
+     * only if all of its bookings are still open. One batch for confirmed
+     * bookings (QR payload and image url, the PNG is rendered later), one for
+     * unassigned ones, one for queue rows. The results say what was written.
+     */
+    private Written write(List<Claim> confirmed, List<Claim> unassigned, Map<UUID, String> payloads,
+                          Map<String, Result> results) {
+        return transactionTemplate.execute(status -> {
+            Map<UUID, Map<String, Object>> rows = lock(confirmed, unassigned);
+            Written w = new Written(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+            List<Object[]> confirmArgs = new ArrayList<>();
+            List<Object[]> queueArgs = new ArrayList<>();
+            for (Claim c : confirmed) {
+                if (!settled(c, rows, w, results))
+                    continue;
+                List<Ticket> tickets = new ArrayList<>();
+                for (int i = 0; i < c.open.size(); i++) {
+                    Booking b = c.open.get(i);
+                    String qrText = payloads.get(b.getBookingId());
+                    String qrUrl = qrRenderService.urlFor(b.getBookingId());
+                    confirmArgs.add(new Object[] { c.pending.paymentId(), qrText, qrUrl, c.seats.get(i),
+                            b.getBookingId() });
+                    queueArgs.add(new Object[] { b.getBookingId() });
+                    tickets.add(new Ticket(b.getBookingId(), c.seats.get(i), qrText, qrUrl));
+                }
+                w.confirmed().add(c);
+                results.put(c.pending.orderId(), new Result(Outcome.CONFIRMED, tickets));
+            }
+            List<Object[]> paidArgs = new ArrayList<>();
+            for (Claim c : unassigned) {
+                if (!settled(c, rows, w, results))
+                    continue;
+                List<Ticket> tickets = new ArrayList<>();
+                for (Booking b : c.open) {
+                    paidArgs.add(new Object[] { c.pending.paymentId(), b.getBookingId() });
+                    tickets.add(new Ticket(b.getBookingId(), b.getSeatLabel(), null, null));
+                }
+                results.put(c.pending.orderId(), new Result(Outcome.NO_SLOT, tickets));
+            }
+
+            if (!confirmArgs.isEmpty())
+                jdbcTemplate.batchUpdate(CONFIRM_SQL, confirmArgs);
+            if (!paidArgs.isEmpty())
+                jdbcTemplate.batchUpdate(PAID_SQL, paidArgs);
+            if (!queueArgs.isEmpty())
+                jdbcTemplate.batchUpdate(QUEUE_BOOKED_SQL, queueArgs);
+            return w;
+        });
+    }
+
+    private Map<UUID, Map<String, Object>> lock(List<Claim> confirmed, List<Claim> unassigned) {
+        List<Object> ids = new ArrayList<>();
+        confirmed.forEach(c -> c.open.forEach(b -> ids.add(b.getBookingId())));
+        unassigned.forEach(c -> c.open.forEach(b -> ids.add(b.getBookingId())));
+        Map<UUID, Map<String, Object>> rows = new HashMap<>();
+        if (ids.isEmpty())
+            return rows;
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                LOCK_SQL.formatted(String.join(",", Collections.nCopies(ids.size(), "?"))), ids.toArray()))
+            rows.put((UUID) row.get("booking_id"), row);
+        return rows;
+    }
+
+    /**
+     * Decide a claim against its locked rows. True if every booking is still
+     * open and the claim can be written; otherwise its result is set here:
+     * ALREADY_CONFIRMED if another path confirmed the order, else CLOSED.
+     */
+    private static boolean settled(Claim c, Map<UUID, Map<String, Object>> rows, Written w,
+                                   Map<String, Result> results) {
+        boolean open = true, confirmedElsewhere = true;
+        List<Ticket> tickets = new ArrayList<>();
+        for (Booking b : c.open) {
+            Map<String, Object> row = rows.get(b.getBookingId());
+            String status = row == null ? null : (String) row.get("status");
+            open &= isOpen(status);
+            confirmedElsewhere &= "CONFIRMED".equalsIgnoreCase(status);
+            if (row != null)
+                tickets.add(new Ticket(b.getBookingId(), (String) row.get("seat_label"),
+                        (String) row.get("qr_payload"), (String) row.get("qr_code")));
+        }
+        if (open)
+            return true;
+        if (confirmedElsewhere) {
+            w.duplicate().add(c);
+            results.put(c.pending.orderId(), new Result(Outcome.ALREADY_CONFIRMED, tickets));
+        } else {
+            w.lost().add(c);
+            results.put(c.pending.orderId(), new Result(Outcome.CLOSED, List.of()));
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
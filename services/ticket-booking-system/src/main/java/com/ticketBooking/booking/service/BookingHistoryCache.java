@@ -0,0 +1,162 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.repository.BookingHistoryRepository;
+import com.ticketBooking.user.model.User;
+import com.ticketBooking.user.repository.UserRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user cache of booking history pages in front of BookingHistoryRepository.
+ *
+ * Every cached user has a version; any booking write for that user bumps it
+ * (after commit) and drops the cached pages. The version is the page's ETag,
+ * so a client that sends it back in If-None-Match gets a 304 without a query.
+ *
+ * A page read from the database is only stored if the version did not move
+ * while it was being read, so a write racing the read can never leave a
+ * stale page behind. Both maps are LRU and bounded.
+ */
+@Component
+public class BookingHistoryCache {
+
+    private final BookingHistoryRepository historyRepository;
+    private final UserRepository userRepository;
+    private final int maxUsers;
+    private final int maxPagesPerUser;
+
+    // versions are unique per process; the boot stamp keeps ETags from an
+    // earlier run from matching after a restart
+    private final String boot = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong versions = new AtomicLong();
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, Integer> userIds = new LinkedHashMap<>(256, 0.75f, true);
+
+    public BookingHistoryCache(BookingHistoryRepository historyRepository,
+                               UserRepository userRepository,
+                               @Value("${history.cache.max-users:10000}") int maxUsers,
+                               @Value("${history.cache.max-pages-per-user:8}") int maxPagesPerUser) {
+        this.historyRepository = historyRepository;
+        this.userRepository = userRepository;
+        this.maxUsers = maxUsers;
+        this.maxPagesPerUser = maxPagesPerUser;
+    }
+
+    private final class Entry {
+        long version = versions.incrementAndGet();
+        final LinkedHashMap<String, BookingHistoryRepository.Page> pages = new LinkedHashMap<>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookingHistoryRepository.Page> eldest) {
+                return size() > maxPagesPerUser;
+            }
+        };
+    }
+
+    /** A history page and the ETag it is served with. */
+    public record View(BookingHistoryRepository.Page page, String etag) {
+    }
+
+    /** User id behind a login email; ids never change, so this is cached too. */
+    public Integer userIdFor(String email) {
+        synchronized (userIds) {
+            Integer id = userIds.get(email);
+            if (id != null)
+                return id;
+        }
+        Integer id = userRepository.findByEmail(email)
+                .map(User::getId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        synchronized (userIds) {
+            userIds.put(email, id);
+            if (userIds.size() > maxUsers) {
+                Iterator<Integer> it = userIds.values().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+        return id;
+    }
+
+    /** Current ETag of a user's history, without loading anything. */
+    public String etag(Integer userId) {
+        synchronized (entries) {
+            return etag(entry(userId).version);
+        }
+    }
+
+    public View page(Integer userId, String status, String cursor, int limit) {
+        String key = status + "|" + cursor + "|" + limit;
+        long version;
+        synchronized (entries) {
+            Entry e = entry(userId);
+            BookingHistoryRepository.Page cached = e.pages.get(key);
+            if (cached != null)
+                return new View(cached, etag(e.version));
+            version = e.version;
+        }
+
+        BookingHistoryRepository.Page page = historyRepository.findPage(userId, status, cursor, limit);
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            if (e != null && e.version == version)
+                e.pages.put(key, page);
+        }
+        return new View(page, etag(version));
+    }
+
+    /**
+     * A booking of this user changed. Inside a transaction the cache is only
+     * touched once it commits, so readers never cache rows it rolls back.
+     */
+    public void invalidate(Integer userId) {
+        if (userId == null)
+            return;
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (entries) {
+                Entry e = entries.get(userId);
+                if (e != null) {
+                    e.version = versions.incrementAndGet();
+                    e.pages.clear();
+                }
+            }
+        });
+    }
+
+    /** Event details show up in every history row; used when an event is edited. */
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (entries) {
+                for (Entry e : entries.values()) {
+                    e.version = versions.incrementAndGet();
+                    e.pages.clear();
+                }
+            }
+        });
+    }
+
+    // caller holds the lock
+    private Entry entry(Integer userId) {
+        Entry e = entries.get(userId);
+        if (e == null) {
+            e = new Entry();
+            entries.put(userId, e);
+            if (entries.size() > maxUsers) {
+                Iterator<Entry> it = entries.values().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+        return e;
+    }
+
+    private String etag(long version) {
+        return "\"h-" + boot + "-" + version + "\"";
+    }
+}
@@ -1,15 +1,21 @@
 package com.ticketBooking.booking.service;
 
-import com.razorpay.Order;
 import com.ticketBooking.booking.model.Booking;
 import com.ticketBooking.booking.repository.BookingRepository;
-import com.ticketBooking.booking.repository.EventQueueRepository;
 import com.ticketBooking.event.model.Event;
 import com.ticketBooking.event.repository.EventRepository;
+import com.ticketBooking.event.services.SeatMapService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,7 +26,28 @@ public class BookingService {
     private final BookingRepository bookingRepository;
     private final EventRepository eventRepository;
     private final PaymentService paymentService;
-    private final EventQueueRepository eventQueueRepository;
+    private final SlotInventory slotInventory;
+    private final SlotHoldService slotHoldService;
+    private final SeatMapService seatMapService;
+    private final BookingHistoryCache historyCache;
+    private final RefundOutboxService refundOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public static final int MAX_TICKETS_PER_ORDER = 10;
+
+    private static final String INSERT_PENDING_SQL = """
+            INSERT INTO bookings (booking_id, event_id, user_id, order_id, amount, seat_label, status,
+                                  queue_position, created_at, verified)
+            VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, false)
+            """;
+
+    /**
+     * A Razorpay order covering one or more PENDING bookings.
+     */
+    public record PendingOrder(String orderId, int amount, int quantity, List<UUID> bookingIds,
+                               List<String> seats, Instant holdExpiresAt) {
+    }
 
     public Booking createBooking(UUID eventId, Integer userId) throws Exception {
         Optional<Event> eventOpt = eventRepository.findById(eventId);
@@ -31,115 +58,109 @@ public class BookingService {
 
         Event event = eventOpt.get();
 
-        if (event.getAvailableSlots() <= 0) {
+        if (slotInventory.available(eventId) <= 0) {
             throw new RuntimeException("No available slots for this event");
         }
 
         // Create Razorpay order
-        Order order = paymentService.createOrder((int) event.getTicketPrice());
+        PaymentGateway.GatewayOrder order = paymentService.createOrder((int) event.getTicketPrice());
 
         // Save booking in DB with CREATED status
         Booking booking = Booking.builder()
                 .bookingId(UUID.randomUUID())
                 .eventId(eventId)
                 .userId(userId)
-                .orderId(order.get("id"))
+                .orderId(order.id())
                 .status("CREATED")
+                .createdAt(LocalDateTime.now())
                 .build();
 
         bookingRepository.save(booking);
+        historyCache.invalidate(userId);
 
         return booking;
     }
 
     /**
-     * Confirm payment for a direct booking (legacy flow).
-     * This method will attempt to decrement the available slots atomically
-     * and only then mark booking CONFIRMED and generate QR.
+     * Create one Razorpay order for quantity tickets of an event.
+     *
+     * All quantity slots are held with a single SlotInventory reservation before
+     * Razorpay is called, and the N PENDING bookings (one per seat, each gets its
+     * own QR at confirmation) are inserted in one JDBC batch. For events with a
+     * seat map the seats are picked from the SeatMap at the same time and held
+     * with the slots. Returns empty if fewer than quantity slots (or no fitting
+     * seats) are left.
+     *
+     * @param amount ticket price in rupees (per ticket)
+     * @param adjacent seat the tickets side by side in one row
      */
-    @Transactional
-    public Booking confirmPayment(UUID bookingId, String paymentId) throws Exception {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
+    public Optional<PendingOrder> createOrder(Integer userId, UUID eventId, int amount, int quantity,
+                                              boolean adjacent) throws Exception {
+        if (quantity < 1 || quantity > MAX_TICKETS_PER_ORDER)
+            throw new RuntimeException("Quantity must be between 1 and " + MAX_TICKETS_PER_ORDER);
 
-        // Save payment id and set PAID (will become CONFIRMED after slot decrement)
-        booking.setPaymentId(paymentId);
-        booking.setStatus("PAID");
-        bookingRepository.save(booking);
-
-        // Atomic decrement and confirm
-        int dec = eventRepository.decrementAvailableSlotsIfPresent(booking.getEventId());
-        if (dec != 1) {
-            // No slots available -> caller should handle refund logic
-            booking.setStatus("FAILED_NO_SLOTS");
-            bookingRepository.save(booking);
-            throw new RuntimeException("No slots available to confirm booking");
-        }
-
-        // Mark confirmed and generate QR
-        booking.setStatus("CONFIRMED");
+        if (!eventRepository.existsById(eventId))
+            throw new RuntimeException("Event not found");
 
-        String qrData = "Booking ID: " + booking.getBookingId() + "\nEvent ID: " + booking.getEventId();
-        String qrCode = QRCodeGenerator.generateQRCodeBase64(qrData);
-        booking.setQrCodeUrl(qrCode);
-        booking.setQrPayload(qrData);
+        if (!slotHoldService.reserve(eventId, quantity))
+            return Optional.empty();
 
-        Booking saved = bookingRepository.save(booking);
+        List<String> seats = null;
+        try {
+            seats = seatMapService.allocate(eventId, quantity, adjacent);
+            if (seats == null) {
+                slotHoldService.cancelReservation(eventId, quantity);
+                return Optional.empty();
+            }
 
-        // If this booking belongs to a queue entry, update its status as well
-        eventQueueRepository.findByBookingId(booking.getBookingId()).ifPresent(q -> {
-            q.setStatus("BOOKED");
-            q.setPosition(0);
-            eventQueueRepository.save(q);
-        });
+            // One Razorpay order for the whole quantity
+            String orderId = paymentService.createOrder(amount * quantity).id();
+
+            List<UUID> bookingIds = new ArrayList<>(quantity);
+            List<Object[]> rows = new ArrayList<>(quantity);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < quantity; i++) {
+                UUID bookingId = UUID.randomUUID();
+                bookingIds.add(bookingId);
+                String seat = seats.isEmpty() ? null : seats.get(i);
+                rows.add(new Object[] { bookingId, eventId, userId, orderId, amount, seat, now });
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_PENDING_SQL, rows));
+            historyCache.invalidate(userId);
+
+            Instant holdExpiresAt = slotHoldService.hold(orderId, eventId, quantity, seats);
+            return Optional.of(new PendingOrder(orderId, amount, quantity, bookingIds, seats, holdExpiresAt));
+        } catch (Exception ex) {
+            slotHoldService.cancelReservation(eventId, quantity);
+            seatMapService.release(eventId, seats);
+            throw ex;
+        }
+    }
 
-        return saved;
+    /**
+     * True when no slot at all is left; createOrder can also fail on a seated
+     * event because no adjacent block of the requested size is free.
+     */
+    public boolean isSoldOut(UUID eventId) {
+        return slotInventory.available(eventId) <= 0;
     }
 
     /**
-     * Attempt to confirm booking by atomically decrementing event.availableSlots.
-     * Returns true if confirmation succeeded (slot reserved and booking marked CONFIRMED).
-     * Returns false if no slot was available (booking left as-is).
-     *
-     * This method is used by the universal /verify endpoint and by auto-book assignment.
+     * A paid order that found no slot: mark its bookings FAILED_NO_SLOTS and
+     * owe the customer the whole payment back, in one transaction.
      */
     @Transactional
-    public boolean confirmBookingIfSlotAvailable(UUID bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        // If already confirmed, nothing to do
-        if ("CONFIRMED".equalsIgnoreCase(booking.getStatus())) {
-            return true;
+    public void failNoSlots(List<Booking> bookings, String paymentId) {
+        for (Booking b : bookings) {
+            b.setPaymentId(paymentId);
+            b.setStatus("FAILED_NO_SLOTS");
         }
+        bookingRepository.saveAll(bookings);
+        bookings.forEach(b -> historyCache.invalidate(b.getUserId()));
 
-        int updated = eventRepository.decrementAvailableSlotsIfPresent(booking.getEventId());
-        if (updated == 1) {
-            // success: mark booking confirmed + generate QR if missing
-            booking.setStatus("CONFIRMED");
-
-            if (booking.getQrCodeUrl() == null || booking.getQrPayload() == null) {
-                String qrText = "Booking ID: " + booking.getBookingId()
-                        + "\nEvent ID: " + booking.getEventId()
-                        + "\nUser ID: " + booking.getUserId();
-                String qrBase64 = QRCodeGenerator.generateQRCodeBase64(qrText);
-                booking.setQrPayload(qrText);
-                booking.setQrCodeUrl(qrBase64);
-            }
-
-            bookingRepository.save(booking);
-
-            // Update related queue entry to BOOKED / ASSIGNED if exists
-            eventQueueRepository.findByBookingId(booking.getBookingId()).ifPresent(q -> {
-                q.setStatus("BOOKED");
-                q.setPosition(0);
-                eventQueueRepository.save(q);
-            });
-
-            return true;
-        } else {
-            // no slot available
-            return false;
-        }
+        Booking first = bookings.get(0);
+        int amountPaise = bookings.stream().mapToInt(b -> b.getAmount() != null ? b.getAmount() * 100 : 0).sum();
+        refundOutbox.enqueue(first.getBookingId(), first.getOrderId(), paymentId, amountPaise > 0 ? amountPaise : null,
+                "NO_SLOT", RefundOutboxService.noSlotKey(paymentId));
     }
 }
@@ -0,0 +1,55 @@
+package com.ticketBooking.booking.service;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ * After threshold failures in a row the circuit opens and calls are refused
+ * for openNanos. Then a single trial call is let through: success closes the
+ * circuit, failure opens it for another period. Times are System.nanoTime()
+ * values passed in by the caller.
+ */
+public class CircuitBreaker {
+
+    private final int threshold;
+    private final long openNanos;
+
+    private int failures;
+    private boolean open;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int threshold, long openNanos) {
+        if (threshold < 1 || openNanos < 0)
+            throw new IllegalArgumentException("threshold must be >= 1 and openNanos >= 0");
+        this.threshold = threshold;
+        this.openNanos = openNanos;
+    }
+
+    /** True if a call may go ahead now; every allowed call must report success or failure. */
+    public synchronized boolean allow(long now) {
+        if (!open)
+            return true;
+        if (trialInFlight || now - openedAt < openNanos)
+            return false;
+        trialInFlight = true;
+        return true;
+    }
+
+    public synchronized void success() {
+        failures = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    public synchronized void failure(long now) {
+        trialInFlight = false;
+        if (open || ++failures >= threshold) {
+            open = true;
+            openedAt = now;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+}
@@ -0,0 +1,221 @@
+package com.ticketBooking.booking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes what abandoned checkouts leave behind: WAITING queue entries whose
+ * booking was never paid, and PENDING or CREATED bookings without a payment.
+ *
+ * Each kind is walked in (created_at, id) keyset order, a bounded batch at a
+ * time, and every batch is deleted in its own short transaction so no scan
+ * holds locks across the table. The delete re-checks that the booking is
+ * still unpaid, so a payment that lands meanwhile wins; orders whose slots are
+ * still held by SlotHoldService, or with a payment webhook still to be
+ * processed, are skipped. Reaped queue entries leave the
+ * WaitlistIndex and users can join again.
+ *
+ * The TTLs should be well past the order hold and Razorpay's payment window:
+ * a payment for a reaped booking is no longer matched to it.
+ */
+@Component
+public class ExpiredBookingReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredBookingReaper.class);
+
+    private static final Timestamp START_TIME = Timestamp.valueOf("1970-01-01 00:00:00");
+    private static final UUID START_ID = new UUID(0, 0);
+
+    private static final String QUEUE_SCAN_SQL = """
+            SELECT q.queue_id, q.booking_id, q.created_at
+            FROM event_queue q
+            JOIN bookings b ON b.booking_id = q.booking_id
+            WHERE q.status = 'WAITING' AND q.created_at < ?
+              AND b.status = 'PENDING' AND b.payment_id IS NULL
+              AND (q.created_at, q.queue_id) > (?, ?)
+            ORDER BY q.created_at, q.queue_id
+            LIMIT ?
+            """;
+    private static final String BOOKING_SCAN_SQL = """
+            SELECT b.booking_id, b.order_id, b.created_at
+            FROM bookings b
+            WHERE b.status IN ('PENDING', 'CREATED') AND b.payment_id IS NULL AND b.created_at < ?
+              AND NOT EXISTS (SELECT 1 FROM event_queue q WHERE q.booking_id = b.booking_id)
+              AND NOT EXISTS (SELECT 1 FROM payment_webhook_inbox i
+                              WHERE i.order_id = b.order_id AND i.status = 'PENDING')
+              AND (b.created_at, b.booking_id) > (?, ?)
+            ORDER BY b.created_at, b.booking_id
+            LIMIT ?
+            """;
+    private static final String DELETE_BOOKINGS_SQL = """
+            DELETE FROM bookings
+            WHERE booking_id IN (%s) AND status IN ('PENDING', 'CREATED') AND payment_id IS NULL
+              AND NOT EXISTS (SELECT 1 FROM payment_webhook_inbox i
+                              WHERE i.order_id = bookings.order_id AND i.status = 'PENDING')
+            RETURNING booking_id, event_id, user_id
+            """;
+    private static final String DELETE_QUEUE_SQL =
+            "DELETE FROM event_queue WHERE booking_id IN (%s) AND status = 'WAITING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SlotHoldService slotHoldService;
+    private final WaitlistIndex waitlistIndex;
+    private final BookingHistoryCache historyCache;
+    private final long pendingTtlMinutes;
+    private final long queueTtlMinutes;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final AtomicLong queueEntriesReaped = new AtomicLong();
+    private final AtomicLong bookingsReaped = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private volatile long lastRunMillis;
+
+    public ExpiredBookingReaper(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                SlotHoldService slotHoldService,
+                                WaitlistIndex waitlistIndex,
+                                BookingHistoryCache historyCache,
+                                @Value("${booking.reaper.pending-ttl-minutes:60}") long pendingTtlMinutes,
+                                @Value("${booking.reaper.queue-ttl-minutes:1440}") long queueTtlMinutes,
+                                @Value("${booking.reaper.batch-size:500}") int batchSize,
+                                @Value("${booking.reaper.max-batches:200}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.slotHoldService = slotHoldService;
+        this.waitlistIndex = waitlistIndex;
+        this.historyCache = historyCache;
+        this.pendingTtlMinutes = pendingTtlMinutes;
+        this.queueTtlMinutes = queueTtlMinutes;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /** Totals since startup, for monitoring. */
+    public record Stats(long runs, long queueEntriesReaped, long bookingsReaped, long lastRunMillis) {
+    }
+
+    public Stats stats() {
+        return new Stats(runs.get(), queueEntriesReaped.get(), bookingsReaped.get(), lastRunMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.reaper.interval-ms:300000}",
+            initialDelayString = "${booking.reaper.interval-ms:300000}")
+    public void reap() {
+        long started = System.currentTimeMillis();
+        int queued = 0, pending = 0;
+        try {
+            queued = reapQueueEntries(LocalDateTime.now().minusMinutes(queueTtlMinutes));
+            pending = reapPendingBookings(LocalDateTime.now().minusMinutes(pendingTtlMinutes));
+        } catch (Exception ex) {
+            log.warn("ExpiredBookingReaper: run failed after {} queue entries and {} bookings", queued, pending, ex);
+        } finally {
+            lastRunMillis = System.currentTimeMillis() - started;
+            runs.incrementAndGet();
+        }
+        if (queued > 0 || pending > 0)
+            log.info("ExpiredBookingReaper: reaped {} unpaid queue entries and {} pending bookings in {} ms"
+                    + " (totals {} / {})", queued, pending, lastRunMillis,
+                    queueEntriesReaped.get(), bookingsReaped.get());
+    }
+
+    /** Unpaid WAITING entries older than cutoff, together with their bookings. */
+    int reapQueueEntries(LocalDateTime cutoff) {
+        Timestamp before = Timestamp.valueOf(cutoff);
+        Timestamp lastTime = START_TIME;
+        UUID lastId = START_ID;
+        int reaped = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(QUEUE_SCAN_SQL, before, lastTime, lastId,
+                    batchSize);
+            if (rows.isEmpty())
+                break;
+            Map<String, Object> last = rows.get(rows.size() - 1);
+            lastTime = (Timestamp) last.get("created_at");
+            lastId = (UUID) last.get("queue_id");
+
+            List<UUID> bookingIds = rows.stream().map(r -> (UUID) r.get("booking_id")).toList();
+            int n = deleteBatch(bookingIds, true);
+            reaped += n;
+            queueEntriesReaped.addAndGet(n);
+            if (rows.size() < batchSize)
+                break;
+        }
+        return reaped;
+    }
+
+    /** PENDING / CREATED bookings outside any queue, older than cutoff and no longer held. */
+    int reapPendingBookings(LocalDateTime cutoff) {
+        Timestamp before = Timestamp.valueOf(cutoff);
+        Timestamp lastTime = START_TIME;
+        UUID lastId = START_ID;
+        int reaped = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(BOOKING_SCAN_SQL, before, lastTime, lastId,
+                    batchSize);
+            if (rows.isEmpty())
+                break;
+            Map<String, Object> last = rows.get(rows.size() - 1);
+            lastTime = (Timestamp) last.get("created_at");
+            lastId = (UUID) last.get("booking_id");
+
+            List<UUID> bookingIds = new ArrayList<>(rows.size());
+            for (Map<String, Object> r : rows) {
+                if (!slotHoldService.isHeld((String) r.get("order_id")))
+                    bookingIds.add((UUID) r.get("booking_id"));
+            }
+            int n = deleteBatch(bookingIds, false);
+            reaped += n;
+            bookingsReaped.addAndGet(n);
+            if (rows.size() < batchSize)
+                break;
+        }
+        return reaped;
+    }
+
+    // one short transaction per batch; returns how many bookings were deleted
+    private int deleteBatch(List<UUID> bookingIds, boolean queued) {
+        if (bookingIds.isEmpty())
+            return 0;
+        String in = String.join(",", Collections.nCopies(bookingIds.size(), "?"));
+        Object[] args = bookingIds.toArray();
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<Map<String, Object>> gone = jdbcTemplate.queryForList(DELETE_BOOKINGS_SQL.formatted(in), args);
+            if (gone.isEmpty())
+                return 0;
+            Set<Integer> users = new HashSet<>();
+            List<UUID> goneIds = new ArrayList<>(gone.size());
+            for (Map<String, Object> row : gone) {
+                UUID bookingId = (UUID) row.get("booking_id");
+                goneIds.add(bookingId);
+                users.add((Integer) row.get("user_id"));
+                if (queued)
+                    waitlistIndex.remove((UUID) row.get("event_id"), bookingId);
+            }
+            if (queued) {
+                String goneIn = String.join(",", Collections.nCopies(goneIds.size(), "?"));
+                jdbcTemplate.update(DELETE_QUEUE_SQL.formatted(goneIn), goneIds.toArray());
+            }
+            users.forEach(historyCache::invalidate);
+            return gone.size();
+        });
+        return deleted == null ? 0 : deleted;
+    }
+}
@@ -0,0 +1,264 @@
+package com.ticketBooking.booking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offline data for gate scanners.
+ *
+ * A manifest is every CONFIRMED booking id of an event, sorted and packed
+ * as 16-byte big-endian UUIDs, so a scanner can binary-search it after
+ * checking a token's signature with the event key. Next to it the server
+ * keeps a verified bitmap (bit i = manifest entry i scanned) and an
+ * append-only log of the indices flipped since the manifest was built.
+ * Scanners pull that log from their last sequence number and push scans
+ * they made while offline; both are cheap, idempotent and safe to retry
+ * on a flaky venue network.
+ *
+ * bookings.verified stays the source of truth: the bitmap is rebuilt from
+ * it with every manifest and every mark is written through.
+ */
+@Service
+public class GateManifestService {
+
+    private static final Logger log = LoggerFactory.getLogger(GateManifestService.class);
+
+    // same text as fingerprint(): ids in uuid order, comma separated, md5 hex
+    private static final String FINGERPRINT_SQL = """
+            SELECT md5(string_agg(booking_id::text, ',' ORDER BY booking_id))
+            FROM bookings WHERE event_id = ? AND status = 'CONFIRMED'
+            """;
+    private static final String CONFIRMED_SQL =
+            "SELECT booking_id, verified FROM bookings WHERE event_id = ? AND status = 'CONFIRMED'";
+    private static final String CONFIRMED_AMONG_SQL =
+            "SELECT booking_id FROM bookings WHERE event_id = ? AND status = 'CONFIRMED' AND booking_id IN (%s)";
+    private static final String MARK_SQL = """
+            UPDATE bookings SET verified = true, verified_at = now()
+            WHERE booking_id = ? AND event_id = ? AND status = 'CONFIRMED' AND verified IS NOT TRUE
+            """;
+
+    // postgres orders uuid by its bytes, i.e. unsigned msb then lsb
+    private static final Comparator<UUID> UUID_ORDER = (a, b) -> {
+        int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TicketTokenService ticketTokenService;
+    private final long maxAgeMs;
+
+    private final Map<UUID, Gate> gates = new ConcurrentHashMap<>();
+
+    public GateManifestService(JdbcTemplate jdbcTemplate,
+                               TicketTokenService ticketTokenService,
+                               @Value("${gate.manifest.max-age-seconds:60}") long maxAgeSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ticketTokenService = ticketTokenService;
+        this.maxAgeMs = maxAgeSeconds * 1000;
+    }
+
+    public record Manifest(UUID eventId, long version, int count, byte[] ids, byte[] verified, int seq,
+                           byte[] eventKey) {
+    }
+
+    /**
+     * Outcome of a batch of offline scans: alreadyVerified were admitted
+     * before (possible duplicate entry), invalid are not confirmed tickets of
+     * the event at all (cancelled, unknown, or forged).
+     */
+    public record ScanResult(int recorded, List<UUID> alreadyVerified, List<UUID> invalid) {
+    }
+
+    /** Indices verified after seq; resync=true means the caller's manifest is outdated. */
+    public record Delta(long version, int seq, int[] verified, boolean resync) {
+    }
+
+    private static final class Gate {
+        final long version = System.currentTimeMillis();
+        volatile long checkedAt = version;
+        final UUID[] ids;
+        final String fingerprint;
+        final long[] verified;
+        final int[] log; // indices in the order they were verified
+        int seq;
+
+        Gate(UUID[] ids) {
+            this.ids = ids;
+            this.fingerprint = fingerprint(ids);
+            this.verified = new long[(ids.length + 63) >>> 6];
+            this.log = new int[ids.length];
+        }
+
+        int indexOf(UUID id) {
+            return Arrays.binarySearch(ids, id, UUID_ORDER);
+        }
+
+        synchronized boolean mark(int i) {
+            long bit = 1L << i;
+            if ((verified[i >>> 6] & bit) != 0)
+                return false;
+            verified[i >>> 6] |= bit;
+            log[seq++] = i;
+            return true;
+        }
+
+        synchronized boolean isVerified(int i) {
+            return (verified[i >>> 6] & (1L << i)) != 0;
+        }
+    }
+
+    /**
+     * Current manifest of an event. After gate.manifest.max-age-seconds a
+     * fingerprint of the confirmed id set is re-checked and the manifest
+     * rebuilt (new version, gates resync) only if it changed. A count would
+     * miss one cancellation plus one confirmation in the same window.
+     */
+    public Manifest manifest(UUID eventId) {
+        Gate gate = gates.compute(eventId, (id, g) -> {
+            if (g == null)
+                return load(id);
+            if (System.currentTimeMillis() - g.checkedAt <= maxAgeMs)
+                return g;
+            String current = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class, id);
+            if (Objects.equals(current, g.fingerprint)) {
+                g.checkedAt = System.currentTimeMillis();
+                return g;
+            }
+            return load(id);
+        });
+
+        ByteBuffer ids = ByteBuffer.allocate(gate.ids.length * 16);
+        for (UUID id : gate.ids)
+            ids.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        synchronized (gate) {
+            ByteBuffer bits = ByteBuffer.allocate(gate.verified.length * 8);
+            for (long w : gate.verified)
+                bits.putLong(w);
+            return new Manifest(eventId, gate.version, gate.ids.length, ids.array(), bits.array(), gate.seq,
+                    ticketTokenService.eventKey(eventId));
+        }
+    }
+
+    public Delta delta(UUID eventId, long version, int since) {
+        Gate gate = gates.get(eventId);
+        if (gate == null || gate.version != version)
+            return new Delta(gate == null ? 0 : gate.version, 0, new int[0], true);
+        synchronized (gate) {
+            int from = Math.max(0, Math.min(since, gate.seq));
+            return new Delta(gate.version, gate.seq, Arrays.copyOfRange(gate.log, from, gate.seq), false);
+        }
+    }
+
+    /**
+     * Record scans a gate made (possibly offline). Every id is written through
+     * to bookings in one batch; ids the batch did not flip are then split into
+     * ones another gate had already verified (the device flags a possible
+     * duplicate entry) and ones that are no confirmed ticket of the event.
+     */
+    public ScanResult recordScans(UUID eventId, List<UUID> bookingIds) {
+        if (bookingIds.isEmpty())
+            return new ScanResult(0, List.of(), List.of());
+        int[] counts = jdbcTemplate.batchUpdate(MARK_SQL, bookingIds.stream()
+                .map(id -> new Object[] { id, eventId })
+                .toList());
+
+        List<UUID> notFlipped = new ArrayList<>();
+        for (int i = 0; i < bookingIds.size(); i++) {
+            if (counts[i] == 0)
+                notFlipped.add(bookingIds.get(i));
+            else
+                markVerified(eventId, bookingIds.get(i));
+        }
+        if (notFlipped.isEmpty())
+            return new ScanResult(bookingIds.size(), List.of(), List.of());
+
+        Set<UUID> confirmed = new HashSet<>();
+        List<Object> args = new ArrayList<>(notFlipped.size() + 1);
+        args.add(eventId);
+        args.addAll(notFlipped);
+        jdbcTemplate.query(CONFIRMED_AMONG_SQL.formatted(String.join(",", Collections.nCopies(notFlipped.size(), "?"))),
+                rs -> {
+                    confirmed.add(rs.getObject("booking_id", UUID.class));
+                }, args.toArray());
+
+        List<UUID> duplicates = new ArrayList<>();
+        List<UUID> invalid = new ArrayList<>();
+        for (UUID id : notFlipped) {
+            if (confirmed.contains(id)) {
+                duplicates.add(id);
+                markVerified(eventId, id);
+            } else {
+                invalid.add(id);
+            }
+        }
+        return new ScanResult(bookingIds.size() - notFlipped.size(), duplicates, invalid);
+    }
+
+    /** Called by the online verify path after it flipped bookings.verified. */
+    public void markVerified(UUID eventId, UUID bookingId) {
+        Gate gate = gates.get(eventId);
+        if (gate == null)
+            return;
+        int idx = gate.indexOf(bookingId);
+        if (idx >= 0)
+            gate.mark(idx);
+    }
+
+    /** md5 hex of the sorted ids joined with commas, null for none (as FINGERPRINT_SQL). */
+    static String fingerprint(UUID[] sortedIds) {
+        if (sortedIds.length == 0)
+            return null;
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            for (int i = 0; i < sortedIds.length; i++) {
+                if (i > 0)
+                    md5.update((byte) ',');
+                md5.update(sortedIds[i].toString().getBytes(StandardCharsets.US_ASCII));
+            }
+            return HexFormat.of().formatHex(md5.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Gate load(UUID eventId) {
+        List<UUID> ids = new ArrayList<>();
+        List<UUID> verified = new ArrayList<>();
+        jdbcTemplate.query(CONFIRMED_SQL, rs -> {
+            UUID id = rs.getObject("booking_id", UUID.class);
+            ids.add(id);
+            if (rs.getBoolean("verified"))
+                verified.add(id);
+        }, eventId);
+
+        UUID[] sorted = ids.toArray(new UUID[0]);
+        Arrays.sort(sorted, UUID_ORDER);
+        Gate gate = new Gate(sorted);
+        for (UUID id : verified)
+            gate.mark(gate.indexOf(id));
+        gate.seq = 0; // already in the bitmap shipped with the manifest
+        log.info("GateManifestService: manifest for event {} built, {} tickets, {} already scanned",
+                eventId, sorted.length, verified.size());
+        return gate;
+    }
+}
@@ -0,0 +1,152 @@
+package com.ticketBooking.booking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Response cache behind the Idempotency-Key header of /order and /verify.
+ *
+ * The first request with a key runs; retries with the same key (same user,
+ * same endpoint) get its response back instead of creating another Razorpay
+ * order or confirm. A retry that arrives while the first one is still running
+ * waits for it. Entries expire after a TTL and the map is bounded (LRU), so a
+ * retry storm cannot grow it without limit. 5xx responses are not kept, so
+ * the client can retry those for real.
+ */
+@Component
+public class IdempotencyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyCache.class);
+
+    private final long ttlMs;
+    private final int maxEntries;
+    private final long waitMs;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    public IdempotencyCache(@Value("${idempotency.ttl-seconds:3600}") long ttlSeconds,
+                            @Value("${idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${idempotency.wait-ms:30000}") long waitMs) {
+        this.ttlMs = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.waitMs = waitMs;
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        volatile long expiresAt = Long.MAX_VALUE; // set once the response is known
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Run action once per (scope, key). Without a key the action just runs.
+     *
+     * @param scope       who and what the key belongs to, e.g. "user@x.com:/order"
+     * @param key         the client's Idempotency-Key header (may be null)
+     * @param fingerprint the request parameters; reusing a key for a different
+     *                    request is rejected with 422
+     */
+    public ResponseEntity<?> execute(String scope, String key, String fingerprint,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank())
+            return action.get();
+
+        String id = scope + "|" + key;
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(id);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(id);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(fingerprint);
+                entries.put(id, entry);
+                owner = true;
+                evict();
+            }
+        }
+
+        if (!owner) {
+            if (!Objects.equals(entry.fingerprint, fingerprint))
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .body(Map.of("error", "Idempotency-Key was already used for a different request"));
+            return await(entry);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException ex) {
+            forget(id, entry);
+            entry.response.completeExceptionally(ex);
+            throw ex;
+        }
+        if (response.getStatusCode().is5xxServerError())
+            forget(id, entry);
+        else
+            entry.expiresAt = System.currentTimeMillis() + ttlMs;
+        entry.response.complete(response);
+        return response;
+    }
+
+    private ResponseEntity<?> await(Entry entry) {
+        try {
+            return entry.response.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A request with this Idempotency-Key is still in progress"));
+        } catch (ExecutionException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", String.valueOf(e.getCause().getMessage())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private void forget(String id, Entry entry) {
+        synchronized (entries) {
+            entries.remove(id, entry);
+        }
+    }
+
+    // caller holds the lock
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        int excess = entries.size() - maxEntries;
+        long now = System.currentTimeMillis();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (excess > 0 && e.response.isDone()) {
+                it.remove();
+                excess--;
+            } else if (e.expiresAt < now) {
+                it.remove();
+            } else if (excess <= 0) {
+                break; // LRU order: the rest are more recent
+            }
+        }
+        if (excess > 0)
+            log.warn("IdempotencyCache: {} entries over the limit are still in flight", excess);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ticketBooking.booking.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The payment provider behind PaymentService. RazorpayGateway talks to
+ * Razorpay; with payment.gateway=simulator SimulatedPaymentGateway stands in
+ * for it so the booking flow can be load-tested offline.
+ *
+ * Calls are asynchronous and fail with a RuntimeException (or a
+ * TimeoutException) when the provider refuses or does not answer.
+ */
+public interface PaymentGateway {
+
+    record GatewayOrder(String id, int amountPaise) {
+    }
+
+    record GatewayRefund(String id, String paymentId, int amountPaise) {
+    }
+
+    /** A payment as the provider sees it; status is Razorpay's (captured, refunded, failed, ...). */
+    record GatewayPayment(String id, String orderId, String status, int amountPaise, int refundedPaise) {
+    }
+
+    CompletableFuture<GatewayOrder> createOrder(int amountPaise);
+
+    /** Every payment attempt made against the order, empty if there is none. */
+    CompletableFuture<List<GatewayPayment>> findPayments(String orderId);
+
+    /**
+     * @param amountPaise amount to refund; null refunds the rest of the payment
+     * @param idempotencyKey at most 40 characters, recorded with the refund
+     */
+    CompletableFuture<GatewayRefund> refund(String paymentId, Integer amountPaise, String idempotencyKey);
+
+    /** The refund of the payment made earlier with this idempotency key, if any. */
+    CompletableFuture<Optional<GatewayRefund>> findRefund(String paymentId, String idempotencyKey);
+
+    /** True if the provider answered and rejected the request; retrying it will not help. */
+    static boolean isRejected(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("BAD_REQUEST_ERROR"))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,362 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.Booking;
+import com.ticketBooking.booking.repository.BookingRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds bookings whose status disagrees with the payment provider and fixes
+ * what can be fixed safely:
+ *
+ *  - PAID, not waiting in a queue, never CONFIRMED: if the payment was
+ *    captured the order is confirmed through BookingConfirmationPipeline,
+ *    or failed with a refund when no slot is left
+ *  - CONFIRMED without a payment id: the order's captured payment is recorded
+ *  - CANCELLED with a payment but no refund in the outbox: the refund is
+ *    queued unless the gateway shows it refunded already
+ *
+ * Each check streams its bookings through a server-side cursor (fetch-size
+ * rows at a time, inside one read-only transaction) ordered by order id, so
+ * the bookings of an order arrive together and only one order is buffered.
+ * Every order is looked up with one gateway call; at most max-concurrent
+ * lookups (and their fixes) run at once and the cursor waits for a free
+ * permit, which keeps memory flat however many bookings there are. Every
+ * finding is written to payment_discrepancy with the action taken; with
+ * auto-fix off the job only reports. Fixes re-check status in their own
+ * transactions, so a booking moved on by /verify or a webhook meanwhile is
+ * left alone.
+ */
+@Component
+public class PaymentReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentReconciliationJob.class);
+
+    enum Kind {
+        PAID_NOT_CONFIRMED("""
+                SELECT b.booking_id, b.order_id, b.payment_id, b.status, b.amount
+                FROM bookings b
+                WHERE b.status = 'PAID' AND (b.created_at IS NULL OR b.created_at < ?)
+                  AND NOT EXISTS (SELECT 1 FROM event_queue q WHERE q.booking_id = b.booking_id AND q.status = 'WAITING')
+                ORDER BY b.order_id, b.booking_id
+                """),
+        CONFIRMED_NO_PAYMENT("""
+                SELECT b.booking_id, b.order_id, b.payment_id, b.status, b.amount
+                FROM bookings b
+                WHERE b.status = 'CONFIRMED' AND b.payment_id IS NULL AND b.order_id IS NOT NULL
+                  AND (b.created_at IS NULL OR b.created_at < ?)
+                ORDER BY b.order_id, b.booking_id
+                """),
+        CANCELLED_NO_REFUND("""
+                SELECT b.booking_id, b.order_id, b.payment_id, b.status, b.amount
+                FROM bookings b
+                WHERE b.status = 'CANCELLED' AND b.payment_id IS NOT NULL
+                  AND (b.created_at IS NULL OR b.created_at < ?)
+                  AND NOT EXISTS (SELECT 1 FROM refund_outbox r WHERE r.booking_id = b.booking_id)
+                ORDER BY b.order_id, b.booking_id
+                """);
+
+        final String sql;
+
+        Kind(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    enum Action {
+        CONFIRM, SET_PAYMENT_ID, QUEUE_REFUND, REPORT, OK
+    }
+
+    /** What to do about one booking given the order's payments at the gateway. */
+    record Decision(Action action, PaymentGateway.GatewayPayment payment, String detail) {
+    }
+
+    public record Report(UUID runId, long scanned, long discrepancies, long fixed, long gatewayErrors,
+                         long elapsedMs) {
+    }
+
+    private record Row(UUID bookingId, String orderId, String paymentId, String status, Integer amount) {
+    }
+
+    private static final String INSERT_SQL = """
+            INSERT INTO payment_discrepancy (id, run_id, booking_id, order_id, payment_id, kind, booking_status,
+                                             gateway_status, action, detail, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String SET_PAYMENT_ID_SQL =
+            "UPDATE bookings SET payment_id = ? WHERE booking_id = ? AND status = 'CONFIRMED' AND payment_id IS NULL";
+    private static final String LOCK_CANCELLED_SQL =
+            "SELECT count(*) FROM bookings WHERE booking_id = ? AND status = 'CANCELLED' AND payment_id = ? FOR UPDATE";
+
+    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+    private final BookingConfirmationPipeline confirmationPipeline;
+    private final PaymentService paymentService;
+    private final RefundOutboxService refundOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final int maxConcurrent;
+    private final long graceMinutes;
+    private final boolean autoFix;
+    private final ExecutorService fixers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PaymentReconciliationJob(BookingRepository bookingRepository,
+                                    BookingService bookingService,
+                                    BookingConfirmationPipeline confirmationPipeline,
+                                    PaymentService paymentService,
+                                    RefundOutboxService refundOutbox,
+                                    JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${payment.reconcile.fetch-size:500}") int fetchSize,
+                                    @Value("${payment.reconcile.max-concurrent:4}") int maxConcurrent,
+                                    @Value("${payment.reconcile.grace-minutes:60}") long graceMinutes,
+                                    @Value("${payment.reconcile.auto-fix:true}") boolean autoFix) {
+        this.bookingRepository = bookingRepository;
+        this.bookingService = bookingService;
+        this.confirmationPipeline = confirmationPipeline;
+        this.paymentService = paymentService;
+        this.refundOutbox = refundOutbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxConcurrent = maxConcurrent;
+        this.graceMinutes = graceMinutes;
+        this.autoFix = autoFix;
+
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.cursorTemplate.setFetchSize(fetchSize);
+        this.readOnlyTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fixers.shutdownNow();
+    }
+
+    private static final class Run {
+        final UUID id = UUID.randomUUID();
+        final Semaphore inFlight;
+        final AtomicLong scanned = new AtomicLong();
+        final AtomicLong discrepancies = new AtomicLong();
+        final AtomicLong fixed = new AtomicLong();
+        final AtomicLong gatewayErrors = new AtomicLong();
+
+        Run(int maxConcurrent) {
+            inFlight = new Semaphore(maxConcurrent);
+        }
+    }
+
+    @Scheduled(cron = "${payment.reconcile.cron:0 30 3 * * *}")
+    public Report run() {
+        long t0 = System.nanoTime();
+        Run run = new Run(maxConcurrent);
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusMinutes(graceMinutes));
+        for (Kind kind : Kind.values()) {
+            try {
+                stream(run, kind, cutoff);
+            } catch (Exception ex) {
+                log.error("PaymentReconciliationJob: {} check aborted", kind, ex);
+            }
+        }
+        // wait for the lookups still in flight
+        run.inFlight.acquireUninterruptibly(maxConcurrent);
+        run.inFlight.release(maxConcurrent);
+
+        Report report = new Report(run.id, run.scanned.get(), run.discrepancies.get(), run.fixed.get(),
+                run.gatewayErrors.get(), (System.nanoTime() - t0) / 1_000_000);
+        log.info("PaymentReconciliationJob: run {} scanned {} bookings, {} discrepancies, {} fixed, {} gateway errors in {} ms",
+                report.runId(), report.scanned(), report.discrepancies(), report.fixed(), report.gatewayErrors(),
+                report.elapsedMs());
+        return report;
+    }
+
+    private void stream(Run run, Kind kind, Timestamp cutoff) {
+        List<Row> order = new ArrayList<>();
+        readOnlyTemplate.executeWithoutResult(status -> cursorTemplate.query(kind.sql, (ResultSet rs) -> {
+            Row row = row(rs);
+            run.scanned.incrementAndGet();
+            if (!order.isEmpty() && !String.valueOf(order.get(0).orderId()).equals(String.valueOf(row.orderId()))) {
+                dispatch(run, kind, List.copyOf(order));
+                order.clear();
+            }
+            order.add(row);
+        }, cutoff));
+        if (!order.isEmpty())
+            dispatch(run, kind, List.copyOf(order));
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        return new Row(rs.getObject("booking_id", UUID.class), rs.getString("order_id"), rs.getString("payment_id"),
+                rs.getString("status"), (Integer) rs.getObject("amount"));
+    }
+
+    // look the order up at the gateway; blocks while max-concurrent lookups are running
+    private void dispatch(Run run, Kind kind, List<Row> rows) {
+        String orderId = rows.get(0).orderId();
+        if (orderId == null) {
+            rows.forEach(r -> record(run, kind, r, new Decision(Action.REPORT, null, "booking has no order id")));
+            return;
+        }
+        run.inFlight.acquireUninterruptibly();
+        try {
+            paymentService.findPaymentsAsync(orderId).handleAsync((payments, ex) -> {
+                try {
+                    if (ex != null) {
+                        run.gatewayErrors.incrementAndGet();
+                        log.warn("PaymentReconciliationJob: lookup of order {} failed: {}", orderId, ex.getMessage());
+                    } else {
+                        resolve(run, kind, rows, payments);
+                    }
+                } catch (Exception fixError) {
+                    log.error("PaymentReconciliationJob: reconciling order {} failed", orderId, fixError);
+                } finally {
+                    run.inFlight.release();
+                }
+                return null;
+            }, fixers);
+        } catch (RuntimeException ex) {
+            run.inFlight.release();
+            run.gatewayErrors.incrementAndGet();
+            log.warn("PaymentReconciliationJob: lookup of order {} failed: {}", orderId, ex.getMessage());
+        }
+    }
+
+    private void resolve(Run run, Kind kind, List<Row> rows, List<PaymentGateway.GatewayPayment> payments) {
+        List<Decision> decisions = new ArrayList<>(rows.size());
+        for (Row r : rows)
+            decisions.add(decide(kind, r.paymentId(), r.amount() != null ? r.amount() * 100 : 0, payments));
+        if (decisions.stream().allMatch(d -> d.action() == Action.OK))
+            return;
+
+        if (kind == Kind.PAID_NOT_CONFIRMED && decisions.get(0).action() == Action.CONFIRM) {
+            // the whole order is confirmed (or failed) together
+            Decision outcome = autoFix ? confirmOrder(rows.get(0).orderId(), decisions.get(0).payment())
+                    : unfixed(decisions.get(0));
+            for (Row r : rows)
+                record(run, kind, r, outcome);
+            if (outcome.action() != Action.REPORT)
+                run.fixed.addAndGet(rows.size());
+            return;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            Decision d = decisions.get(i);
+            if (d.action() == Action.OK)
+                continue;
+            boolean fixed = autoFix && switch (d.action()) {
+                case SET_PAYMENT_ID -> jdbcTemplate.update(SET_PAYMENT_ID_SQL, d.payment().id(), r.bookingId()) > 0;
+                case QUEUE_REFUND -> queueRefund(r);
+                default -> false;
+            };
+            record(run, kind, r, fixed ? d : unfixed(d));
+            if (fixed)
+                run.fixed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Pure decision for one booking. bookedPaise is the booking's price,
+     * payments everything the gateway has for its order.
+     */
+    static Decision decide(Kind kind, String paymentId, int bookedPaise, List<PaymentGateway.GatewayPayment> payments) {
+        PaymentGateway.GatewayPayment own = payments.stream()
+                .filter(p -> p.id().equals(paymentId)).findFirst().orElse(null);
+        switch (kind) {
+            case PAID_NOT_CONFIRMED -> {
+                if (own == null)
+                    return new Decision(Action.REPORT, null, "payment " + paymentId + " not found at the gateway");
+                if (!"captured".equals(own.status()))
+                    return new Decision(Action.REPORT, own, "payment is " + own.status() + ", not captured");
+                return new Decision(Action.CONFIRM, own, "payment captured but booking never confirmed");
+            }
+            case CONFIRMED_NO_PAYMENT -> {
+                PaymentGateway.GatewayPayment captured = payments.stream()
+                        .filter(p -> "captured".equals(p.status())).findFirst().orElse(null);
+                if (captured == null)
+                    return new Decision(Action.REPORT, payments.isEmpty() ? null : payments.get(0),
+                            "confirmed without a captured payment");
+                return new Decision(Action.SET_PAYMENT_ID, captured, "payment " + captured.id() + " not recorded");
+            }
+            case CANCELLED_NO_REFUND -> {
+                if (own == null)
+                    return new Decision(Action.REPORT, null, "payment " + paymentId + " not found at the gateway");
+                if ("refunded".equals(own.status()) || own.refundedPaise() >= Math.min(bookedPaise, own.amountPaise()))
+                    return new Decision(Action.OK, own, "refunded outside the outbox");
+                if (!"captured".equals(own.status()))
+                    return new Decision(Action.REPORT, own, "payment is " + own.status());
+                return new Decision(Action.QUEUE_REFUND, own, "cancelled without a refund");
+            }
+        }
+        throw new IllegalArgumentException(String.valueOf(kind));
+    }
+
+    private static Decision unfixed(Decision d) {
+        return d.action() == Action.REPORT ? d : new Decision(Action.REPORT, d.payment(), d.detail());
+    }
+
+    private Decision confirmOrder(String orderId, PaymentGateway.GatewayPayment payment) {
+        List<Booking> bookings = bookingRepository.findAllByOrderId(orderId);
+        if (bookings.isEmpty())
+            return new Decision(Action.REPORT, payment, "order has no bookings any more");
+        BookingConfirmationPipeline.Result result = confirmationPipeline.submit(orderId, bookings, payment.id()).join();
+        // the booking carried this payment: the cancel or no-slot path owes its refund
+        if (result.outcome() == BookingConfirmationPipeline.Outcome.CLOSED)
+            return new Decision(Action.REPORT, payment, "order was cancelled or failed meanwhile, refunded by that path");
+        if (result.outcome() != BookingConfirmationPipeline.Outcome.NO_SLOT)
+            return new Decision(Action.CONFIRM, payment, "confirmed (" + result.outcome() + ")");
+        bookingService.failNoSlots(bookings, payment.id());
+        return new Decision(Action.QUEUE_REFUND, payment, "no slot left, marked FAILED_NO_SLOTS and refunded");
+    }
+
+    private boolean queueRefund(Row r) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Integer still = jdbcTemplate.queryForObject(LOCK_CANCELLED_SQL, Integer.class, r.bookingId(), r.paymentId());
+            if (still == null || still == 0)
+                return false;
+            refundOutbox.enqueue(r.bookingId(), r.orderId(), r.paymentId(), r.amount() != null ? r.amount() * 100 : null,
+                    "CANCELLED", RefundOutboxService.cancelKey(r.bookingId()));
+            return true;
+        }));
+    }
+
+    private void record(Run run, Kind kind, Row r, Decision d) {
+        run.discrepancies.incrementAndGet();
+        PaymentGateway.GatewayPayment p = d.payment();
+        String action = switch (d.action()) {
+            case CONFIRM -> "CONFIRMED";
+            case SET_PAYMENT_ID -> "PAYMENT_ID_SET";
+            case QUEUE_REFUND -> "REFUND_QUEUED";
+            default -> "NONE";
+        };
+        try {
+            jdbcTemplate.update(INSERT_SQL, UUID.randomUUID(), run.id, r.bookingId(), r.orderId(),
+                    r.paymentId() != null ? r.paymentId() : p != null ? p.id() : null, kind.name(), r.status(),
+                    p != null ? p.status() : null, action, d.detail(), Timestamp.valueOf(LocalDateTime.now()));
+        } catch (Exception ex) {
+            log.warn("PaymentReconciliationJob: could not record {} for booking {}", kind, r.bookingId(), ex);
+        }
+    }
+}
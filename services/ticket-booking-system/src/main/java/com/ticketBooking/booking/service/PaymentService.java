@@ -1,48 +1,69 @@
 package com.ticketBooking.booking.service;
 
-import com.razorpay.Order;
-import com.razorpay.Refund;
-import com.razorpay.RazorpayClient;
-import com.razorpay.RazorpayException;
-import org.json.JSONObject;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Orders and refunds through the configured PaymentGateway (Razorpay, or the
+ * simulator). The blocking variants wait for the async ones and unwrap their
+ * failure.
+ */
 @Service
 public class PaymentService {
 
-    @Value("${RZP_KEY_ID}")
-    private String razorpayKeyId;
+    private final PaymentGateway gateway;
 
-    @Value("${RZP_KEY_SECRET}")
-    private String razorpayKeySecret;
+    public PaymentService(PaymentGateway gateway) {
+        this.gateway = gateway;
+    }
 
-    public Order createOrder(int amount) throws Exception {
-        RazorpayClient razorpayClient = new RazorpayClient(razorpayKeyId, razorpayKeySecret);
+    /** @param amount in rupees */
+    public CompletableFuture<PaymentGateway.GatewayOrder> createOrderAsync(int amount) {
+        return gateway.createOrder(amount * 100); // amount in paise
+    }
 
-        JSONObject orderRequest = new JSONObject();
-        orderRequest.put("amount", amount * 100); // amount in paise
-        orderRequest.put("currency", "INR");
-        orderRequest.put("payment_capture", 1);
+    public PaymentGateway.GatewayOrder createOrder(int amount) {
+        return await(createOrderAsync(amount));
+    }
 
-        return razorpayClient.orders.create(orderRequest);
+    /** What the provider knows about the payments of an order; used by reconciliation. */
+    public CompletableFuture<List<PaymentGateway.GatewayPayment>> findPaymentsAsync(String orderId) {
+        return gateway.findPayments(orderId);
     }
 
     /**
-     * Refund a payment (full or partial).
+     * Refund a payment (full or partial). Refunds are owed through
+     * RefundOutboxService, which calls this with retries.
      * @param paymentId razorpay payment id
      * @param amountPaise amount in paise to refund; pass null to refund full amount
-     * @throws RazorpayException if refund API fails
+     * @param idempotencyKey identifies the refund across retries
      */
-    public void refundPayment(String paymentId, Integer amountPaise) throws RazorpayException {
-    RazorpayClient razorpayClient = new RazorpayClient(razorpayKeyId, razorpayKeySecret);
-    JSONObject refundRequest = new JSONObject();
-    if (amountPaise != null) refundRequest.put("amount", amountPaise);
-    refundRequest.put("speed", "normal");
-
-    // Call refund on Payments (capital P)
-    Refund refund = razorpayClient.payments.refund(paymentId, refundRequest);
-    // optional: log refund.get("id")
-}
+    public CompletableFuture<PaymentGateway.GatewayRefund> refundPaymentAsync(String paymentId, Integer amountPaise,
+                                                                              String idempotencyKey) {
+        return gateway.refund(paymentId, amountPaise, idempotencyKey);
+    }
+
+    /** A refund made earlier under idempotencyKey, e.g. by an attempt that timed out. */
+    public CompletableFuture<Optional<PaymentGateway.GatewayRefund>> findRefundAsync(String paymentId,
+                                                                                     String idempotencyKey) {
+        return gateway.findRefund(paymentId, idempotencyKey);
+    }
 
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException)
+                throw new RuntimeException("Payment provider timed out", cause);
+            if (cause instanceof RuntimeException re)
+                throw re;
+            throw new RuntimeException(cause);
+        }
+    }
 }
@@ -0,0 +1,319 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.Booking;
+import com.ticketBooking.booking.repository.BookingRepository;
+import com.ticketBooking.booking.repository.EventQueueRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Razorpay webhooks, so a paid order is confirmed even if the browser never
+ * calls /api/booking/verify.
+ *
+ * accept() checks the X-Razorpay-Signature HMAC of the raw body and stores
+ * the event in the payment_webhook_inbox table before it is acknowledged; a
+ * delivery whose event id is already there is a duplicate. If the insert
+ * fails the delivery is refused, so Razorpay sends it again. A stored event
+ * is handed to one of partitions single-threaded workers picked by order id,
+ * so the events of an order are processed one after another in arrival
+ * order, and the row is marked DONE once processed. A failed attempt, an
+ * event that did not fit a worker's bounded queue, and events left queued
+ * when the node stopped stay PENDING and are picked up again by
+ * retryDue() with exponential backoff, so an acknowledged event is never
+ * dropped.
+ *
+ * payment.captured / order.paid confirm the order through the same
+ * BookingConfirmationPipeline as /verify. A captured payment that no booking
+ * will take (unknown or reaped order, order cancelled or failed before the
+ * money arrived) is refunded through the outbox, so no payment is dropped.
+ * ExpiredBookingReaper leaves orders with a pending event alone.
+ * refund.processed marks the refund in the outbox as done.
+ */
+@Service
+public class PaymentWebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentWebhookService.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO payment_webhook_inbox (event_id, type, partition_key, order_id, payload, status, attempts,
+                                               next_attempt_at, created_at)
+            VALUES (?, ?, ?, ?, ?, 'PENDING', 1, ?, ?)
+            ON CONFLICT (event_id) DO NOTHING
+            """;
+    private static final String CLAIM_SQL = """
+            UPDATE payment_webhook_inbox SET attempts = attempts + 1, next_attempt_at = ?, updated_at = ?
+            WHERE event_id IN (SELECT event_id FROM payment_webhook_inbox
+                               WHERE status = 'PENDING' AND next_attempt_at <= ?
+                               ORDER BY next_attempt_at
+                               LIMIT ?
+                               FOR UPDATE SKIP LOCKED)
+            RETURNING event_id, payload, attempts
+            """;
+    private static final String DONE_SQL =
+            "UPDATE payment_webhook_inbox SET status = 'DONE', last_error = NULL, updated_at = ? WHERE event_id = ?";
+    private static final String RETRY_SQL =
+            "UPDATE payment_webhook_inbox SET next_attempt_at = ?, last_error = ?, updated_at = ? WHERE event_id = ?";
+
+    public enum Accepted {
+        QUEUED, DUPLICATE, BAD_SIGNATURE, MALFORMED, BUSY
+    }
+
+    private final BookingRepository bookingRepository;
+    private final EventQueueRepository eventQueueRepository;
+    private final BookingService bookingService;
+    private final BookingConfirmationPipeline confirmationPipeline;
+    private final RefundOutboxService refundOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Mac macPrototype;
+    private final ThreadPoolExecutor[] partitions;
+    private final int batchSize;
+    private final long leaseMs;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    public PaymentWebhookService(BookingRepository bookingRepository,
+                                 EventQueueRepository eventQueueRepository,
+                                 BookingService bookingService,
+                                 BookingConfirmationPipeline confirmationPipeline,
+                                 RefundOutboxService refundOutbox,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${payment.webhook.secret:${RZP_WEBHOOK_SECRET:}}") String secret,
+                                 @Value("${payment.webhook.partitions:16}") int partitions,
+                                 @Value("${payment.webhook.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${payment.webhook.retry-batch-size:500}") int batchSize,
+                                 @Value("${payment.webhook.lease-ms:120000}") long leaseMs,
+                                 @Value("${payment.webhook.backoff-base-ms:5000}") long backoffBaseMs,
+                                 @Value("${payment.webhook.backoff-max-ms:600000}") long backoffMaxMs) {
+        this.bookingRepository = bookingRepository;
+        this.eventQueueRepository = eventQueueRepository;
+        this.bookingService = bookingService;
+        this.confirmationPipeline = confirmationPipeline;
+        this.refundOutbox = refundOutbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.macPrototype = secret == null || secret.isBlank() ? null : hmac(secret);
+        if (macPrototype == null)
+            log.warn("PaymentWebhookService: no webhook secret (RZP_WEBHOOK_SECRET) set, webhooks are refused");
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.partitions = new ThreadPoolExecutor[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    Thread.ofVirtual().name("payment-webhook-" + i + "-", 0).factory(),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor partition : partitions)
+            partition.shutdown();
+    }
+
+    /**
+     * Verify, store and queue one delivery. QUEUED means the event is in the
+     * inbox; BUSY that it could not be stored and must be delivered again.
+     *
+     * @param eventId X-Razorpay-Event-Id, may be null
+     */
+    public Accepted accept(byte[] body, String signature, String eventId) {
+        if (!signatureMatches(macPrototype, body, signature))
+            return Accepted.BAD_SIGNATURE;
+
+        String type, key;
+        JSONObject payload;
+        try {
+            JSONObject event = new JSONObject(new String(body, StandardCharsets.UTF_8));
+            type = event.getString("event");
+            payload = event.optJSONObject("payload");
+            key = partitionKey(type, payload);
+        } catch (Exception ex) { // JSONException is checked in some org.json builds
+            return Accepted.MALFORMED;
+        }
+        if (key == null)
+            return Accepted.QUEUED; // an event we do not handle; acknowledge it
+
+        String id = eventId != null && !eventId.isBlank() ? eventId : bodyHash(body);
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (jdbcTemplate.update(INSERT_SQL, id, type, key, "refund.processed".equals(type) ? null : key,
+                    new String(body, StandardCharsets.UTF_8), Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000)),
+                    Timestamp.valueOf(now)) == 0)
+                return Accepted.DUPLICATE;
+        } catch (DataAccessException ex) {
+            log.warn("PaymentWebhookService: could not store event {}, refusing it", id, ex);
+            return Accepted.BUSY;
+        }
+        // stored: if the worker is backed up, retryDue() picks it up once the lease lapses
+        dispatch(id, type, key, payload, 1);
+        return Accepted.QUEUED;
+    }
+
+    /** Hand events that failed, or were never processed, to the workers again. */
+    @Scheduled(fixedDelayString = "${payment.webhook.retry-poll-ms:5000}")
+    public void retryDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Map<String, Object>> due = transactionTemplate.execute(status -> jdbcTemplate.queryForList(CLAIM_SQL,
+                Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000)), Timestamp.valueOf(now),
+                Timestamp.valueOf(now), batchSize));
+        for (Map<String, Object> row : due) {
+            String id = (String) row.get("event_id");
+            try {
+                JSONObject event = new JSONObject((String) row.get("payload"));
+                String type = event.getString("event");
+                JSONObject payload = event.optJSONObject("payload");
+                if (!dispatch(id, type, partitionKey(type, payload), payload, ((Number) row.get("attempts")).intValue()))
+                    break; // workers backed up; the rest is claimed again when the lease lapses
+            } catch (Exception ex) {
+                log.error("PaymentWebhookService: stored event {} cannot be read", id, ex);
+            }
+        }
+    }
+
+    private boolean dispatch(String id, String type, String key, JSONObject payload, int attempt) {
+        try {
+            partitions[Math.floorMod(key.hashCode(), partitions.length)]
+                    .execute(() -> process(id, type, payload, attempt));
+            return true;
+        } catch (RejectedExecutionException full) {
+            return false;
+        }
+    }
+
+    // events of one order (refunds: of one payment) go to the same worker
+    private static String partitionKey(String type, JSONObject payload) {
+        return switch (type) {
+            case "payment.captured", "order.paid" ->
+                    payload.getJSONObject("payment").getJSONObject("entity").getString("order_id");
+            case "refund.processed" -> payload.getJSONObject("refund").getJSONObject("entity").getString("payment_id");
+            default -> null;
+        };
+    }
+
+    private void process(String id, String type, JSONObject payload, int attempt) {
+        try {
+            if ("refund.processed".equals(type)) {
+                JSONObject refund = payload.getJSONObject("refund").getJSONObject("entity");
+                String receipt = refund.optString("receipt", null);
+                if (receipt != null && refundOutbox.markRefunded(receipt, refund.getString("id")))
+                    log.info("PaymentWebhookService: refund {} for key {} processed", refund.getString("id"), receipt);
+            } else {
+                JSONObject payment = payload.getJSONObject("payment").getJSONObject("entity");
+                confirmPaid(payment.getString("order_id"), payment.getString("id"));
+            }
+            jdbcTemplate.update(DONE_SQL, Timestamp.valueOf(LocalDateTime.now()), id);
+        } catch (Exception ex) {
+            long delay = RefundOutboxService.backoffMs(attempt, backoffBaseMs, backoffMaxMs,
+                    ThreadLocalRandom.current().nextDouble());
+            log.warn("PaymentWebhookService: {} event {} failed (attempt {}), retrying in {} ms", type, id, attempt,
+                    delay, ex);
+            try {
+                jdbcTemplate.update(RETRY_SQL, Timestamp.valueOf(LocalDateTime.now().plusNanos(delay * 1_000_000)),
+                        String.valueOf(ex.getMessage()), Timestamp.valueOf(LocalDateTime.now()), id);
+            } catch (Exception dbError) {
+                // the lease lapses and the event is tried again
+                log.warn("PaymentWebhookService: could not record failure of event {}", id, dbError);
+            }
+        }
+    }
+    private void confirmPaid(String orderId, String paymentId) {
+        List<Booking> bookings = bookingRepository.findAllByOrderId(orderId);
+        if (bookings.isEmpty()) {
+            // never ours, or reaped before the customer paid
+            refundUnmatched(null, orderId, paymentId, "order unknown");
+            return;
+        }
+        // /verify or an earlier delivery recorded this payment (confirmed, queued, or refunded already)
+        if (bookings.stream().anyMatch(b -> paymentId.equals(b.getPaymentId())))
+            return;
+        Booking first = bookings.get(0);
+        if (bookings.stream().noneMatch(BookingConfirmationPipeline::isConfirmable)) {
+            // cancelled or failed before this payment arrived
+            refundUnmatched(first.getBookingId(), orderId, paymentId, "order is " + first.getStatus());
+            return;
+        }
+
+        BookingConfirmationPipeline.Result result = confirmationPipeline.submit(orderId, bookings, paymentId).join();
+        switch (result.outcome()) {
+            case CLOSED -> refundUnmatched(first.getBookingId(), orderId, paymentId, "order closed meanwhile");
+            case NO_SLOT -> {
+                // queued bookings stay PAID + WAITING; anything else gets its money back
+                if (eventQueueRepository.findByBookingId(first.getBookingId()).isEmpty())
+                    bookingService.failNoSlots(bookings, paymentId);
+            }
+            default -> {
+            }
+        }
+    }
+
+    // a captured payment no booking will take: owe it back in full
+    private void refundUnmatched(UUID bookingId, String orderId, String paymentId, String why) {
+        log.warn("PaymentWebhookService: refunding payment {} for order {}: {}", paymentId, orderId, why);
+        transactionTemplate.executeWithoutResult(status -> refundOutbox.enqueue(bookingId, orderId, paymentId, null,
+                "UNMATCHED", RefundOutboxService.noSlotKey(paymentId)));
+    }
+
+    // stands in for the event id of a delivery without one: an exact replay is still a duplicate
+    private static String bodyHash(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /** Constant-time check of a hex HMAC-SHA256 signature; false without a key. */
+    static boolean signatureMatches(Mac prototype, byte[] body, String signature) {
+        if (prototype == null || signature == null || body == null)
+            return false;
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException("HmacSHA256 cannot be cloned", ex);
+        }
+        byte[] expected = HexFormat.of().formatHex(mac.doFinal(body)).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.trim().toLowerCase().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static Mac hmac(String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to init webhook HMAC", e);
+        }
+    }
+}
@@ -9,13 +9,24 @@ import com.google.zxing.qrcode.QRCodeWriter;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 public class QRCodeGenerator {
 
-    public static String generateQRCodeBase64(String text) {
+    /**
+     * The multi-line text encoded in tickets issued before signed tokens
+     * (TicketTokenService). Only used to check those old tickets at the gate.
+     */
+    public static String payloadFor(UUID bookingId, UUID eventId, Integer userId) {
+        return "Booking ID: " + bookingId
+                + "\nEvent ID: " + eventId
+                + "\nUser ID: " + userId;
+    }
+
+    /** Raw PNG bytes; the same text always gives the same image. */
+    public static byte[] generateQRCodePng(String text) {
         try {
             QRCodeWriter qrCodeWriter = new QRCodeWriter();
             Map<EncodeHintType, Object> hints = new HashMap<>();
@@ -26,7 +37,7 @@ public class QRCodeGenerator {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             MatrixToImageWriter.writeToStream(bitMatrix, "PNG", baos);
 
-            return "data:image/png;base64," + Base64.getEncoder().encodeToString(baos.toByteArray());
+            return baos.toByteArray();
 
         } catch (WriterException | IOException e) {
             throw new RuntimeException("Failed to generate QR code", e);
@@ -0,0 +1,223 @@
+package com.ticketBooking.booking.service;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticket QR images as binary resources.
+ *
+ * Bookings only carry a signed image URL (see {@link #urlFor}); the PNG is
+ * regenerated from qr_payload, which is deterministic, and kept in a
+ * size-bounded LRU cache. Confirm paths call {@link #renderLater} after
+ * commit so the image is usually cached before the client asks for it;
+ * rendering runs on a small bounded pool, never inside a transaction.
+ *
+ * The URL signature lets an {@code <img>} tag load the image without the
+ * JWT header while keeping other people's tickets unguessable.
+ */
+@Service
+public class QrRenderService {
+
+    private static final Logger log = LoggerFactory.getLogger(QrRenderService.class);
+
+    private static final String LEGACY_ROWS_SQL =
+            "SELECT booking_id FROM bookings WHERE qr_code LIKE 'data:%' LIMIT ?";
+    private static final String SET_URL_SQL = "UPDATE bookings SET qr_code = ? WHERE booking_id = ?";
+
+    public record Image(byte[] png, String etag) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolExecutor pool;
+    private final long waitMs;
+    private final long maxCacheBytes;
+    private final SecretKeySpec urlKey;
+
+    private final Map<UUID, CompletableFuture<Image>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<UUID, Image> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cacheBytes;
+
+    public QrRenderService(JdbcTemplate jdbcTemplate,
+                           @Value("${qr.render.workers:2}") int workers,
+                           @Value("${qr.render.queue-size:1000}") int queueSize,
+                           @Value("${qr.render.wait-ms:2000}") long waitMs,
+                           @Value("${qr.cache.max-bytes:16777216}") long maxCacheBytes,
+                           @Value("${QR_URL_SECRET}") String urlSecret,
+                           @Value("${RZP_KEY_SECRET:}") String paymentSecret) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.waitMs = waitMs;
+        this.maxCacheBytes = maxCacheBytes;
+        this.urlKey = SigningSecrets.hmacKey("QR_URL_SECRET", urlSecret, paymentSecret);
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "qr-render-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Path of a booking's QR image, relative to the context root. This is
+     * what bookings.qr_code stores.
+     */
+    public String urlFor(UUID bookingId) {
+        return "/api/booking/ticket/" + bookingId + "/qr.png?sig=" + sign(bookingId);
+    }
+
+    public boolean isValidSignature(UUID bookingId, String sig) {
+        return sig != null && MessageDigest.isEqual(
+                sign(bookingId).getBytes(StandardCharsets.US_ASCII),
+                sig.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Pre-render a confirmed booking's image into the cache. If the queue is
+     * full the job is dropped; the image is then rendered on first request.
+     */
+    public void renderLater(UUID bookingId, String payload) {
+        if (cached(bookingId) != null)
+            return;
+        CompletableFuture<Image> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(bookingId, future) != null)
+            return;
+        try {
+            pool.execute(() -> render(bookingId, payload, future));
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(bookingId, future);
+            future.complete(null);
+            log.warn("QrRenderService: queue full, booking {} will be rendered on demand", bookingId);
+        }
+    }
+
+    /**
+     * PNG for a booking: from the cache, from a render already in flight, or
+     * rendered now.
+     */
+    public Image image(UUID bookingId, String payload) {
+        Image image = cached(bookingId);
+        if (image != null)
+            return image;
+
+        CompletableFuture<Image> pending = inFlight.get(bookingId);
+        if (pending != null) {
+            try {
+                image = pending.get(waitMs, TimeUnit.MILLISECONDS);
+                if (image != null)
+                    return image;
+            } catch (Exception ex) {
+                log.debug("QrRenderService: render of {} not ready, rendering inline", bookingId);
+            }
+        }
+        image = encode(payload);
+        put(bookingId, image);
+        return image;
+    }
+
+    /**
+     * Rows confirmed before images became URLs still hold a base64 data URI;
+     * swap them for the URL in small batches once at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replaceLegacyDataUris() {
+        int total = 0;
+        List<UUID> ids;
+        do {
+            ids = jdbcTemplate.queryForList(LEGACY_ROWS_SQL, UUID.class, 500);
+            jdbcTemplate.batchUpdate(SET_URL_SQL, ids.stream()
+                    .map(id -> new Object[] { urlFor(id), id })
+                    .toList());
+            total += ids.size();
+        } while (!ids.isEmpty());
+        if (total > 0)
+            log.info("QrRenderService: replaced {} inline QR images with urls", total);
+    }
+
+    private void render(UUID bookingId, String payload, CompletableFuture<Image> future) {
+        try {
+            Image image = encode(payload);
+            put(bookingId, image);
+            future.complete(image);
+        } catch (Exception ex) {
+            log.warn("QrRenderService: render of booking {} failed", bookingId, ex);
+            future.complete(null);
+        } finally {
+            inFlight.remove(bookingId, future);
+        }
+    }
+
+    private static Image encode(String payload) {
+        byte[] png = QRCodeGenerator.generateQRCodePng(payload);
+        return new Image(png, etag(payload));
+    }
+
+    // the image is a pure function of the payload
+    private static String etag(String payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String sign(UUID bookingId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(urlKey);
+            byte[] h = mac.doFinal(bookingId.toString().getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(h).substring(0, 22);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to sign QR url", e);
+        }
+    }
+
+    private Image cached(UUID bookingId) {
+        synchronized (cache) {
+            return cache.get(bookingId);
+        }
+    }
+
+    private void put(UUID bookingId, Image image) {
+        synchronized (cache) {
+            Image old = cache.put(bookingId, image);
+            cacheBytes += image.png().length - (old != null ? old.png().length : 0);
+            Iterator<Image> it = cache.values().iterator();
+            while (cacheBytes > maxCacheBytes && it.hasNext()) {
+                cacheBytes -= it.next().png().length;
+                it.remove();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package com.ticketBooking.booking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out per-event waitlist join sequence numbers (1, 2, 3, ...).
+ *
+ * Numbers are reserved from queue_sequences in blocks with one upsert, in a
+ * transaction of its own so a rolled-back join never hands a number out
+ * twice. Within a block next() is a counter bump. Numbers are unique and
+ * increasing; a restart or a failed join leaves gaps, which is fine for
+ * ordering.
+ */
+@Component
+public class QueueSequenceAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(QueueSequenceAllocator.class);
+
+    private static final String RESERVE_SQL = """
+            INSERT INTO queue_sequences (event_id, allocated) VALUES (?, ?)
+            ON CONFLICT (event_id) DO UPDATE SET allocated = queue_sequences.allocated + EXCLUDED.allocated
+            RETURNING allocated
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+
+    private final Map<UUID, Block> blocks = new ConcurrentHashMap<>();
+
+    public QueueSequenceAllocator(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${queue.sequence.block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    private static final class Block {
+        long next = 1;
+        long end = 0; // inclusive; next > end means exhausted
+    }
+
+    public long next(UUID eventId) {
+        Block b = blocks.computeIfAbsent(eventId, id -> new Block());
+        synchronized (b) {
+            if (b.next > b.end) {
+                Long allocated = requiresNew.execute(status ->
+                        jdbcTemplate.queryForObject(RESERVE_SQL, Long.class, eventId, blockSize));
+                b.end = allocated;
+                b.next = allocated - blockSize + 1;
+                log.debug("QueueSequenceAllocator: event {} reserved {}..{}", eventId, b.next, b.end);
+            }
+            return b.next++;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.ticketBooking.booking.service;
 
-import com.razorpay.Order;
 import com.ticketBooking.booking.model.Booking;
 import com.ticketBooking.booking.model.EventQueue;
 import com.ticketBooking.booking.repository.BookingRepository;
@@ -10,15 +9,13 @@ import com.ticketBooking.event.repository.EventRepository;
 import com.ticketBooking.user.model.User;
 import com.ticketBooking.user.repository.UserRepository;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -31,24 +28,40 @@ public class QueueService {
     private final PaymentService paymentService;
     private final UserRepository userRepository;
     private final JavaMailSender mailSender;
+    private final BookingHistoryCache historyCache;
+    private final WaitlistIndex waitlistIndex;
+    private final QueueSequenceAllocator sequenceAllocator;
+    private final RefundOutboxService refundOutbox;
 
     public QueueService(EventRepository eventRepository,
                         BookingRepository bookingRepository,
                         EventQueueRepository queueRepository,
                         PaymentService paymentService,
                         UserRepository userRepository,
-                        JavaMailSender mailSender) {
+                        JavaMailSender mailSender,
+                        BookingHistoryCache historyCache,
+                        WaitlistIndex waitlistIndex,
+                        QueueSequenceAllocator sequenceAllocator,
+                        RefundOutboxService refundOutbox) {
         this.eventRepository = eventRepository;
         this.bookingRepository = bookingRepository;
         this.queueRepository = queueRepository;
         this.paymentService = paymentService;
         this.userRepository = userRepository;
         this.mailSender = mailSender;
+        this.historyCache = historyCache;
+        this.waitlistIndex = waitlistIndex;
+        this.sequenceAllocator = sequenceAllocator;
+        this.refundOutbox = refundOutbox;
     }
 
     /**
      * Join queue — always creates a PENDING booking and a WAITING queue entry.
      * Returns created EventQueue (contains orderId, bookingId, position).
+     *
+     * Admission order is a per-event join sequence number from
+     * QueueSequenceAllocator, so concurrent joiners never share a place.
+     * A user can be in an event's queue only once (unique event_id, user_id).
      */
     @Transactional
     public EventQueue joinQueue(UUID eventId, String email, int amount) throws Exception {
@@ -59,9 +72,11 @@ public class QueueService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found: " + email));
 
+        if (queueRepository.findByEventIdAndUserId(eventId, user.getId()).isPresent())
+            throw new RuntimeException("Already in the queue for this event");
+
         // Create Razorpay order
-        Order order = paymentService.createOrder(amount);
-        String orderId = order.get("id");
+        String orderId = paymentService.createOrder(amount).id();
 
         // Create booking (initially pending)
         Booking booking = Booking.builder()
@@ -74,6 +89,7 @@ public class QueueService {
                 .createdAt(java.time.LocalDateTime.now())
                 .build();
         bookingRepository.save(booking);
+        historyCache.invalidate(user.getId());
 
         // Prepare queue entry (always WAITING)
         EventQueue queueEntry = new EventQueue();
@@ -84,14 +100,19 @@ public class QueueService {
         queueEntry.setUserEmail(email);
         queueEntry.setOrderId(orderId);
         queueEntry.setCreatedAt(LocalDateTime.now());
+        queueEntry.setJoinSeq(sequenceAllocator.next(eventId));
 
-
-        long waiting = queueRepository.countByEventIdAndStatus(eventId, "WAITING");
-        int pos = (int) waiting + 1;
+        // position is a snapshot for the response; the live rank is in WaitlistIndex
+        int pos = waitlistIndex.add(eventId, booking.getBookingId(), queueEntry.getJoinSeq());
 
         queueEntry.setStatus("WAITING");
         queueEntry.setPosition(pos);
-        queueRepository.save(queueEntry);
+        try {
+            queueRepository.saveAndFlush(queueEntry);
+        } catch (DataIntegrityViolationException dup) {
+            // a concurrent join of the same user won the unique (event_id, user_id)
+            throw new RuntimeException("Already in the queue for this event");
+        }
 
         sendEmail(email, "Added to Queue - " + event.getName(),
                 "You were added to the waiting list.\nPosition #" + pos);
@@ -119,144 +140,23 @@ public class QueueService {
         Booking booking = bookingRepository.findById(queue.getBookingId())
                 .orElseThrow(() -> new RuntimeException("Booking linked to queue not found"));
 
+        // a waiter who already paid gets the money back
+        refundOutbox.enqueue(booking.getBookingId(), booking.getOrderId(), booking.getPaymentId(),
+                booking.getAmount() != null ? booking.getAmount() * 100 : null, "CANCELLED",
+                RefundOutboxService.cancelKey(booking.getBookingId()));
+
         queueRepository.delete(queue);
         bookingRepository.delete(booking);
+        historyCache.invalidate(user.getId());
+        waitlistIndex.remove(eventId, booking.getBookingId());
 
         sendEmail(email, "Queue Cancelled", "You have been removed from the waiting list for event " + eventId);
-        reindexQueuePositions(eventId);
-    }
-
-    /**
-     * Auto-book next waiting user (called after a confirmed booking cancellation).
-     * This method atomically decrements available slots and confirms the queued booking,
-     * generates QR and notifies the user.
-     */
-   @Transactional
-public void autoBookNextUser(UUID eventId) {
-    Logger log = LoggerFactory.getLogger(getClass());
-
-    Optional<EventQueue> nextOpt = queueRepository.findFirstByEventIdAndStatusOrderByPositionAsc(eventId, "WAITING");
-    if (nextOpt.isEmpty()) {
-        log.debug("autoBookNextUser: no waiting queue for event {}", eventId);
-        return;
-    }
-
-    EventQueue next = nextOpt.get();
-
-    // Try to atomically decrement the available slot that the cancel incremented
-    int dec;
-    try {
-        dec = eventRepository.decrementAvailableSlotsIfPresent(eventId);
-    } catch (Exception e) {
-        log.error("autoBookNextUser: failed decrementAvailableSlots for event {}", eventId, e);
-        return;
-    }
-
-    if (dec != 1) {
-        // Could not reserve slot — leave user WAITING
-        log.info("autoBookNextUser: couldn't reserve slot for event {} (decrement returned {})", eventId, dec);
-        return;
-    }
-
-    // We reserved a slot. If anything goes wrong from this point, we must try to restore slot.
-    boolean slotReserved = true;
-    try {
-        // Avoid throwing for missing linked booking
-        Booking pendingBooking = bookingRepository.findById(next.getBookingId()).orElse(null);
-        if (pendingBooking == null) {
-            log.warn("autoBookNextUser: linked booking not found: {} — deleting queue entry and restoring slot",
-                    next.getBookingId());
-            // remove or mark as invalid so it won't block queue
-            try {
-                queueRepository.delete(next);
-            } catch (Exception delEx) {
-                log.error("autoBookNextUser: failed to delete invalid queue entry {}", next.getEventId(), delEx);
-            }
-            // restore reserved slot
-            try {
-                eventRepository.incrementAvailableSlots(eventId);
-                slotReserved = false;
-            } catch (Exception incEx) {
-                log.warn("autoBookNextUser: failed to restore slot for event {}", eventId, incEx);
-            }
-            reindexQueuePositions(eventId);
-            return;
-        }
-
-        // Idempotent: if already confirmed, just update queue info
-        if ("CONFIRMED".equalsIgnoreCase(pendingBooking.getStatus())) {
-            next.setStatus("BOOKED");
-            next.setPosition(0);
-            queueRepository.save(next);
-            reindexQueuePositions(eventId);
-            return;
-        }
-
-        // Confirm booking
-        pendingBooking.setStatus("CONFIRMED");
-        if (next.getPaymentId() != null) {
-            pendingBooking.setPaymentId(next.getPaymentId());
-        }
-
-        // Generate QR payload & PNG (base64) — this can fail; catch but don't abort
-        try {
-            String qrText = "Booking ID: " + pendingBooking.getBookingId()
-                    + "\nEvent ID: " + pendingBooking.getEventId()
-                    + "\nUser ID: " + pendingBooking.getUserId();
-            String qrBase64 = QRCodeGenerator.generateQRCodeBase64(qrText);
-            pendingBooking.setQrPayload(qrText);
-            pendingBooking.setQrCodeUrl(qrBase64);
-        } catch (Exception qrEx) {
-            log.warn("autoBookNextUser: QR generation failed for booking {} — continuing without QR",
-                    pendingBooking.getBookingId(), qrEx);
-        }
-
-        bookingRepository.save(pendingBooking);
-
-        next.setStatus("BOOKED");
-        next.setPosition(0);
-        queueRepository.save(next);
-
-        // notify (catch mail exceptions so they don't abort TX)
-        try {
-            sendEmail(next.getUserEmail(), "Auto-booked for " + pendingBooking.getEventId(),
-                    "You have been auto-booked. Booking ID: " + pendingBooking.getBookingId());
-        } catch (Exception mailEx) {
-            log.error("autoBookNextUser: failed to send auto-book email for booking {}", pendingBooking.getBookingId(),
-                    mailEx);
-            // don't rethrow
-        }
-
-        reindexQueuePositions(eventId);
-
-    } catch (Exception e) {
-        // Defensive: if any unexpected exception happens after we reserved slot,
-        // try best-effort to restore the slot and keep queue consistent.
-        log.error("autoBookNextUser: unexpected error for event {}, performing cleanup", eventId, e);
-        if (slotReserved) {
-            try {
-                eventRepository.incrementAvailableSlots(eventId);
-            } catch (Exception incEx) {
-                log.warn("autoBookNextUser: failed to restore available slot for event {}", eventId, incEx);
-            }
-        }
-        // do not rethrow — method should be resilient
-    }
-}
-
-    @Transactional
-    public void reindexQueuePositions(UUID eventId) {
-        List<EventQueue> waiting = queueRepository.findByEventIdAndStatusOrderByCreatedAtAsc(eventId, "WAITING");
-        int pos = 1;
-        for (EventQueue q : waiting) {
-            q.setPosition(pos++);
-            queueRepository.save(q);
-        }
     }
 
+    /** Current 1-based place in the waitlist, 0 once booked, -1 if never queued. */
     public int getQueuePosition(UUID eventId, String email) {
         Optional<EventQueue> opt = queueRepository.findByEventIdAndUserEmail(eventId, email);
-        return opt.map(EventQueue::getPosition).orElse(-1);
+        return opt.map(q -> waitlistIndex.rank(eventId, q.getBookingId())).orElse(-1);
     }
 
     private void sendEmail(String to, String subject, String body) {
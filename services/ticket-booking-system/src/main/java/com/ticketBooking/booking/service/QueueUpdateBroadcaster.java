@@ -0,0 +1,199 @@
+package com.ticketBooking.booking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes queue position, queue length and availability to Server-Sent Event
+ * subscribers instead of having them poll the position and count endpoints.
+ *
+ * Once per tick every event with subscribers is checked against its
+ * WaitlistIndex version and SlotInventory count; only if one moved are the
+ * subscribers' ranks recomputed (in memory) and those whose view changed get
+ * an update. Each connection buffers only its latest update, so a slow client
+ * skips intermediate values instead of queueing them. Sends run on virtual
+ * threads and only while there is something to write; an idle connection
+ * holds no thread.
+ *
+ * Streams are for signed-in users only, and each user may hold a few at a
+ * time, so one client cannot use up the global connection limit.
+ */
+@Component
+public class QueueUpdateBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(QueueUpdateBroadcaster.class);
+
+    private final WaitlistIndex waitlistIndex;
+    private final SlotInventory slotInventory;
+    private final long timeoutMs;
+    private final int maxConnections;
+    private final int maxPerUser;
+
+    private final Map<UUID, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Map<String, Integer> perUser = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public QueueUpdateBroadcaster(WaitlistIndex waitlistIndex,
+                                  SlotInventory slotInventory,
+                                  @Value("${queue.stream.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${queue.stream.max-connections:50000}") int maxConnections,
+                                  @Value("${queue.stream.max-per-user:4}") int maxPerUser) {
+        this.waitlistIndex = waitlistIndex;
+        this.slotInventory = slotInventory;
+        this.timeoutMs = timeoutMs;
+        this.maxConnections = maxConnections;
+        this.maxPerUser = maxPerUser;
+    }
+
+    /** What a subscriber sees; position is 0 once booked or when not queued. */
+    public record Update(int position, int queueCount, int available) {
+    }
+
+    private static final class Topic {
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        long version = -1;
+        int available = -1;
+    }
+
+    private static final class Subscriber {
+        final UUID eventId;
+        final UUID bookingId; // null: availability and queue length only
+        final String user;
+        final SseEmitter emitter;
+        final AtomicReference<Update> pending = new AtomicReference<>();
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile Update last; // last update handed to the sender
+
+        Subscriber(UUID eventId, UUID bookingId, String user, SseEmitter emitter) {
+            this.eventId = eventId;
+            this.bookingId = bookingId;
+            this.user = user;
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Open a stream for an event. With a bookingId the updates carry that
+     * booking's live queue position. The current state is sent right away.
+     */
+    public SseEmitter subscribe(UUID eventId, UUID bookingId, String user) {
+        boolean[] full = new boolean[1];
+        perUser.compute(user, (u, n) -> {
+            int open = n == null ? 0 : n;
+            full[0] = open >= maxPerUser;
+            return full[0] ? n : open + 1;
+        });
+        if (full[0])
+            throw new RuntimeException("Too many live connections for this user, please close one first");
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            release(user);
+            throw new RuntimeException("Too many live connections, please poll instead");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(eventId, bookingId, user, emitter);
+        emitter.onCompletion(() -> unsubscribe(s));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(s));
+
+        topics.compute(eventId, (id, t) -> {
+            Topic topic = t != null ? t : new Topic();
+            topic.subscribers.add(s);
+            return topic;
+        });
+        offer(s, snapshot(s, waitlistIndex.size(eventId), slotInventory.available(eventId)));
+        return emitter;
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    @Scheduled(fixedDelayString = "${queue.stream.tick-ms:500}")
+    public void tick() {
+        for (Map.Entry<UUID, Topic> e : topics.entrySet()) {
+            UUID eventId = e.getKey();
+            Topic topic = e.getValue();
+            long version = waitlistIndex.version(eventId);
+            int available = slotInventory.available(eventId);
+            if (version == topic.version && available == topic.available)
+                continue;
+            topic.version = version;
+            topic.available = available;
+
+            int count = waitlistIndex.size(eventId);
+            for (Subscriber s : topic.subscribers) {
+                Update u = snapshot(s, count, available);
+                if (!u.equals(s.last))
+                    offer(s, u);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        topics.values().forEach(t -> t.subscribers.forEach(s -> s.emitter.complete()));
+        senders.shutdown();
+    }
+
+    private Update snapshot(Subscriber s, int count, int available) {
+        int position = s.bookingId == null ? 0 : waitlistIndex.rank(s.eventId, s.bookingId);
+        return new Update(position, count, available);
+    }
+
+    // replace whatever is still unsent and make sure one sender is draining
+    private void offer(Subscriber s, Update u) {
+        s.last = u;
+        s.pending.set(u);
+        if (s.sending.compareAndSet(false, true))
+            senders.execute(() -> drain(s));
+    }
+
+    private void drain(Subscriber s) {
+        try {
+            Update u;
+            while ((u = s.pending.getAndSet(null)) != null)
+                s.emitter.send(SseEmitter.event().name("queue").data(u));
+        } catch (Exception ex) {
+            log.debug("QueueUpdateBroadcaster: dropping subscriber of event {}: {}", s.eventId, ex.getMessage());
+            s.emitter.completeWithError(ex);
+            unsubscribe(s);
+            return;
+        } finally {
+            s.sending.set(false);
+        }
+        // an update may have arrived between the last poll and releasing the flag
+        if (s.pending.get() != null && s.sending.compareAndSet(false, true))
+            senders.execute(() -> drain(s));
+    }
+
+    private void unsubscribe(Subscriber s) {
+        Topic topic = topics.get(s.eventId);
+        if (topic != null && topic.subscribers.remove(s)) {
+            connections.decrementAndGet();
+            release(s.user);
+        }
+        topics.computeIfPresent(s.eventId, (id, t) -> t.subscribers.isEmpty() ? null : t);
+    }
+
+    private void release(String user) {
+        perUser.computeIfPresent(user, (u, n) -> n > 1 ? n - 1 : null);
+    }
+}
@@ -0,0 +1,164 @@
+package com.ticketBooking.booking.service;
+
+import com.razorpay.Order;
+import com.razorpay.RazorpayClient;
+import com.razorpay.RazorpayException;
+import com.razorpay.Refund;
+
+import jakarta.annotation.PreDestroy;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The one Razorpay client of the application.
+ *
+ * The SDK builds a fresh OkHttp client (and connection pool) in every
+ * RazorpayClient constructor, so a single client is created here and shared.
+ * Calls run on virtual threads and hand back a CompletableFuture; they are
+ * guarded by a bulkhead (at most max-concurrent in flight, the rest are
+ * refused at once), a timeout, and a circuit breaker that stops calling a
+ * provider that keeps failing or timing out.
+ *
+ * A timed-out call may still have taken effect at Razorpay.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "razorpay", matchIfMissing = true)
+public class RazorpayGateway implements PaymentGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(RazorpayGateway.class);
+
+    /** A call against the shared client. */
+    @FunctionalInterface
+    public interface Call<T> {
+        T apply(RazorpayClient client) throws RazorpayException;
+    }
+
+    private final RazorpayClient client;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final long timeoutMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RazorpayGateway(@Value("${RZP_KEY_ID}") String keyId,
+                           @Value("${RZP_KEY_SECRET}") String keySecret,
+                           @Value("${payment.gateway.max-concurrent:64}") int maxConcurrent,
+                           @Value("${payment.gateway.timeout-ms:10000}") long timeoutMs,
+                           @Value("${payment.gateway.failure-threshold:5}") int failureThreshold,
+                           @Value("${payment.gateway.open-ms:30000}") long openMs) throws RazorpayException {
+        this.client = new RazorpayClient(keyId, keySecret);
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.breaker = new CircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMs));
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public CompletableFuture<GatewayOrder> createOrder(int amountPaise) {
+        JSONObject orderRequest = new JSONObject();
+        orderRequest.put("amount", amountPaise);
+        orderRequest.put("currency", "INR");
+        orderRequest.put("payment_capture", 1);
+
+        return submit("order", client -> {
+            Order order = client.orders.create(orderRequest);
+            return new GatewayOrder(order.get("id"), amountPaise);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<GatewayPayment>> findPayments(String orderId) {
+        return submit("payment lookup", client -> client.orders.fetchPayments(orderId).stream()
+                .map(p -> new GatewayPayment(p.get("id"), orderId, p.get("status"),
+                        ((Number) p.get("amount")).intValue(), ((Number) p.get("amount_refunded")).intValue()))
+                .toList());
+    }
+
+    @Override
+    public CompletableFuture<GatewayRefund> refund(String paymentId, Integer amountPaise, String idempotencyKey) {
+        JSONObject refundRequest = new JSONObject();
+        if (amountPaise != null)
+            refundRequest.put("amount", amountPaise);
+        refundRequest.put("speed", "normal");
+        refundRequest.put("receipt", idempotencyKey);
+
+        return submit("refund", client -> toRefund(client.payments.refund(paymentId, refundRequest), paymentId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<GatewayRefund>> findRefund(String paymentId, String idempotencyKey) {
+        return submit("refund lookup", client -> client.payments.fetchAllRefunds(paymentId).stream()
+                .filter(r -> idempotencyKey.equals(r.toJson().optString("receipt")))
+                .findFirst()
+                .map(r -> toRefund(r, paymentId)));
+    }
+
+    private static GatewayRefund toRefund(Refund refund, String paymentId) {
+        return new GatewayRefund(refund.get("id"), paymentId, ((Number) refund.get("amount")).intValue());
+    }
+
+    /**
+     * Run a call on a virtual thread. The future fails with a RuntimeException
+     * if the call fails, or at once if the bulkhead is full or the circuit is
+     * open, and with a TimeoutException after timeout-ms.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Call<T> call) {
+        if (!bulkhead.tryAcquire())
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Payment provider busy, please retry"));
+        if (!breaker.allow(System.nanoTime())) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Payment provider unavailable, please retry shortly"));
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                T value = call.apply(client);
+                if (result.complete(value))
+                    breaker.success();
+            } catch (Exception ex) {
+                if (result.completeExceptionally(new RuntimeException("Razorpay " + operation + " failed: "
+                        + ex.getMessage(), ex))) {
+                    // a rejected request still means Razorpay is up
+                    if (PaymentGateway.isRejected(ex))
+                        breaker.success();
+                    else
+                        breaker.failure(System.nanoTime());
+                }
+            } finally {
+                bulkhead.release();
+            }
+        });
+        return result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((value, ex) -> {
+            if (ex instanceof TimeoutException) {
+                task.cancel(true);
+                breaker.failure(System.nanoTime());
+                log.warn("RazorpayGateway: {} timed out after {} ms", operation, timeoutMs);
+            }
+        });
+    }
+
+    public boolean isOpen() {
+        return breaker.isOpen();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,220 @@
+package com.ticketBooking.booking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refunds owed to customers, kept in the refund_outbox table.
+ *
+ * enqueue() adds a row inside the caller's transaction, next to the booking
+ * becoming FAILED_NO_SLOTS or CANCELLED, so a refund exists exactly when the
+ * status change commits. The worker claims due rows in batches with FOR
+ * UPDATE SKIP LOCKED (a claim pushes next_attempt_at out by a lease, so a
+ * crashed attempt is picked up again once it lapses) and sends them through
+ * PaymentService with at most max-concurrent calls in flight. Each row has
+ * an idempotency key; a retry first asks the gateway for a refund already
+ * made under it. Failures are retried with exponential backoff and jitter,
+ * forever; only requests the gateway rejects are parked as FAILED.
+ */
+@Service
+public class RefundOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefundOutboxService.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO refund_outbox (id, booking_id, order_id, payment_id, amount_paise, reason, idempotency_key,
+                                       status, attempts, next_attempt_at, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)
+            ON CONFLICT (idempotency_key) DO NOTHING
+            """;
+    private static final String CLAIM_SQL = """
+            UPDATE refund_outbox SET attempts = attempts + 1, next_attempt_at = ?, updated_at = ?
+            WHERE id IN (SELECT id FROM refund_outbox
+                         WHERE status = 'PENDING' AND next_attempt_at <= ?
+                         ORDER BY next_attempt_at
+                         LIMIT ?
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING id, payment_id, amount_paise, idempotency_key, attempts
+            """;
+    private static final String DONE_SQL =
+            "UPDATE refund_outbox SET status = 'DONE', refund_id = ?, last_error = NULL, updated_at = ? WHERE id = ?";
+    private static final String CONFIRMED_SQL = """
+            UPDATE refund_outbox SET status = 'DONE', refund_id = ?, last_error = NULL, updated_at = ?
+            WHERE idempotency_key = ? AND status <> 'DONE'
+            """;
+    private static final String RETRY_SQL =
+            "UPDATE refund_outbox SET next_attempt_at = ?, last_error = ?, updated_at = ? WHERE id = ?";
+    private static final String FAILED_SQL =
+            "UPDATE refund_outbox SET status = 'FAILED', last_error = ?, updated_at = ? WHERE id = ?";
+
+    private final PaymentService paymentService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxConcurrent;
+    private final long leaseMs;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    public RefundOutboxService(PaymentService paymentService,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${refund.outbox.batch-size:100}") int batchSize,
+                               @Value("${refund.outbox.max-concurrent:8}") int maxConcurrent,
+                               @Value("${refund.outbox.lease-ms:120000}") long leaseMs,
+                               @Value("${refund.outbox.backoff-base-ms:5000}") long backoffBaseMs,
+                               @Value("${refund.outbox.backoff-max-ms:3600000}") long backoffMaxMs) {
+        this.paymentService = paymentService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxConcurrent = maxConcurrent;
+        this.leaseMs = leaseMs;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    /** Idempotency key of the refund for one cancelled booking. */
+    public static String cancelKey(UUID bookingId) {
+        return "cx_" + bookingId.toString().replace("-", "");
+    }
+
+    /** Idempotency key of the refund of a whole payment that found no slot (or no order to book). */
+    public static String noSlotKey(String paymentId) {
+        return "ns_" + paymentId;
+    }
+
+    /**
+     * Owe a refund. Must run inside the transaction that changes the booking;
+     * a second enqueue with the same key is ignored.
+     *
+     * @param bookingId null for a payment whose order no longer exists
+     * @param amountPaise null refunds whatever is left of the payment
+     * @param reason NO_SLOT, CANCELLED or UNMATCHED
+     */
+    public void enqueue(UUID bookingId, String orderId, String paymentId, Integer amountPaise, String reason,
+                        String idempotencyKey) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException("Refunds must be queued inside the booking's transaction");
+        if (paymentId == null || paymentId.isBlank())
+            return; // nothing was paid
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(INSERT_SQL, UUID.randomUUID(), bookingId, orderId, paymentId, amountPaise, reason,
+                idempotencyKey, now, now);
+    }
+
+    /**
+     * The gateway reported a refund made under this key (refund.processed
+     * webhook), so the row is done even if the attempt that made it never
+     * heard back. Returns false if the key is unknown or already done.
+     */
+    public boolean markRefunded(String idempotencyKey, String refundId) {
+        return jdbcTemplate.update(CONFIRMED_SQL, refundId, Timestamp.valueOf(LocalDateTime.now()), idempotencyKey) > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${refund.outbox.poll-ms:1000}")
+    public void drain() {
+        AtomicInteger done = new AtomicInteger(), retrying = new AtomicInteger(), failed = new AtomicInteger();
+        while (true) {
+            List<Map<String, Object>> claimed = claim();
+            if (claimed.isEmpty())
+                break;
+            send(claimed, done, retrying, failed);
+            if (claimed.size() < batchSize)
+                break;
+        }
+        if (done.get() + retrying.get() + failed.get() > 0)
+            log.info("RefundOutboxService: {} refunded, {} to retry, {} rejected", done, retrying, failed);
+    }
+
+    private List<Map<String, Object>> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForList(CLAIM_SQL,
+                Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000)), Timestamp.valueOf(now),
+                Timestamp.valueOf(now), batchSize));
+    }
+
+    private void send(List<Map<String, Object>> rows, AtomicInteger done, AtomicInteger retrying,
+                      AtomicInteger failed) {
+        Semaphore inFlight = new Semaphore(maxConcurrent);
+        List<CompletableFuture<Void>> attempts = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            UUID id = (UUID) row.get("id");
+            String paymentId = (String) row.get("payment_id");
+            Integer amountPaise = (Integer) row.get("amount_paise");
+            String key = (String) row.get("idempotency_key");
+            int attempt = ((Number) row.get("attempts")).intValue();
+
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<PaymentGateway.GatewayRefund> refund;
+            try {
+                // an earlier attempt may have gone through without us hearing back
+                refund = attempt > 1
+                        ? paymentService.findRefundAsync(paymentId, key).thenCompose(found -> found
+                                .map(CompletableFuture::completedFuture)
+                                .orElseGet(() -> paymentService.refundPaymentAsync(paymentId, amountPaise, key)))
+                        : paymentService.refundPaymentAsync(paymentId, amountPaise, key);
+            } catch (RuntimeException ex) {
+                refund = CompletableFuture.failedFuture(ex);
+            }
+            attempts.add(refund.handle((r, ex) -> {
+                try {
+                    record(id, attempt, r, ex, done, retrying, failed);
+                } catch (Exception dbError) {
+                    // the lease lapses and the refund is looked up again
+                    log.warn("RefundOutboxService: could not record outcome of refund {}", id, dbError);
+                } finally {
+                    inFlight.release();
+                }
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(attempts.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void record(UUID id, int attempt, PaymentGateway.GatewayRefund refund, Throwable ex,
+                        AtomicInteger done, AtomicInteger retrying, AtomicInteger failed) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (ex == null) {
+            jdbcTemplate.update(DONE_SQL, refund.id(), now, id);
+            done.incrementAndGet();
+        } else if (PaymentGateway.isRejected(ex)) {
+            jdbcTemplate.update(FAILED_SQL, String.valueOf(ex.getMessage()), now, id);
+            failed.incrementAndGet();
+            log.error("RefundOutboxService: refund {} rejected by the gateway: {}", id, ex.getMessage());
+        } else {
+            long delay = backoffMs(attempt, backoffBaseMs, backoffMaxMs, ThreadLocalRandom.current().nextDouble());
+            jdbcTemplate.update(RETRY_SQL, Timestamp.valueOf(LocalDateTime.now().plusNanos(delay * 1_000_000)),
+                    String.valueOf(ex.getMessage()), now, id);
+            retrying.incrementAndGet();
+        }
+    }
+
+    /**
+     * Delay before attempt number attempt + 1: base doubled per attempt, capped
+     * at max, scaled into [50%, 100%] by jitter in [0, 1).
+     */
+    static long backoffMs(int attempt, long baseMs, long maxMs, double jitter) {
+        long delay = baseMs << Math.min(Math.max(attempt - 1, 0), 30);
+        if (delay <= 0 || delay > maxMs)
+            delay = maxMs;
+        return (long) (delay * (0.5 + jitter / 2));
+    }
+}
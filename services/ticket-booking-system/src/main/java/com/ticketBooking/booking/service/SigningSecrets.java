@@ -0,0 +1,24 @@
+package com.ticketBooking.booking.service;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HMAC keys for what this service signs itself (QR urls, tickets, admission
+ * tokens). Each has its own required secret: a missing one fails startup,
+ * and the Razorpay key secret is refused so a leaked payment credential
+ * cannot be used to forge any of them.
+ */
+final class SigningSecrets {
+
+    private SigningSecrets() {
+    }
+
+    static SecretKeySpec hmacKey(String name, String secret, String paymentSecret) {
+        if (secret == null || secret.isBlank())
+            throw new IllegalStateException(name + " must be set");
+        if (secret.equals(paymentSecret))
+            throw new IllegalStateException(name + " must not reuse RZP_KEY_SECRET");
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+}
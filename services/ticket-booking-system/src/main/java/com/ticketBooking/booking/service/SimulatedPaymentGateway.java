@@ -0,0 +1,242 @@
+package com.ticketBooking.booking.service;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for Razorpay, active with payment.gateway=simulator.
+ *
+ * Orders, captures and refunds are kept in memory and answered after a
+ * log-normal latency (median and p99 configurable) drawn from a seeded
+ * random, and fail at the configured error rate. A capture stands in for
+ * the customer paying in Checkout; PaymentSimulatorController exposes it.
+ * When a webhook url is set, captures and refunds are also posted there as
+ * Razorpay-style payment.captured / refund.processed events signed with
+ * X-Razorpay-Signature. Nothing leaves the machine otherwise.
+ *
+ * State only grows; it is meant for load-test runs, not long-lived nodes.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "simulator")
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulatedPaymentGateway.class);
+
+    // z-score of the 99th percentile of a standard normal
+    private static final double Z_99 = 2.326;
+
+    private final double medianMs;
+    private final double sigma;
+    private final double errorRate;
+    private final Random random;
+    private final String webhookUrl;
+    private final SecretKeySpec webhookKey;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private final Map<String, SimOrder> orders = new ConcurrentHashMap<>();
+    private final Map<String, SimPayment> payments = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong refunds = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private static final class SimOrder {
+        final int amountPaise;
+        volatile String paymentId;
+
+        SimOrder(int amountPaise) {
+            this.amountPaise = amountPaise;
+        }
+    }
+
+    private record SimPayment(String orderId, int amountPaise, AtomicInteger refundedPaise,
+                              Map<String, GatewayRefund> refunds) {
+    }
+
+    public record Stats(int orders, int payments, long refunds, long injectedErrors) {
+    }
+
+    public SimulatedPaymentGateway(@Value("${payment.simulator.latency-median-ms:80}") double medianMs,
+                                   @Value("${payment.simulator.latency-p99-ms:400}") double p99Ms,
+                                   @Value("${payment.simulator.error-rate:0}") double errorRate,
+                                   @Value("${payment.simulator.seed:42}") long seed,
+                                   @Value("${payment.simulator.webhook-url:}") String webhookUrl,
+                                   @Value("${payment.simulator.webhook-secret:${RZP_WEBHOOK_SECRET:simulator}}") String webhookSecret) {
+        if (medianMs < 0 || p99Ms < medianMs)
+            throw new IllegalArgumentException("Simulator latency needs 0 <= median <= p99");
+        this.medianMs = medianMs;
+        this.sigma = medianMs == 0 ? 0 : Math.log(p99Ms / medianMs) / Z_99;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+        this.webhookUrl = webhookUrl == null || webhookUrl.isBlank() ? null : webhookUrl;
+        this.webhookKey = new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        log.warn("SimulatedPaymentGateway: payments are SIMULATED (median {} ms, p99 {} ms, error rate {})",
+                medianMs, p99Ms, errorRate);
+    }
+
+    @Override
+    public CompletableFuture<GatewayOrder> createOrder(int amountPaise) {
+        return later("order", () -> {
+            String id = "order_sim" + ids.incrementAndGet();
+            orders.put(id, new SimOrder(amountPaise));
+            return new GatewayOrder(id, amountPaise);
+        });
+    }
+
+    /** The customer pays the whole order; returns the payment id. */
+    public CompletableFuture<String> capture(String orderId) {
+        return later("capture", () -> {
+            SimOrder order = orders.get(orderId);
+            if (order == null)
+                throw new RuntimeException("BAD_REQUEST_ERROR: unknown order " + orderId);
+            synchronized (order) {
+                if (order.paymentId != null)
+                    return order.paymentId;
+                order.paymentId = "pay_sim" + ids.incrementAndGet();
+            }
+            payments.put(order.paymentId,
+                    new SimPayment(orderId, order.amountPaise, new AtomicInteger(), new HashMap<>()));
+            webhook("payment.captured", "payment", new JSONObject()
+                    .put("id", order.paymentId)
+                    .put("order_id", orderId)
+                    .put("amount", order.amountPaise)
+                    .put("currency", "INR")
+                    .put("status", "captured"));
+            return order.paymentId;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<GatewayPayment>> findPayments(String orderId) {
+        return later("payment lookup", () -> {
+            SimOrder order = orders.get(orderId);
+            SimPayment payment = order == null || order.paymentId == null ? null : payments.get(order.paymentId);
+            if (payment == null)
+                return List.of();
+            int refunded = payment.refundedPaise().get();
+            return List.of(new GatewayPayment(order.paymentId, orderId,
+                    refunded == payment.amountPaise() ? "refunded" : "captured", payment.amountPaise(), refunded));
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayRefund> refund(String paymentId, Integer amountPaise, String idempotencyKey) {
+        return later("refund", () -> {
+            SimPayment payment = payments.get(paymentId);
+            if (payment == null)
+                throw new RuntimeException("BAD_REQUEST_ERROR: unknown payment " + paymentId);
+            GatewayRefund refund;
+            synchronized (payment) {
+                GatewayRefund earlier = payment.refunds().get(idempotencyKey);
+                if (earlier != null)
+                    return earlier;
+                int left = payment.amountPaise() - payment.refundedPaise().get();
+                int amount = amountPaise != null ? amountPaise : left;
+                if (amount <= 0 || amount > left)
+                    throw new RuntimeException("BAD_REQUEST_ERROR: refund exceeds the captured amount");
+                payment.refundedPaise().addAndGet(amount);
+                refund = new GatewayRefund("rfnd_sim" + ids.incrementAndGet(), paymentId, amount);
+                payment.refunds().put(idempotencyKey, refund);
+            }
+            refunds.incrementAndGet();
+            webhook("refund.processed", "refund", new JSONObject()
+                    .put("id", refund.id())
+                    .put("payment_id", paymentId)
+                    .put("amount", refund.amountPaise())
+                    .put("receipt", idempotencyKey)
+                    .put("status", "processed"));
+            return refund;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<GatewayRefund>> findRefund(String paymentId, String idempotencyKey) {
+        return later("refund lookup", () -> {
+            SimPayment payment = payments.get(paymentId);
+            if (payment == null)
+                return Optional.empty();
+            synchronized (payment) {
+                return Optional.ofNullable(payment.refunds().get(idempotencyKey));
+            }
+        });
+    }
+
+    public Stats stats() {
+        return new Stats(orders.size(), payments.size(), refunds.get(), injectedErrors.get());
+    }
+
+    // answer after a simulated round trip, or fail at the error rate
+    private <T> CompletableFuture<T> later(String operation, Supplier<T> action) {
+        long delayMs;
+        boolean fail;
+        synchronized (random) {
+            delayMs = Math.round(medianMs * Math.exp(sigma * random.nextGaussian()));
+            fail = random.nextDouble() < errorRate;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            if (fail) {
+                injectedErrors.incrementAndGet();
+                throw new RuntimeException("Simulated " + operation + " failure");
+            }
+            return action.get();
+        }, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    private void webhook(String event, String entityName, JSONObject entity) {
+        if (webhookUrl == null)
+            return;
+        JSONObject body = new JSONObject()
+                .put("entity", "event")
+                .put("event", event)
+                .put("created_at", Instant.now().getEpochSecond())
+                .put("payload", new JSONObject().put(entityName, new JSONObject().put("entity", entity)));
+        String json = body.toString();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+                .header("Content-Type", "application/json")
+                .header("X-Razorpay-Event-Id", "evt_sim" + ids.incrementAndGet())
+                .header("X-Razorpay-Signature", sign(json))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+            if (ex != null)
+                log.warn("SimulatedPaymentGateway: webhook {} failed: {}", event, ex.getMessage());
+            else if (response.statusCode() >= 300)
+                log.warn("SimulatedPaymentGateway: webhook {} answered {}", event, response.statusCode());
+        });
+    }
+
+    private String sign(String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(webhookKey);
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to sign webhook", e);
+        }
+    }
+}
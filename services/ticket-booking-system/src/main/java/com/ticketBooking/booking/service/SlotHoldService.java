@@ -0,0 +1,163 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.event.services.SeatMapService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Time-boxed slot holds for PENDING orders.
+ *
+ * A hold is taken out of SlotInventory when the Razorpay order is created,
+ * so the slot is already ours when the user comes back to /verify. Holds
+ * that are never consumed are released in bulk by a hierarchical timing
+ * wheel, one bucket per tick instead of one timer per order.
+ *
+ * For events with a seat map the hold also carries the order's seats, which
+ * go back to the SeatMap together with the slots.
+ */
+@Service
+public class SlotHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(SlotHoldService.class);
+
+    private final SlotInventory slotInventory;
+    private final SeatMapService seatMapService;
+    private final long ttlMs;
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final TimingWheel<Hold> wheel;
+
+    public SlotHoldService(SlotInventory slotInventory,
+                           SeatMapService seatMapService,
+                           @Value("${booking.hold.ttl-seconds:600}") long ttlSeconds,
+                           @Value("${booking.hold.tick-ms:1000}") long tickMs) {
+        this.slotInventory = slotInventory;
+        this.seatMapService = seatMapService;
+        this.ttlMs = ttlSeconds * 1000;
+        this.wheel = new TimingWheel<>(tickMs, 64, System.currentTimeMillis());
+    }
+
+    static final class Hold {
+        final String orderId;
+        final UUID eventId;
+        final int slots;
+        final List<String> seats;
+        final long expiresAt;
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Hold(String orderId, UUID eventId, int slots, List<String> seats, long expiresAt) {
+            this.orderId = orderId;
+            this.eventId = eventId;
+            this.slots = slots;
+            this.seats = seats;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Take slots out of the inventory for an order that is about to be
+     * created. Call {@link #hold} once the order id is known, or
+     * {@link #cancelReservation} if creating the order fails.
+     */
+    public boolean reserve(UUID eventId, int slots) {
+        return slotInventory.tryReserve(eventId, slots);
+    }
+
+    public void cancelReservation(UUID eventId, int slots) {
+        slotInventory.release(eventId, slots);
+    }
+
+    /**
+     * Attach reserved slots (and the seats allocated for them, if any) to an
+     * order and start its TTL. Returns the instant the hold expires.
+     */
+    public Instant hold(String orderId, UUID eventId, int slots, List<String> seats) {
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        Hold hold = new Hold(orderId, eventId, slots, seats == null ? List.of() : seats, expiresAt);
+        holds.put(orderId, hold);
+
+        boolean scheduled;
+        synchronized (wheel) {
+            scheduled = wheel.schedule(hold, expiresAt);
+        }
+        if (!scheduled)
+            expire(List.of(hold));
+        return Instant.ofEpochMilli(expiresAt);
+    }
+
+    /**
+     * Claim the slots held for an order. Returns the number of slots that
+     * were still held (0 if the hold expired or never existed); the held seats
+     * now belong to the order's bookings. Inside a transaction slots and seats
+     * go back if it rolls back.
+     */
+    public int consume(String orderId) {
+        if (orderId == null)
+            return 0;
+        Hold hold = holds.remove(orderId);
+        if (hold == null || !hold.done.compareAndSet(false, true))
+            return 0;
+        TransactionCallbacks.onRollback(() -> {
+            slotInventory.release(hold.eventId, hold.slots);
+            seatMapService.release(hold.eventId, hold.seats);
+        });
+        return hold.slots;
+    }
+
+    /**
+     * Drop a hold and give its slots back (order abandoned or cancelled).
+     */
+    public boolean release(String orderId) {
+        if (orderId == null)
+            return false;
+        Hold hold = holds.remove(orderId);
+        if (hold == null || !hold.done.compareAndSet(false, true))
+            return false;
+        slotInventory.release(hold.eventId, hold.slots);
+        seatMapService.release(hold.eventId, hold.seats);
+        return true;
+    }
+
+    public boolean isHeld(String orderId) {
+        Hold hold = orderId == null ? null : holds.get(orderId);
+        return hold != null && !hold.done.get();
+    }
+
+    @Scheduled(fixedDelayString = "${booking.hold.tick-ms:1000}")
+    public void expireDue() {
+        List<Hold> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        if (!due.isEmpty())
+            expire(due);
+    }
+
+    private void expire(List<Hold> due) {
+        // one release per event for the whole batch
+        Map<UUID, Integer> freed = new HashMap<>();
+        for (Hold hold : due) {
+            if (!hold.done.compareAndSet(false, true))
+                continue; // already consumed or released
+            holds.remove(hold.orderId, hold);
+            freed.merge(hold.eventId, hold.slots, Integer::sum);
+            seatMapService.release(hold.eventId, hold.seats);
+        }
+        freed.forEach(slotInventory::release);
+        if (!freed.isEmpty())
+            log.info("SlotHoldService: expired holds released {} slots across {} events",
+                    freed.values().stream().mapToInt(Integer::intValue).sum(), freed.size());
+    }
+}
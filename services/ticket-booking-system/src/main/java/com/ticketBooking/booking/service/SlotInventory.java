@@ -0,0 +1,206 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.event.model.Event;
+import com.ticketBooking.event.repository.EventRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory slot counters sitting in front of events.available_slots.
+ *
+ * Reservations are a CAS on a per-event AtomicInteger, so confirmations no
+ * longer queue on the events row lock. The accumulated deltas are written
+ * back to the database in one JDBC batch every flush interval.
+ *
+ * On startup available_slots is recomputed from the bookings ledger
+ * (total_slots - CONFIRMED bookings) so deltas lost by a crash between two
+ * flushes cannot leave the column out of step.
+ *
+ * The counters are process-local: this assumes a single booking node.
+ */
+@Component
+public class SlotInventory {
+
+    private static final Logger log = LoggerFactory.getLogger(SlotInventory.class);
+
+    private static final String FLUSH_SQL =
+            "UPDATE events SET available_slots = COALESCE(available_slots, 0) + ? WHERE event_id = ?";
+
+    private final EventRepository eventRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, Counter> counters = new ConcurrentHashMap<>();
+
+    public SlotInventory(EventRepository eventRepository, JdbcTemplate jdbcTemplate) {
+        this.eventRepository = eventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    static final class Counter {
+        final AtomicInteger available;
+        final AtomicInteger unflushed = new AtomicInteger(); // delta not yet written to events
+
+        Counter(int available) {
+            this.available = new AtomicInteger(available);
+        }
+    }
+
+    /**
+     * Rebuild available_slots from the bookings table and load the counters.
+     */
+    @PostConstruct
+    public void reconcile() {
+        int fixed = eventRepository.reconcileAvailableSlots();
+        counters.clear();
+        for (Event e : eventRepository.findAll()) {
+            put(e.getEventId(), e.getAvailableSlots() != null ? e.getAvailableSlots() : 0);
+        }
+        log.info("SlotInventory: reconciled {} events, loaded {} counters", fixed, counters.size());
+    }
+
+    /**
+     * Reserve n slots. Returns false (and reserves nothing) if fewer than n are
+     * left. Inside a transaction the slots are handed back if it rolls back.
+     */
+    public boolean tryReserve(UUID eventId, int n) {
+        Counter c = counter(eventId);
+        if (c == null)
+            return false;
+
+        int cur;
+        do {
+            cur = c.available.get();
+            if (cur < n)
+                return false;
+        } while (!c.available.compareAndSet(cur, cur - n));
+
+        c.unflushed.addAndGet(-n);
+        TransactionCallbacks.onRollback(() -> add(c, n));
+        return true;
+    }
+
+    /**
+     * Reserve as many of n slots as are left, in one CAS. Returns the number
+     * actually reserved (0..n). Used to grant a whole confirmation group at once.
+     */
+    public int tryReserveUpTo(UUID eventId, int n) {
+        Counter c = counter(eventId);
+        if (c == null || n <= 0)
+            return 0;
+
+        int cur, take;
+        do {
+            cur = c.available.get();
+            take = Math.min(cur, n);
+            if (take <= 0)
+                return 0;
+        } while (!c.available.compareAndSet(cur, cur - take));
+
+        c.unflushed.addAndGet(-take);
+        int taken = take;
+        TransactionCallbacks.onRollback(() -> add(c, taken));
+        return taken;
+    }
+
+    /**
+     * Give n slots back (cancellation, failed confirm). Inside a transaction
+     * the slots are taken away again if it rolls back.
+     */
+    public void release(UUID eventId, int n) {
+        Counter c = counter(eventId);
+        if (c == null)
+            return;
+        add(c, n);
+        TransactionCallbacks.onRollback(() -> add(c, -n));
+    }
+
+    /**
+     * Apply a capacity change (organizer changed total slots or the seat map).
+     * delta may be negative; the counter is allowed to go below zero, in which
+     * case nothing can be reserved until enough slots are released.
+     */
+    public void adjust(UUID eventId, int delta) {
+        Counter c = counter(eventId);
+        if (c == null || delta == 0)
+            return;
+        add(c, delta);
+        TransactionCallbacks.onRollback(() -> add(c, -delta));
+    }
+
+    public int available(UUID eventId) {
+        Counter c = counter(eventId);
+        return c == null ? 0 : Math.max(c.available.get(), 0);
+    }
+
+    /**
+     * Write pending deltas to events.available_slots in a single batch.
+     */
+    @Scheduled(fixedDelayString = "${inventory.flush-interval-ms:500}")
+    public void flush() {
+        List<UUID> ids = new ArrayList<>();
+        List<Object[]> args = new ArrayList<>();
+        for (Map.Entry<UUID, Counter> e : counters.entrySet()) {
+            int delta = e.getValue().unflushed.getAndSet(0);
+            if (delta != 0) {
+                ids.add(e.getKey());
+                args.add(new Object[] { delta, e.getKey() });
+            }
+        }
+        if (args.isEmpty())
+            return;
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, args);
+        } catch (Exception ex) {
+            // put the deltas back so the next flush retries them
+            for (int i = 0; i < ids.size(); i++) {
+                Counter c = counters.get(ids.get(i));
+                if (c != null)
+                    c.unflushed.addAndGet((Integer) args.get(i)[0]);
+            }
+            log.warn("SlotInventory: flush of {} events failed, will retry", ids.size(), ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /** Seed a counter directly (startup load, tests, benchmarks). */
+    void put(UUID eventId, int available) {
+        counters.put(eventId, new Counter(available));
+    }
+
+    private void add(Counter c, int n) {
+        c.available.addAndGet(n);
+        c.unflushed.addAndGet(n);
+    }
+
+    private Counter counter(UUID eventId) {
+        Counter c = counters.get(eventId);
+        if (c != null)
+            return c;
+
+        // event created after startup: load it once from the database
+        Event event = eventRepository.findById(eventId).orElse(null);
+        if (event == null)
+            return null;
+        int slots = event.getAvailableSlots() != null ? event.getAvailableSlots() : 0;
+        return counters.computeIfAbsent(eventId, id -> new Counter(slots));
+    }
+}
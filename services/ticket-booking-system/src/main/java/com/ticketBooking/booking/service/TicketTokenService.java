@@ -0,0 +1,166 @@
+package com.ticketBooking.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact signed ticket tokens, the text inside a ticket QR.
+ *
+ * Layout (53 bytes): version (1) | bookingId (16) | eventId (16) |
+ * issued-at epoch seconds (4) | HMAC-SHA256 truncated to 16 bytes.
+ * The bytes are base45-encoded (RFC 9285) so the QR can use alphanumeric
+ * mode: "QT:" + 80 chars fits a version 4 code, where the old three-line
+ * text needed version 7.
+ *
+ * The MAC key is derived per event from the master secret, so a gate
+ * device can be given the key of its own event and check tokens with no
+ * I/O, without being able to mint tickets for other events.
+ */
+@Service
+public class TicketTokenService {
+
+    public static final String PREFIX = "QT:";
+
+    private static final byte VERSION = 1;
+    private static final int BODY_LEN = 1 + 16 + 16 + 4;
+    private static final int MAC_LEN = 16;
+    private static final String BASE45 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+    public record Ticket(UUID bookingId, UUID eventId, Instant issuedAt) {
+    }
+
+    private final SecretKeySpec masterKey;
+    private final Map<UUID, SecretKeySpec> eventKeys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public TicketTokenService(@Value("${TICKET_SIGNING_SECRET}") String secret,
+                              @Value("${RZP_KEY_SECRET:}") String paymentSecret) {
+        this.masterKey = SigningSecrets.hmacKey("TICKET_SIGNING_SECRET", secret, paymentSecret);
+    }
+
+    public boolean isToken(String text) {
+        return text != null && text.startsWith(PREFIX);
+    }
+
+    public String issue(UUID bookingId, UUID eventId) {
+        ByteBuffer buf = ByteBuffer.allocate(BODY_LEN + MAC_LEN);
+        buf.put(VERSION)
+                .putLong(bookingId.getMostSignificantBits()).putLong(bookingId.getLeastSignificantBits())
+                .putLong(eventId.getMostSignificantBits()).putLong(eventId.getLeastSignificantBits())
+                .putInt((int) Instant.now().getEpochSecond());
+        byte[] bytes = buf.array();
+        System.arraycopy(mac(eventId, bytes), 0, bytes, BODY_LEN, MAC_LEN);
+        return PREFIX + base45Encode(bytes);
+    }
+
+    /**
+     * Decode and authenticate a token. Returns null if it is malformed or the
+     * signature does not match.
+     */
+    public Ticket verify(String token) {
+        if (!isToken(token))
+            return null;
+        // ' ' is a base45 digit, so only strip the line ending a scanner may add
+        byte[] bytes = base45Decode(token.substring(PREFIX.length()).replaceAll("[\\r\\n]+$", ""));
+        if (bytes == null || bytes.length != BODY_LEN + MAC_LEN || bytes[0] != VERSION)
+            return null;
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes, 1, BODY_LEN - 1);
+        UUID bookingId = new UUID(buf.getLong(), buf.getLong());
+        UUID eventId = new UUID(buf.getLong(), buf.getLong());
+        Instant issuedAt = Instant.ofEpochSecond(Integer.toUnsignedLong(buf.getInt()));
+
+        byte[] expected = Arrays.copyOf(mac(eventId, bytes), MAC_LEN);
+        byte[] actual = Arrays.copyOfRange(bytes, BODY_LEN, BODY_LEN + MAC_LEN);
+        if (!MessageDigest.isEqual(expected, actual))
+            return null;
+        return new Ticket(bookingId, eventId, issuedAt);
+    }
+
+    /** Per-event MAC key, for handing to that event's gate devices. */
+    public byte[] eventKey(UUID eventId) {
+        return key(eventId).getEncoded();
+    }
+
+    private SecretKeySpec key(UUID eventId) {
+        return eventKeys.computeIfAbsent(eventId, id -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(masterKey);
+                byte[] k = mac.doFinal(("event:" + id).getBytes(StandardCharsets.US_ASCII));
+                return new SecretKeySpec(k, "HmacSHA256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private byte[] mac(UUID eventId, byte[] bytes) {
+        try {
+            Mac mac = macs.get();
+            mac.init(key(eventId));
+            mac.update(bytes, 0, BODY_LEN);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String base45Encode(byte[] in) {
+        StringBuilder sb = new StringBuilder(in.length / 2 * 3 + 2);
+        for (int i = 0; i + 1 < in.length; i += 2) {
+            int n = (in[i] & 0xff) * 256 + (in[i + 1] & 0xff);
+            sb.append(BASE45.charAt(n % 45)).append(BASE45.charAt(n / 45 % 45)).append(BASE45.charAt(n / 2025));
+        }
+        if (in.length % 2 == 1) {
+            int n = in[in.length - 1] & 0xff;
+            sb.append(BASE45.charAt(n % 45)).append(BASE45.charAt(n / 45));
+        }
+        return sb.toString();
+    }
+
+    static byte[] base45Decode(String s) {
+        if (s.length() % 3 == 1)
+            return null;
+        byte[] out = new byte[s.length() / 3 * 2 + (s.length() % 3 == 2 ? 1 : 0)];
+        int o = 0;
+        for (int i = 0; i < s.length(); i += 3) {
+            int c = BASE45.indexOf(s.charAt(i));
+            int d = BASE45.indexOf(s.charAt(i + 1));
+            if (c < 0 || d < 0)
+                return null;
+            if (i + 2 < s.length()) {
+                int e = BASE45.indexOf(s.charAt(i + 2));
+                int n = c + d * 45 + (e < 0 ? 0 : e) * 2025;
+                if (e < 0 || n > 0xffff)
+                    return null;
+                out[o++] = (byte) (n >> 8);
+                out[o++] = (byte) n;
+            } else {
+                int n = c + d * 45;
+                if (n > 0xff)
+                    return null;
+                out[o++] = (byte) n;
+            }
+        }
+        return out;
+    }
+}
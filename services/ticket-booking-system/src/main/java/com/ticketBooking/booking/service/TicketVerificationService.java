@@ -0,0 +1,278 @@
+package com.ticketBooking.booking.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Gate check for signed ticket tokens: one HMAC verify and one UPDATE.
+ *
+ * The UPDATE flips the verified flag only for a CONFIRMED, not yet scanned
+ * booking of this event and returns the holder's name in the same round
+ * trip. Only a rejected scan pays for a second query to say why.
+ *
+ * Multi-lane scanners can send a whole batch instead: one IN query resolves
+ * every ticket and one batched UPDATE flips the flags.
+ */
+@Service
+public class TicketVerificationService {
+
+    private static final String MARK_VERIFIED_SQL = """
+            UPDATE bookings b SET verified = true, verified_at = now()
+            FROM users u
+            WHERE b.booking_id = ? AND b.event_id = ? AND b.status = 'CONFIRMED'
+              AND b.verified IS NOT TRUE AND u.id = b.user_id
+            RETURNING u.full_name, b.verified_at
+            """;
+    private static final String WHY_NOT_SQL = """
+            SELECT b.status, b.verified, b.verified_at, u.full_name
+            FROM bookings b LEFT JOIN users u ON u.id = b.user_id
+            WHERE b.booking_id = ? AND b.event_id = ?
+            """;
+
+    private static final String BATCH_LOOKUP_SQL = """
+            SELECT b.booking_id, b.user_id, b.status, b.verified, b.verified_at, b.qr_payload, u.full_name
+            FROM bookings b LEFT JOIN users u ON u.id = b.user_id
+            WHERE b.event_id = ? AND b.booking_id IN (%s)
+            """;
+    private static final String BATCH_MARK_SQL = """
+            UPDATE bookings SET verified = true, verified_at = ?, qr_payload = COALESCE(qr_payload, ?)
+            WHERE booking_id = ? AND event_id = ? AND status = 'CONFIRMED' AND verified IS NOT TRUE
+            """;
+
+    private final TicketTokenService tokenService;
+    private final GateManifestService gateManifestService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TicketVerificationService(TicketTokenService tokenService,
+                                     GateManifestService gateManifestService,
+                                     JdbcTemplate jdbcTemplate) {
+        this.tokenService = tokenService;
+        this.gateManifestService = gateManifestService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Verify a scanned token at the gate of eventId. The result has the same
+     * shape as the legacy /verify-ticket response.
+     */
+    public Map<String, Object> verify(UUID eventId, String scanned) {
+        TicketTokenService.Ticket ticket = tokenService.verify(scanned);
+        if (ticket == null)
+            return Map.of("status", "INVALID", "message", "Invalid ticket signature");
+        if (!eventId.equals(ticket.eventId()))
+            return Map.of("status", "INVALID", "message", "QR belongs to another event");
+
+        List<Map<String, Object>> marked = jdbcTemplate.queryForList(MARK_VERIFIED_SQL, ticket.bookingId(), eventId);
+        if (!marked.isEmpty()) {
+            gateManifestService.markVerified(eventId, ticket.bookingId());
+            Object verifiedAt = toLocal(marked.get(0).get("verified_at"));
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("bookingId", ticket.bookingId());
+            data.put("verifiedAt", verifiedAt);
+            return Map.of(
+                    "status", "VERIFIED_OK",
+                    "message", "Ticket verified successfully",
+                    "userName", nameOf(marked.get(0).get("full_name")),
+                    "data", data);
+        }
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(WHY_NOT_SQL, ticket.bookingId(), eventId);
+        if (rows.isEmpty())
+            return Map.of("status", "INVALID", "message", "Booking not found");
+        Map<String, Object> row = rows.get(0);
+        if (!"CONFIRMED".equalsIgnoreCase((String) row.get("status")))
+            return Map.of("status", "NOT_CONFIRMED", "message", "Booking not confirmed");
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "ALREADY_VERIFIED");
+        response.put("message", "Ticket already scanned");
+        response.put("userName", nameOf(row.get("full_name")));
+        response.put("verifiedAt", toLocal(row.get("verified_at")));
+        return response;
+    }
+
+    /**
+     * Verify a batch of scans from one gate. Results are in request order and
+     * use the same statuses as a single scan. If a ticket appears more than
+     * once, the first occurrence is verified and the later ones are reported
+     * as ALREADY_VERIFIED, whatever their order of arrival at the database.
+     */
+    public List<Map<String, Object>> verifyBatch(UUID eventId, List<String> scans) {
+        int n = scans.size();
+        UUID[] ids = new UUID[n];
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(n, null));
+
+        // 1. decode everything locally
+        Map<UUID, Integer> firstSeen = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            String scanned = scans.get(i);
+            UUID bookingId = null;
+            UUID scannedEvent = null;
+            if (tokenService.isToken(scanned)) {
+                TicketTokenService.Ticket t = tokenService.verify(scanned);
+                if (t != null) {
+                    bookingId = t.bookingId();
+                    scannedEvent = t.eventId();
+                }
+            } else {
+                UUID[] legacy = parseLegacy(scanned);
+                if (legacy != null) {
+                    bookingId = legacy[0];
+                    scannedEvent = legacy[1];
+                }
+            }
+            if (bookingId == null) {
+                results.set(i, result(i, "INVALID", "QR parse failed or bad signature"));
+            } else if (!eventId.equals(scannedEvent)) {
+                results.set(i, result(i, "INVALID", "QR belongs to another event"));
+            } else if (firstSeen.putIfAbsent(bookingId, i) != null) {
+                Map<String, Object> r = result(i, "ALREADY_VERIFIED", "Duplicate scan in this batch");
+                r.put("bookingId", bookingId);
+                results.set(i, r);
+            } else {
+                ids[i] = bookingId;
+            }
+        }
+        if (firstSeen.isEmpty())
+            return results;
+
+        // 2. one IN query for all distinct tickets
+        String in = String.join(",", Collections.nCopies(firstSeen.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(eventId);
+        args.addAll(firstSeen.keySet());
+        Map<UUID, Map<String, Object>> rows = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(BATCH_LOOKUP_SQL.formatted(in), args.toArray()))
+            rows.put((UUID) row.get("booking_id"), row);
+
+        // 3. decide per ticket, collect the flips
+        List<Integer> toFlip = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == null)
+                continue;
+            Map<String, Object> row = rows.get(ids[i]);
+            Map<String, Object> r;
+            if (row == null) {
+                r = result(i, "INVALID", "Booking not found");
+            } else if (!"CONFIRMED".equalsIgnoreCase((String) row.get("status"))) {
+                r = result(i, "NOT_CONFIRMED", "Booking not confirmed");
+            } else if (!tokenService.isToken(scans.get(i))
+                    && !scans.get(i).trim().equals(legacyPayload(ids[i], eventId, row).trim())) {
+                r = result(i, "INVALID", "QR content mismatch");
+            } else if (Boolean.TRUE.equals(row.get("verified"))) {
+                r = result(i, "ALREADY_VERIFIED", "Ticket already scanned");
+                r.put("verifiedAt", toLocal(row.get("verified_at")));
+            } else {
+                toFlip.add(i);
+                r = result(i, "VERIFIED_OK", "Ticket verified successfully");
+            }
+            if (row != null)
+                r.put("userName", nameOf(row.get("full_name")));
+            r.put("bookingId", ids[i]);
+            results.set(i, r);
+        }
+
+        // 4. one batched UPDATE, guarded like the single scan; a row that changed since the
+        //    lookup (another gate flipped it, or it was cancelled) is not admitted
+        if (!toFlip.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp ts = Timestamp.valueOf(now);
+            int[] counts = jdbcTemplate.batchUpdate(BATCH_MARK_SQL, toFlip.stream()
+                    .map(i -> new Object[] { ts, legacyPayload(ids[i], eventId, rows.get(ids[i])), ids[i], eventId })
+                    .toList());
+            List<Integer> missed = new ArrayList<>();
+            for (int k = 0; k < toFlip.size(); k++) {
+                int i = toFlip.get(k);
+                if (counts[k] == 0) {
+                    missed.add(i);
+                } else {
+                    results.get(i).put("verifiedAt", now);
+                    gateManifestService.markVerified(eventId, ids[i]);
+                }
+            }
+            if (!missed.isEmpty())
+                explainMissed(eventId, ids, missed, results);
+        }
+        return results;
+    }
+
+    // the stored payload, or for old tickets stored without one the text they were printed with
+    private static String legacyPayload(UUID bookingId, UUID eventId, Map<String, Object> row) {
+        String payload = (String) row.get("qr_payload");
+        if (payload != null && !payload.isBlank())
+            return payload;
+        return QRCodeGenerator.payloadFor(bookingId, eventId, (Integer) row.get("user_id"));
+    }
+
+    // rows the batch UPDATE did not flip: already scanned by another gate, or no longer confirmed
+    private void explainMissed(UUID eventId, UUID[] ids, List<Integer> missed, List<Map<String, Object>> results) {
+        List<Object> args = new ArrayList<>();
+        args.add(eventId);
+        missed.forEach(i -> args.add(ids[i]));
+        Map<UUID, Map<String, Object>> rows = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                BATCH_LOOKUP_SQL.formatted(String.join(",", Collections.nCopies(missed.size(), "?"))), args.toArray()))
+            rows.put((UUID) row.get("booking_id"), row);
+
+        for (int i : missed) {
+            Map<String, Object> row = rows.get(ids[i]);
+            Map<String, Object> r = results.get(i);
+            if (row == null) {
+                r.put("status", "INVALID");
+                r.put("message", "Booking not found");
+            } else if (!"CONFIRMED".equalsIgnoreCase((String) row.get("status"))) {
+                r.put("status", "NOT_CONFIRMED");
+                r.put("message", "Booking not confirmed");
+            } else {
+                r.put("status", "ALREADY_VERIFIED");
+                r.put("message", "Ticket already scanned");
+                r.put("verifiedAt", toLocal(row.get("verified_at")));
+            }
+        }
+    }
+
+    /** Booking and event id from a pre-token "Booking ID:/Event ID:" ticket, or null. */
+    static UUID[] parseLegacy(String scanned) {
+        if (scanned == null)
+            return null;
+        UUID bookingId = null, eventId = null;
+        try {
+            for (String line : scanned.split("\\r?\\n")) {
+                String t = line.trim();
+                if (t.startsWith("Booking ID:"))
+                    bookingId = UUID.fromString(t.substring(11).trim());
+                else if (t.startsWith("Event ID:"))
+                    eventId = UUID.fromString(t.substring(9).trim());
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return bookingId == null || eventId == null ? null : new UUID[] { bookingId, eventId };
+    }
+
+    private static Map<String, Object> result(int index, String status, String message) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("index", index);
+        r.put("status", status);
+        r.put("message", message);
+        return r;
+    }
+
+    private static String nameOf(Object name) {
+        return name == null || name.toString().isBlank() ? "Unknown User" : name.toString();
+    }
+
+    private static Object toLocal(Object ts) {
+        return ts instanceof Timestamp t ? t.toLocalDateTime() : ts;
+    }
+}
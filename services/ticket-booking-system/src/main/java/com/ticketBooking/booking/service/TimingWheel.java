@@ -0,0 +1,124 @@
+package com.ticketBooking.booking.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel.
+ *
+ * Level 0 has wheelSize buckets of tickMs each, level 1 buckets span
+ * tickMs * wheelSize, and so on; levels are added on demand. Scheduling is
+ * O(levels) and advancing one tick only touches the buckets whose window
+ * starts at the new time, so thousands of expiring items cost one bucket
+ * drain instead of one poll each.
+ *
+ * Items fire at most one tick late and never early. Not thread-safe on its
+ * own — callers synchronize (see SlotHoldService).
+ */
+public class TimingWheel<T> {
+
+    private record Entry<T>(long deadline, T item) {
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<ArrayDeque<Entry<T>>[]> levels = new ArrayList<>();
+
+    private long now; // aligned to tickMs; every deadline < now has fired
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2)
+            throw new IllegalArgumentException("tickMs must be > 0 and wheelSize >= 2");
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.now = startMs - Math.floorMod(startMs, tickMs);
+    }
+
+    /**
+     * Schedule an item. Returns false if the deadline is already in the past,
+     * in which case nothing is stored and the caller should expire it itself.
+     */
+    public boolean schedule(T item, long deadlineMs) {
+        if (deadlineMs < now)
+            return false;
+        place(new Entry<>(deadlineMs, item));
+        size++;
+        return true;
+    }
+
+    /**
+     * Move the clock forward to nowMs and return everything that expired.
+     */
+    public List<T> advance(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        if (size == 0) {
+            long aligned = nowMs - Math.floorMod(nowMs, tickMs);
+            if (aligned > now)
+                now = aligned;
+            return expired;
+        }
+
+        while (now + tickMs <= nowMs) {
+            // level 0 bucket holding [now, now + tick) fires as a whole
+            ArrayDeque<Entry<T>> due = bucket(0, now / tickMs);
+            for (Entry<T> e : due)
+                expired.add(e.item());
+            size -= due.size();
+            due.clear();
+            now += tickMs;
+
+            // cascade coarser buckets whose window starts at the new time, top level first
+            int top = 0;
+            long span = tickMs;
+            while (top + 1 < levels.size() && now % (span * wheelSize) == 0) {
+                span *= wheelSize;
+                top++;
+            }
+            for (int level = top; level >= 1; level--, span /= wheelSize) {
+                ArrayDeque<Entry<T>> bucket = bucket(level, now / span);
+                if (bucket.isEmpty())
+                    continue;
+                List<Entry<T>> moving = new ArrayList<>(bucket);
+                bucket.clear();
+                for (Entry<T> e : moving)
+                    place(e);
+            }
+
+            if (size == 0) {
+                long aligned = nowMs - Math.floorMod(nowMs, tickMs);
+                if (aligned > now)
+                    now = aligned;
+                break;
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> e) {
+        long span = tickMs;
+        for (int level = 0;; level++, span *= wheelSize) {
+            long slot = e.deadline() / span;
+            if (slot - now / span < wheelSize) {
+                bucket(level, slot).add(e);
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayDeque<Entry<T>> bucket(int level, long slot) {
+        while (levels.size() <= level) {
+            ArrayDeque<Entry<T>>[] wheel = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++)
+                wheel[i] = new ArrayDeque<>();
+            levels.add(wheel);
+        }
+        return levels.get(level)[(int) Math.floorMod(slot, (long) wheelSize)];
+    }
+}
@@ -0,0 +1,260 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.event.model.Event;
+import com.ticketBooking.event.repository.EventRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Virtual waiting room for hot on-sales.
+ *
+ * An event with events.waiting_room_rate set only accepts /order calls that
+ * carry an admission token. Users join the room and get a ticket number in
+ * arrival order; a token bucket refilled at the configured rate (burst of
+ * one second's worth) admits tickets strictly in that order. An admitted
+ * user receives an HMAC-signed token bound to the event, their login and
+ * their ticket. It expires a fixed time after admission, however often the
+ * status is polled, and is spent by the first /order that uses it; to order
+ * again the user joins again and gets a new ticket at the back. That caps the
+ * rate of Razorpay order calls and booking transactions at what the room
+ * lets through.
+ *
+ * Rooms live in memory (single booking node); the rate is stored on the event.
+ */
+@Service
+public class WaitingRoomService {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitingRoomService.class);
+
+    private final EventRepository eventRepository;
+    private final SecretKeySpec key;
+    private final long tokenTtlSeconds;
+
+    // Optional.empty() caches "this event has no waiting room"
+    private final Map<UUID, Optional<Room>> rooms = new ConcurrentHashMap<>();
+
+    public WaitingRoomService(EventRepository eventRepository,
+                              @Value("${WAITING_ROOM_SECRET}") String secret,
+                              @Value("${RZP_KEY_SECRET:}") String paymentSecret,
+                              @Value("${waiting-room.token-ttl-seconds:600}") long tokenTtlSeconds) {
+        this.eventRepository = eventRepository;
+        this.key = SigningSecrets.hmacKey("WAITING_ROOM_SECRET", secret, paymentSecret);
+        this.tokenTtlSeconds = tokenTtlSeconds;
+    }
+
+    /**
+     * A user's place in the room. position is how many tickets are still
+     * ahead (0 once admitted); the token is only set once admitted.
+     */
+    public record Status(long ticket, long position, long etaSeconds, String admissionToken, Instant tokenExpiresAt) {
+        public boolean admitted() {
+            return admissionToken != null;
+        }
+    }
+
+    static final class Room {
+        private double rate;   // admissions per second
+        private double tokens;
+        private long refilledAt;
+        private long issued;   // tickets handed out so far
+        private long admitted; // tickets 1..admitted may enter
+        private final Map<String, Long> tickets = new HashMap<>();
+        private final Map<Long, Long> expiries = new HashMap<>(); // admitted ticket -> token expiry, 0 once spent
+
+        Room(double rate, long now) {
+            this.rate = rate;
+            this.refilledAt = now;
+        }
+
+        synchronized void setRate(double rate, long now) {
+            refill(now);
+            this.rate = rate;
+        }
+
+        synchronized long join(String user, long now, long epochSecond) {
+            Long ticket = ticketOf(user, epochSecond);
+            if (ticket == null) {
+                ticket = ++issued;
+                tickets.put(user, ticket);
+            }
+            refill(now);
+            return ticket;
+        }
+
+        /** The user's ticket, null if they have none or it was spent or expired. */
+        synchronized Long ticketOf(String user, long epochSecond) {
+            Long ticket = tickets.get(user);
+            if (ticket == null)
+                return null;
+            Long expires = expiries.get(ticket);
+            return expires != null && expires <= epochSecond ? null : ticket;
+        }
+
+        /** Token expiry of an admitted ticket, fixed the first time it is asked for. */
+        synchronized long admit(long ticket, long epochSecond, long ttlSeconds) {
+            return expiries.computeIfAbsent(ticket, t -> epochSecond + ttlSeconds);
+        }
+
+        /** Spend the token of an admitted ticket; false if spent, expired or never issued. */
+        synchronized boolean spend(long ticket, long expires, long epochSecond) {
+            Long current = expiries.get(ticket);
+            if (current == null || current != expires || expires <= epochSecond)
+                return false;
+            expiries.put(ticket, 0L);
+            return true;
+        }
+
+        /** Tickets ahead of this one after refilling; 0 means admitted. */
+        synchronized long ahead(long ticket, long now) {
+            refill(now);
+            return Math.max(0, ticket - admitted);
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+
+        // tokens are spent on waiting tickets in order; what is left over
+        // (nobody waiting) is banked up to one second's worth
+        private void refill(long now) {
+            double earned = tokens + (now - refilledAt) / 1e9 * rate;
+            refilledAt = now;
+            long let = Math.min((long) earned, issued - admitted);
+            admitted += let;
+            tokens = Math.min(Math.max(rate, 1), earned - let);
+        }
+    }
+
+    public boolean isActive(UUID eventId) {
+        return room(eventId).isPresent();
+    }
+
+    /**
+     * Take a ticket (or get the one already held) and report where it stands.
+     * A spent or expired ticket is replaced by a new one.
+     */
+    public Optional<Status> join(UUID eventId, String user) {
+        return room(eventId).map(r -> status(eventId, user, r,
+                r.join(user, System.nanoTime(), Instant.now().getEpochSecond())));
+    }
+
+    /** Where the user's ticket stands; empty if the room is off, or they hold no live ticket. */
+    public Optional<Status> status(UUID eventId, String user) {
+        Room r = room(eventId).orElse(null);
+        if (r == null)
+            return Optional.empty();
+        Long ticket = r.ticketOf(user, Instant.now().getEpochSecond());
+        return ticket == null ? Optional.empty() : Optional.of(status(eventId, user, r, ticket));
+    }
+
+    /**
+     * True if /order may go ahead: no room, or a signed, unexpired token for
+     * this event and user. Does not spend the token; see {@link #spend}.
+     */
+    public boolean admits(UUID eventId, String user, String token) {
+        return !isActive(eventId) || parse(eventId, user, token) != null;
+    }
+
+    /**
+     * Spend the token for one /order. True if there is no room, or the token
+     * is valid and was not used before.
+     */
+    public boolean spend(UUID eventId, String user, String token) {
+        Room r = room(eventId).orElse(null);
+        if (r == null)
+            return true;
+        long[] t = parse(eventId, user, token);
+        return t != null && r.spend(t[0], t[1], Instant.now().getEpochSecond());
+    }
+
+    // "ticket.expires.signature" -> { ticket, expires }, null unless signed for this event and user and unexpired
+    private long[] parse(UUID eventId, String user, String token) {
+        if (token == null)
+            return null;
+        String[] parts = token.split("\\.", 3);
+        if (parts.length != 3)
+            return null;
+        try {
+            long ticket = Long.parseLong(parts[0]);
+            long expires = Long.parseLong(parts[1]);
+            if (expires < Instant.now().getEpochSecond())
+                return null;
+            byte[] expected = sign(eventId, user, ticket, expires).getBytes(StandardCharsets.US_ASCII);
+            return MessageDigest.isEqual(expected, parts[2].getBytes(StandardCharsets.US_ASCII))
+                    ? new long[] { ticket, expires } : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Turn the room on (rate admissions per second) or off (null or 0).
+     * Changing the rate of an open room keeps everyone's ticket.
+     */
+    @Transactional
+    public void configure(UUID eventId, Integer ratePerSecond) {
+        Integer rate = ratePerSecond != null && ratePerSecond > 0 ? ratePerSecond : null;
+        // only the rate column, so a concurrent slot delta is not overwritten
+        if (eventRepository.setWaitingRoomRate(eventId, rate) == 0)
+            throw new RuntimeException("Event not found");
+
+        TransactionCallbacks.afterCommit(() -> {
+            if (rate == null) {
+                rooms.put(eventId, Optional.empty());
+            } else {
+                Room r = room(eventId).orElse(null);
+                if (r != null)
+                    r.setRate(rate, System.nanoTime());
+                else
+                    rooms.put(eventId, Optional.of(new Room(rate, System.nanoTime())));
+            }
+            log.info("WaitingRoomService: event {} waiting room {}", eventId, rate == null ? "off" : rate + "/s");
+        });
+    }
+
+    private Status status(UUID eventId, String user, Room r, long ticket) {
+        long ahead = r.ahead(ticket, System.nanoTime());
+        if (ahead > 0)
+            return new Status(ticket, ahead, (long) Math.ceil(ahead / r.rate()), null, null);
+        long expires = r.admit(ticket, Instant.now().getEpochSecond(), tokenTtlSeconds);
+        return new Status(ticket, 0, 0, ticket + "." + expires + "." + sign(eventId, user, ticket, expires),
+                Instant.ofEpochSecond(expires));
+    }
+
+    private Optional<Room> room(UUID eventId) {
+        Optional<Room> cached = rooms.get(eventId);
+        if (cached != null)
+            return cached;
+        return rooms.computeIfAbsent(eventId, id -> eventRepository.findById(id)
+                .map(Event::getWaitingRoomRate)
+                .filter(rate -> rate > 0)
+                .map(rate -> new Room(rate, System.nanoTime())));
+    }
+
+    private String sign(UUID eventId, String user, long ticket, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] h = mac.doFinal((eventId + "|" + user + "|" + ticket + "|" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(h);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to sign admission token", e);
+        }
+    }
+}
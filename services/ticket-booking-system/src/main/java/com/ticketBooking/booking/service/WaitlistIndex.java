@@ -0,0 +1,306 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.EventQueue;
+import com.ticketBooking.booking.repository.EventQueueRepository;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory waitlist order of every event, the source of truth for queue
+ * positions (event_queue.position is only a snapshot taken at join time).
+ *
+ * Bookings are ordered by their join sequence number (QueueSequenceAllocator);
+ * a Fenwick tree over the numbers counts who is still waiting, so rank, head
+ * and leave are O(log n) and nobody else's row is rewritten when someone
+ * leaves the queue.
+ *
+ * Every waitlist is loaded from the WAITING rows at startup, so an event
+ * without one simply has nobody waiting and reads never go to the database;
+ * size() is what the queue-count endpoint serves. Inside a transaction every
+ * change is undone if it rolls back. A periodic cross-check compares the
+ * sizes with the table and reloads an event whose count stays off. Like
+ * SlotInventory this assumes a single booking node.
+ */
+@Component
+public class WaitlistIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistIndex.class);
+
+    private final EventQueueRepository queueRepository;
+
+    private final Map<UUID, Waitlist> waitlists = new ConcurrentHashMap<>();
+    // events whose count disagreed with the table at the last check -> waitlist version then
+    private final Map<UUID, Long> suspects = new ConcurrentHashMap<>();
+
+    public WaitlistIndex(EventQueueRepository queueRepository) {
+        this.queueRepository = queueRepository;
+    }
+
+    /**
+     * A booking joined the queue with the given join sequence number; returns
+     * its 1-based position.
+     */
+    public int add(UUID eventId, UUID bookingId, long joinSeq) {
+        Waitlist w = waitlists.computeIfAbsent(eventId, id -> new Waitlist());
+        boolean added = !w.contains(bookingId);
+        int rank = w.add(bookingId, joinSeq);
+        if (added)
+            TransactionCallbacks.onRollback(() -> w.remove(bookingId));
+        return rank;
+    }
+
+    /** The booking left the queue (booked, cancelled). No-op if it was not in it. */
+    public void remove(UUID eventId, UUID bookingId) {
+        Waitlist w = waitlists.get(eventId);
+        Long seq = w == null ? null : w.remove(bookingId);
+        if (seq != null)
+            TransactionCallbacks.onRollback(() -> w.add(bookingId, seq));
+    }
+
+    /** 1-based position of a booking in its event's queue, 0 if it is not waiting. */
+    public int rank(UUID eventId, UUID bookingId) {
+        Waitlist w = waitlists.get(eventId);
+        return w == null ? 0 : w.rank(bookingId);
+    }
+
+    /** The booking that has waited longest, or null if nobody is waiting. */
+    public UUID head(UUID eventId) {
+        Waitlist w = waitlists.get(eventId);
+        return w == null ? null : w.head();
+    }
+
+    /** The first n waiting bookings (fewer if the queue is shorter), in queue order. */
+    public List<UUID> peek(UUID eventId, int n) {
+        Waitlist w = waitlists.get(eventId);
+        return w == null ? List.of() : w.peek(n);
+    }
+
+    /** Number of bookings waiting for the event. */
+    public int size(UUID eventId) {
+        Waitlist w = waitlists.get(eventId);
+        return w == null ? 0 : w.size();
+    }
+
+    /** Events whose waitlist is loaded and not empty. */
+    public List<UUID> eventsWithWaiters() {
+        return waitlists.entrySet().stream()
+                .filter(e -> e.getValue().size() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /** Changes whenever someone joins or leaves; lets pollers skip unchanged queues. */
+    public long version(UUID eventId) {
+        Waitlist w = waitlists.get(eventId);
+        return w == null ? 0 : w.version();
+    }
+
+    /** Load every event's waitlist from the WAITING rows, in one query. */
+    @PostConstruct
+    public void loadAll() {
+        Map<UUID, List<EventQueue>> byEvent = new LinkedHashMap<>();
+        for (EventQueue q : queueRepository.findAllWaitingInJoinOrder())
+            byEvent.computeIfAbsent(q.getEventId(), id -> new ArrayList<>()).add(q);
+        waitlists.clear();
+        byEvent.forEach((eventId, rows) -> waitlists.put(eventId, build(rows)));
+        log.info("WaitlistIndex: loaded waitlists of {} events", waitlists.size());
+    }
+
+    /**
+     * Compare every waitlist's size with the WAITING rows of its event. A
+     * mismatch can be a join or leave whose transaction has not committed
+     * yet, so an event is only reloaded if it is still off at the next check
+     * and nobody joined or left in between.
+     */
+    @Scheduled(fixedDelayString = "${queue.count.verify-ms:60000}", initialDelayString = "${queue.count.verify-ms:60000}")
+    public void verify() {
+        Map<UUID, Long> counted = new HashMap<>();
+        for (Object[] row : queueRepository.countWaitingByEvent()) {
+            UUID eventId = row[0] instanceof UUID u ? u : UUID.fromString(row[0].toString());
+            counted.put(eventId, ((Number) row[1]).longValue());
+        }
+        Set<UUID> eventIds = new HashSet<>(counted.keySet());
+        eventIds.addAll(waitlists.keySet());
+        eventIds.addAll(suspects.keySet());
+
+        for (UUID eventId : eventIds) {
+            Waitlist w = waitlists.get(eventId);
+            long inMemory = w == null ? 0 : w.size();
+            long inTable = counted.getOrDefault(eventId, 0L);
+            if (inMemory == inTable) {
+                suspects.remove(eventId);
+                continue;
+            }
+            long version = w == null ? -1 : w.version();
+            Long seen = suspects.put(eventId, version);
+            if (seen == null || seen != version)
+                continue;
+
+            suspects.remove(eventId);
+            Waitlist fresh = load(eventId);
+            // if someone joined or left meanwhile keep the old one; the next check looks again
+            boolean swapped = w == null ? waitlists.putIfAbsent(eventId, fresh) == null
+                    : w.version() == version && waitlists.replace(eventId, w, fresh);
+            log.warn("WaitlistIndex: event {} had {} waiting in memory but {} in event_queue{}",
+                    eventId, inMemory, inTable, swapped ? ", reloaded" : "");
+        }
+    }
+
+    private Waitlist load(UUID eventId) {
+        return build(queueRepository.findWaitingInJoinOrder(eventId));
+    }
+
+    private Waitlist build(List<EventQueue> rows) {
+        // rows from before join_seq existed come first; number them just below the first real one
+        long legacy = rows.stream().filter(q -> q.getJoinSeq() == null).count();
+        long seq = rows.stream().map(EventQueue::getJoinSeq).filter(Objects::nonNull).findFirst().orElse(1L) - legacy;
+
+        Waitlist w = new Waitlist();
+        for (EventQueue q : rows)
+            w.add(q.getBookingId(), q.getJoinSeq() != null ? q.getJoinSeq() : seq++);
+        return w;
+    }
+
+    /**
+     * Fenwick tree over join sequence numbers: slot i holds sequence base + i.
+     * When a number falls outside the array it is rebuilt around the live
+     * range, which drops the slots of everyone who already left the front.
+     */
+    static final class Waitlist {
+        private long base;
+        private UUID[] ids = new UUID[16]; // by slot, null if that number is not waiting
+        private int[] tree = new int[17];  // 1-based Fenwick tree of occupied slots
+        private final Map<UUID, Long> seqs = new HashMap<>();
+        private long version;
+
+        synchronized boolean contains(UUID id) {
+            return seqs.containsKey(id);
+        }
+
+        synchronized int add(UUID id, long seq) {
+            Long existing = seqs.get(id);
+            if (existing != null)
+                return prefix(slot(existing));
+            if (seqs.isEmpty())
+                base = seq; // everything is clear, so the window can just move
+            else if (seq < base || seq - base >= ids.length)
+                rebuild(seq);
+            int slot = slot(seq);
+            if (ids[slot] != null)
+                throw new IllegalStateException("Join sequence " + seq + " is already taken");
+            ids[slot] = id;
+            seqs.put(id, seq);
+            update(slot, 1);
+            version++;
+            return prefix(slot);
+        }
+
+        /** Returns the join sequence the booking had, or null. */
+        synchronized Long remove(UUID id) {
+            Long seq = seqs.remove(id);
+            if (seq == null)
+                return null;
+            ids[slot(seq)] = null;
+            update(slot(seq), -1);
+            version++;
+            return seq;
+        }
+
+        synchronized int rank(UUID id) {
+            Long seq = seqs.get(id);
+            return seq == null ? 0 : prefix(slot(seq));
+        }
+
+        synchronized UUID head() {
+            return seqs.isEmpty() ? null : ids[select(1)];
+        }
+
+        synchronized List<UUID> peek(int n) {
+            int k = Math.min(n, seqs.size());
+            List<UUID> out = new ArrayList<>(k);
+            for (int i = 1; i <= k; i++)
+                out.add(ids[select(i)]);
+            return out;
+        }
+
+        synchronized int size() {
+            return seqs.size();
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        private int slot(long seq) {
+            return (int) (seq - base);
+        }
+
+        // descend the tree for the slot whose prefix count reaches k (1-based)
+        private int select(int k) {
+            int pos = 0;
+            for (int step = Integer.highestOneBit(ids.length); step > 0; step >>= 1) {
+                if (pos + step <= ids.length && tree[pos + step] < k) {
+                    pos += step;
+                    k -= tree[pos];
+                }
+            }
+            return pos;
+        }
+
+        // number of occupied slots in [0, slot]
+        private int prefix(int slot) {
+            int sum = 0;
+            for (int i = slot + 1; i > 0; i -= i & -i)
+                sum += tree[i];
+            return sum;
+        }
+
+        private void update(int slot, int delta) {
+            for (int i = slot + 1; i < tree.length; i += i & -i)
+                tree[i] += delta;
+        }
+
+        // re-place every waiting booking in a window covering them and seq
+        private void rebuild(long seq) {
+            long lo = seq, hi = seq;
+            for (long s : seqs.values()) {
+                lo = Math.min(lo, s);
+                hi = Math.max(hi, s);
+            }
+            long span = hi - lo + 1;
+            if (span > Integer.MAX_VALUE / 4)
+                throw new IllegalStateException("Waitlist sequence window too large: " + span);
+            // at least twice the span, so the next rebuild is span joins away
+            int length = Math.max(16, Integer.highestOneBit((int) span * 2) << 1);
+
+            base = lo;
+            ids = new UUID[length];
+            for (Map.Entry<UUID, Long> e : seqs.entrySet())
+                ids[slot(e.getValue())] = e.getKey();
+            // linear Fenwick build
+            tree = new int[length + 1];
+            for (int i = 1; i <= length; i++) {
+                tree[i] += ids[i - 1] != null ? 1 : 0;
+                int parent = i + (i & -i);
+                if (parent <= length)
+                    tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.Booking;
+import com.ticketBooking.booking.model.EventQueue;
+import com.ticketBooking.booking.repository.BookingRepository;
+import com.ticketBooking.booking.repository.EventQueueRepository;
+import com.ticketBooking.event.services.SeatMapService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Moves waiters from the head of an event's waitlist onto freed capacity.
+ *
+ * promote() reserves as many slots as there are waiters in one SlotInventory
+ * CAS, takes that many paid bookings from the WaitlistIndex head (waiters who
+ * joined but never paid are passed over and keep their place), and confirms them
+ * in one transaction (one batch for bookings, one for queue rows). Slots of
+ * waiters that turn out to be stale, lost a race or found no seat are handed
+ * back. Confirmation emails go to a bounded background executor so a slow
+ * mail server never holds the promotion up.
+ *
+ * It runs after a cancellation commits, after an organizer raises capacity,
+ * and on a periodic sweep that catches slots freed by lapsed order holds.
+ */
+@Service
+public class WaitlistPromotionService {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistPromotionService.class);
+
+    private static final String PROMOTE_SQL = """
+            UPDATE bookings SET status = 'CONFIRMED', payment_id = COALESCE(?, payment_id), qr_payload = ?,
+                                qr_code = ?, seat_label = COALESCE(?, seat_label)
+            WHERE booking_id = ? AND status = 'PAID' AND payment_id IS NOT NULL
+            """;
+    private static final String QUEUE_BOOKED_SQL =
+            "UPDATE event_queue SET status = 'BOOKED', position = 0 WHERE booking_id = ? AND status = 'WAITING'";
+
+    private final WaitlistIndex waitlistIndex;
+    private final SlotInventory slotInventory;
+    private final SeatMapService seatMapService;
+    private final BookingRepository bookingRepository;
+    private final EventQueueRepository queueRepository;
+    private final TicketTokenService ticketTokenService;
+    private final QrRenderService qrRenderService;
+    private final BookingHistoryCache historyCache;
+    private final JavaMailSender mailSender;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatch;
+    private final int maxScan;
+    private final ThreadPoolExecutor notifier;
+
+    private final Map<UUID, Object> locks = new ConcurrentHashMap<>();
+
+    public WaitlistPromotionService(WaitlistIndex waitlistIndex,
+                                    SlotInventory slotInventory,
+                                    SeatMapService seatMapService,
+                                    BookingRepository bookingRepository,
+                                    EventQueueRepository queueRepository,
+                                    TicketTokenService ticketTokenService,
+                                    QrRenderService qrRenderService,
+                                    BookingHistoryCache historyCache,
+                                    JavaMailSender mailSender,
+                                    JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${queue.promotion.max-batch:500}") int maxBatch,
+                                    @Value("${queue.promotion.max-scan:5000}") int maxScan,
+                                    @Value("${queue.promotion.mail-queue-size:10000}") int mailQueueSize) {
+        this.waitlistIndex = waitlistIndex;
+        this.slotInventory = slotInventory;
+        this.seatMapService = seatMapService;
+        this.bookingRepository = bookingRepository;
+        this.queueRepository = queueRepository;
+        this.ticketTokenService = ticketTokenService;
+        this.qrRenderService = qrRenderService;
+        this.historyCache = historyCache;
+        this.mailSender = mailSender;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatch = maxBatch;
+        this.maxScan = maxScan;
+        this.notifier = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(mailQueueSize), r -> {
+                    Thread t = new Thread(r, "waitlist-mail");
+                    t.setDaemon(true);
+                    return t;
+                }, (r, pool) -> log.warn("WaitlistPromotionService: mail queue full, dropping a notification"));
+    }
+
+    private record Promotion(Booking booking, EventQueue queue, String seat) {
+    }
+
+    /**
+     * Fill as much free capacity of the event as there are waiters. Returns
+     * the number of bookings confirmed.
+     */
+    public int promote(UUID eventId) {
+        synchronized (locks.computeIfAbsent(eventId, id -> new Object())) {
+            int promoted = 0;
+            while (true) {
+                int waiting = waitlistIndex.size(eventId);
+                if (waiting == 0)
+                    break;
+                int granted = slotInventory.tryReserveUpTo(eventId, Math.min(waiting, maxBatch));
+                if (granted == 0)
+                    break;
+                int[] result = promoteBatch(eventId, granted);
+                promoted += result[0];
+                if (result[0] == 0 && result[1] == 0)
+                    break; // nothing confirmed and nothing stale: out of seats
+            }
+            if (promoted > 0)
+                log.info("WaitlistPromotionService: promoted {} waiters for event {}", promoted, eventId);
+            return promoted;
+        }
+    }
+
+    /** Catches capacity freed without a trigger, e.g. order holds that lapsed. */
+    @Scheduled(fixedDelayString = "${queue.promotion.sweep-ms:5000}")
+    public void sweep() {
+        for (UUID eventId : waitlistIndex.eventsWithWaiters()) {
+            if (slotInventory.available(eventId) <= 0)
+                continue;
+            try {
+                promote(eventId);
+            } catch (Exception ex) {
+                log.warn("WaitlistPromotionService: sweep of event {} failed", eventId, ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdown();
+    }
+
+    /**
+     * Returns { confirmed, stale } for one batch of granted slots. Only paid
+     * waiters are promoted; unpaid ones keep their place (they may still pay,
+     * or are reaped later) and are looked past, up to max-scan waiters deep.
+     */
+    private int[] promoteBatch(UUID eventId, int granted) {
+        int stale = 0;
+        List<Promotion> chosen = new ArrayList<>();
+        Set<UUID> examined = new HashSet<>();
+        int window = Math.min(granted, maxScan);
+        boolean seatsLeft = true;
+        while (seatsLeft && chosen.size() < granted) {
+            // stale waiters leave the index as we go, so compare ids rather than positions
+            List<UUID> next = waitlistIndex.peek(eventId, window).stream().filter(examined::add).toList();
+            if (next.isEmpty())
+                break; // looked at everyone within reach
+            window = Math.min(window * 2, maxScan);
+
+            Map<UUID, EventQueue> queueRows = queueRepository.findAllByBookingIdIn(next).stream()
+                    .collect(Collectors.toMap(EventQueue::getBookingId, Function.identity(), (a, b) -> a));
+            Map<UUID, Booking> bookings = bookingRepository.findAllById(next).stream()
+                    .collect(Collectors.toMap(Booking::getBookingId, Function.identity()));
+            for (UUID id : next) {
+                EventQueue q = queueRows.get(id);
+                Booking b = bookings.get(id);
+                if (q == null || b == null || !"WAITING".equalsIgnoreCase(q.getStatus())
+                        || "CONFIRMED".equalsIgnoreCase(b.getStatus()) || "CANCELLED".equalsIgnoreCase(b.getStatus())) {
+                    waitlistIndex.remove(eventId, id);
+                    stale++;
+                    continue;
+                }
+                if (!isPaid(b))
+                    continue; // not ours to give a ticket yet
+                // seated event: best seat left, in queue order; stop at the first waiter nobody can seat
+                List<String> seat = seatMapService.retake(eventId, Collections.singletonList(b.getSeatLabel()));
+                if (seat == null) {
+                    seatsLeft = false;
+                    break;
+                }
+                chosen.add(new Promotion(b, q, seat.isEmpty() ? null : seat.get(0)));
+                if (chosen.size() == granted)
+                    break;
+            }
+        }
+        if (granted > chosen.size())
+            slotInventory.release(eventId, granted - chosen.size());
+        if (chosen.isEmpty())
+            return new int[] { 0, stale };
+
+        List<Object[]> bookingArgs = new ArrayList<>(chosen.size());
+        List<String> payloads = new ArrayList<>(chosen.size());
+        for (Promotion p : chosen) {
+            UUID bookingId = p.booking().getBookingId();
+            String payload = ticketTokenService.issue(bookingId, eventId);
+            payloads.add(payload);
+            bookingArgs.add(new Object[] { p.queue().getPaymentId(), payload, qrRenderService.urlFor(bookingId),
+                    p.seat(), bookingId });
+        }
+
+        int[] updated;
+        try {
+            updated = transactionTemplate.execute(status -> {
+                int[] counts = jdbcTemplate.batchUpdate(PROMOTE_SQL, bookingArgs);
+                List<Object[]> queueArgs = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] != 0)
+                        queueArgs.add(new Object[] { chosen.get(i).booking().getBookingId() });
+                }
+                if (!queueArgs.isEmpty())
+                    jdbcTemplate.batchUpdate(QUEUE_BOOKED_SQL, queueArgs);
+                return counts;
+            });
+        } catch (RuntimeException ex) {
+            slotInventory.release(eventId, chosen.size());
+            chosen.forEach(p -> releaseSeat(eventId, p));
+            throw ex;
+        }
+
+        int confirmed = 0;
+        for (int i = 0; i < chosen.size(); i++) {
+            Promotion p = chosen.get(i);
+            Booking b = p.booking();
+            waitlistIndex.remove(eventId, b.getBookingId());
+            if (updated[i] == 0) {
+                // confirmed, cancelled or reaped by another path since we read it
+                slotInventory.release(eventId, 1);
+                releaseSeat(eventId, p);
+                stale++;
+                continue;
+            }
+            confirmed++;
+            historyCache.invalidate(b.getUserId());
+            qrRenderService.renderLater(b.getBookingId(), payloads.get(i));
+            notifyLater(p.queue().getUserEmail(), b);
+        }
+        return new int[] { confirmed, stale };
+    }
+
+    static boolean isPaid(Booking b) {
+        return "PAID".equalsIgnoreCase(b.getStatus()) && b.getPaymentId() != null && !b.getPaymentId().isBlank();
+    }
+
+    private void releaseSeat(UUID eventId, Promotion p) {
+        if (p.seat() != null)
+            seatMapService.release(eventId, List.of(p.seat()));
+    }
+
+    private void notifyLater(String to, Booking booking) {
+        if (to == null || to.isBlank())
+            return;
+        notifier.execute(() -> {
+            try {
+                SimpleMailMessage m = new SimpleMailMessage();
+                m.setTo(to);
+                m.setSubject("Auto-booked for " + booking.getEventId());
+                m.setText("You have been auto-booked. Booking ID: " + booking.getBookingId());
+                mailSender.send(m);
+            } catch (Exception ex) {
+                log.warn("WaitlistPromotionService: failed to send auto-book email for booking {}",
+                        booking.getBookingId(), ex);
+            }
+        });
+    }
+}
@@ -2,9 +2,15 @@ package com.ticketBooking.event.controller;
 
 import com.ticketBooking.booking.model.Booking;
 import com.ticketBooking.booking.repository.BookingRepository;
+import com.ticketBooking.booking.service.BookingHistoryCache;
+import com.ticketBooking.booking.service.RefundOutboxService;
+import com.ticketBooking.booking.service.SlotInventory;
+import com.ticketBooking.booking.service.WaitlistPromotionService;
 import com.ticketBooking.event.model.Event;
 import com.ticketBooking.event.repository.EventRepository;
 import com.ticketBooking.event.services.EventService;
+import com.ticketBooking.event.services.SeatMap;
+import com.ticketBooking.event.services.SeatMapService;
 import com.ticketBooking.user.model.User;
 import com.ticketBooking.user.repository.UserRepository;
 
@@ -17,7 +23,12 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -40,6 +51,21 @@ public class EventController {
     @Autowired
     private EventService eventService;
 
+    @Autowired
+    private SeatMapService seatMapService;
+
+    @Autowired
+    private BookingHistoryCache bookingHistoryCache;
+
+    @Autowired
+    private SlotInventory slotInventory;
+
+    @Autowired
+    private WaitlistPromotionService promotionService;
+
+    @Autowired
+    private RefundOutboxService refundOutbox;
+
      // ✅ Get all unique cities (for dropdown)
     @GetMapping("/cities")
     public ResponseEntity<List<String>> getAllCities() {
@@ -230,13 +256,27 @@ public ResponseEntity<?> editEvent(
             System.out.println("existingEvent" +existingEvent.getAgeLimit());
         }
     }
-    if (updatedEvent.getTotalSlots() != null)
+    int slotDelta = 0;
+    if (updatedEvent.getTotalSlots() != null) {
+        if (seatMapService.hasSeatMap(id) && !updatedEvent.getTotalSlots().equals(existingEvent.getTotalSlots()))
+            return ResponseEntity.badRequest().body("Capacity of a seated event is set by its seat map");
+        int oldTotal = existingEvent.getTotalSlots() != null ? existingEvent.getTotalSlots() : 0;
+        slotDelta = updatedEvent.getTotalSlots() - oldTotal;
         existingEvent.setTotalSlots(updatedEvent.getTotalSlots());
+    }
 
     if (updatedEvent.getImageUrl() != null)
         existingEvent.setImageUrl(updatedEvent.getImageUrl());
 
     Event savedEvent = eventRepository.save(existingEvent);
+    bookingHistoryCache.invalidateAll();
+
+    // available_slots moves through the inventory's deltas; new capacity goes to the waitlist first
+    if (slotDelta != 0) {
+        slotInventory.adjust(id, slotDelta);
+        if (slotDelta > 0)
+            promotionService.promote(id);
+    }
     return ResponseEntity.ok(savedEvent);
 }
 
@@ -277,9 +317,15 @@ public ResponseEntity<?> editEvent(
         // 6. Cancel bookings
         List<Booking> bookings = bookingRepository.findByEventId(event.getEventId());
         for (Booking booking : bookings) {
+            // paid tickets are refunded through the outbox once this commits
+            if ("CONFIRMED".equalsIgnoreCase(booking.getStatus()) || "PAID".equalsIgnoreCase(booking.getStatus()))
+                refundOutbox.enqueue(booking.getBookingId(), booking.getOrderId(), booking.getPaymentId(),
+                        booking.getAmount() != null ? booking.getAmount() * 100 : null, "CANCELLED",
+                        RefundOutboxService.cancelKey(booking.getBookingId()));
             booking.setStatus("CANCELLED");
         }
         bookingRepository.saveAll(bookings);
+        bookings.forEach(b -> bookingHistoryCache.invalidate(b.getUserId()));
 
         // 7. Send email to each user
         for (Booking booking : bookings) {
@@ -313,6 +359,64 @@ public ResponseEntity<List<Event>> getEventsByOrganizer(@PathVariable Integer or
 
 
 
+    // ✅ Define assigned seating (sections x rows x seats); only before any booking exists
+    @PutMapping("/{id}/seat-map")
+    public ResponseEntity<?> defineSeatMap(
+            @PathVariable UUID id,
+            @RequestBody Map<String, Object> body,
+            @AuthenticationPrincipal String email) {
+
+        User organizer = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (!"ORGANIZER".equalsIgnoreCase(organizer.getRole())) {
+            return ResponseEntity.status(403).body("Access denied: Only organizers can edit events");
+        }
+
+        Optional<Event> optionalEvent = eventRepository.findById(id);
+        if (optionalEvent.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!optionalEvent.get().getOrganizerId().equals(organizer.getId())) {
+            return ResponseEntity.status(403).body("You can only edit your own events");
+        }
+
+        try {
+            List<SeatMap.Section> sections = new ArrayList<>();
+            for (Object o : (List<?>) body.get("sections")) {
+                Map<?, ?> section = (Map<?, ?>) o;
+                sections.add(new SeatMap.Section(
+                        section.get("name").toString(),
+                        Integer.parseInt(section.get("rows").toString()),
+                        Integer.parseInt(section.get("seatsPerRow").toString())));
+            }
+            return ResponseEntity.ok(seatMapView(seatMapService.defineLayout(id, sections)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    // ✅ Seat map for the seat picker: layout + taken bitmap (base64 of big-endian longs)
+    @GetMapping("/{id}/seat-map")
+    public ResponseEntity<?> getSeatMap(@PathVariable UUID id) {
+        return seatMapService.seatMap(id)
+                .<ResponseEntity<?>>map(m -> ResponseEntity.ok(seatMapView(m)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static Map<String, Object> seatMapView(SeatMap map) {
+        ByteArrayOutputStream bits = new ByteArrayOutputStream();
+        for (int p = 0; p < map.pageCount(); p++) {
+            bits.writeBytes(map.pageBytes(p));
+        }
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("sections", map.sections());
+        view.put("capacity", map.capacity());
+        view.put("free", map.free());
+        view.put("taken", Base64.getEncoder().encodeToString(bits.toByteArray()));
+        return view;
+    }
+
     // GET single event by ID
     @GetMapping("/{id}")
     public ResponseEntity<Event> getEventById(@PathVariable UUID id) {
@@ -63,12 +63,17 @@ private Boolean isTrending = false;
     @Column(name = "total_slots")
     private Integer totalSlots;
 
-    @Column(name = "available_slots")
+    // written only by SlotInventory's deltas and the bulk queries; saving an
+    // edited event must not put back the value it was loaded with
+    @Column(name = "available_slots", updatable = false)
     private Integer availableSlots;
 
     @Column(name = "status")
     private String status;
 
+    @Column(name = "waiting_room_rate")
+    private Integer waitingRoomRate; // admissions per second while on sale, null = no waiting room
+
     @PrePersist
     public void prePersist() {
         if (this.eventId == null) {
@@ -0,0 +1,48 @@
+package com.ticketBooking.event.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A fixed-size slice of an event's seat bitmap (SeatMap.PAGE_SEATS seats).
+ * Only pages that changed are written back, so a sale touching one block
+ * of a 50k-seat venue rewrites a few hundred bytes, not the whole map.
+ */
+@Entity
+@Table(name = "seat_map_pages")
+@IdClass(SeatMapPage.PageId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatMapPage {
+
+    @Id
+    @Column(name = "event_id", columnDefinition = "uuid")
+    private UUID eventId;
+
+    @Id
+    @Column(name = "page_no")
+    private Integer pageNo;
+
+    @Column(name = "bits", nullable = false)
+    private byte[] bits; // big-endian longs, bit set = seat taken
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class PageId implements Serializable {
+        private UUID eventId;
+        private Integer pageNo;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ticketBooking.event.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * One block of assigned seating for an event (e.g. "GOLD", 10 rows x 40 seats).
+ * Sections with a lower sortOrder are offered first by best-available search.
+ */
+@Entity
+@Table(name = "seat_sections")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatSection {
+
+    @Id
+    @Column(name = "section_id", columnDefinition = "uuid")
+    private UUID sectionId;
+
+    @Column(name = "event_id", columnDefinition = "uuid", nullable = false)
+    private UUID eventId;
+
+    @Column(nullable = false, length = 64)
+    private String name;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    @Column(name = "seats_per_row", nullable = false)
+    private Integer seatsPerRow;
+
+    @Column(name = "sort_order", nullable = false)
+    private Integer sortOrder;
+
+    @PrePersist
+    public void prePersist() {
+        if (sectionId == null)
+            sectionId = UUID.randomUUID();
+    }
+}
@@ -60,4 +60,27 @@ public interface EventRepository extends JpaRepository<Event, UUID> {
        @Query("UPDATE Event e SET e.availableSlots = e.availableSlots - 1 WHERE e.eventId = :id AND COALESCE(e.availableSlots,0) > 0")
        int decrementAvailableSlotsIfPresent(@Param("id") UUID id);
 
+       // only total_slots, so a concurrent slot delta is not overwritten
+       @Modifying
+       @Transactional
+       @Query("UPDATE Event e SET e.totalSlots = :total WHERE e.eventId = :id")
+       int setTotalSlots(@Param("id") UUID id, @Param("total") int total);
+
+       @Modifying
+       @Transactional
+       @Query("UPDATE Event e SET e.waitingRoomRate = :rate WHERE e.eventId = :id")
+       int setWaitingRoomRate(@Param("id") UUID id, @Param("rate") Integer rate);
+
+       // Startup reconciliation for SlotInventory: available = total - confirmed bookings
+       @Modifying
+       @Transactional
+       @Query(value = """
+              UPDATE events e
+              SET available_slots = GREATEST(e.total_slots - (
+                     SELECT COUNT(*) FROM bookings b
+                     WHERE b.event_id = e.event_id AND b.status = 'CONFIRMED'), 0)
+              WHERE e.total_slots IS NOT NULL
+              """, nativeQuery = true)
+       int reconcileAvailableSlots();
+
 }
@@ -0,0 +1,16 @@
+package com.ticketBooking.event.repository;
+
+import com.ticketBooking.event.model.SeatMapPage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SeatMapPageRepository extends JpaRepository<SeatMapPage, SeatMapPage.PageId> {
+
+       List<SeatMapPage> findByEventId(UUID eventId);
+
+       void deleteByEventId(UUID eventId);
+}
@@ -0,0 +1,16 @@
+package com.ticketBooking.event.repository;
+
+import com.ticketBooking.event.model.SeatSection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SeatSectionRepository extends JpaRepository<SeatSection, UUID> {
+
+       List<SeatSection> findByEventIdOrderBySortOrderAsc(UUID eventId);
+
+       void deleteByEventId(UUID eventId);
+}
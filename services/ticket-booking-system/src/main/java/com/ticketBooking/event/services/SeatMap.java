@@ -0,0 +1,246 @@
+package com.ticketBooking.event.services;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory seat map for one event, one bit per seat (1 = taken) in a long[].
+ *
+ * Seats are numbered section by section (best section first), row by row,
+ * so index order is preference order: best-available is the first free bits,
+ * and an adjacent block is the first run of n clear bits inside one row.
+ * Both searches work a 64-seat word at a time.
+ *
+ * The bitmap is persisted in pages of PAGE_SEATS seats; every mutation marks
+ * its page dirty so SeatMapService can write back only what changed.
+ */
+public class SeatMap {
+
+    public static final int PAGE_SEATS = 4096;
+    private static final int PAGE_WORDS = PAGE_SEATS / 64;
+
+    public record Section(String name, int rows, int seatsPerRow) {
+    }
+
+    private final List<Section> sections;
+    private final int[] sectionOffset;
+    private final Map<String, Integer> sectionIndex = new HashMap<>();
+    private final int capacity;
+    private final long[] taken;
+    private final BitSet dirtyPages = new BitSet();
+    private int free;
+
+    public SeatMap(List<Section> sections) {
+        this.sections = List.copyOf(sections);
+        this.sectionOffset = new int[sections.size()];
+        int offset = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            Section s = sections.get(i);
+            if (s.rows() <= 0 || s.seatsPerRow() <= 0)
+                throw new IllegalArgumentException("Section " + s.name() + " must have rows and seats");
+            if (sectionIndex.put(s.name(), i) != null)
+                throw new IllegalArgumentException("Duplicate section " + s.name());
+            sectionOffset[i] = offset;
+            offset += s.rows() * s.seatsPerRow();
+        }
+        this.capacity = offset;
+        this.taken = new long[(capacity + 63) >>> 6];
+        this.free = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized int free() {
+        return free;
+    }
+
+    public List<Section> sections() {
+        return sections;
+    }
+
+    /**
+     * Find n seats without taking them. With adjacent=true the seats are one
+     * contiguous block in a single row. Returns null if nothing fits.
+     */
+    public synchronized int[] find(int n, boolean adjacent) {
+        if (n <= 0 || n > free)
+            return null;
+        return adjacent ? findAdjacent(n) : findBest(n);
+    }
+
+    /** find + take in one step. */
+    public synchronized int[] allocate(int n, boolean adjacent) {
+        int[] seats = find(n, adjacent);
+        if (seats != null)
+            mark(seats, true);
+        return seats;
+    }
+
+    /** Take exactly these seats; all-or-nothing. A seat named twice fails the lot. */
+    public synchronized boolean take(int[] seats) {
+        BitSet named = new BitSet(capacity);
+        for (int s : seats) {
+            if (s < 0 || s >= capacity || isTaken(s) || named.get(s))
+                return false;
+            named.set(s);
+        }
+        mark(seats, true);
+        return true;
+    }
+
+    public synchronized void release(int[] seats) {
+        BitSet held = new BitSet(capacity);
+        for (int s : seats) {
+            if (s >= 0 && s < capacity && isTaken(s))
+                held.set(s);
+        }
+        mark(held.stream().toArray(), false);
+    }
+
+    public synchronized boolean isTaken(int seat) {
+        return (taken[seat >>> 6] & (1L << seat)) != 0;
+    }
+
+    /** "SECTION-row-seat", rows and seats counted from 1. */
+    public String label(int seat) {
+        int i = sections.size() - 1;
+        while (sectionOffset[i] > seat)
+            i--;
+        Section s = sections.get(i);
+        int local = seat - sectionOffset[i];
+        return s.name() + "-" + (local / s.seatsPerRow() + 1) + "-" + (local % s.seatsPerRow() + 1);
+    }
+
+    /** Inverse of {@link #label}; -1 if the label does not name a seat. */
+    public int seatOf(String label) {
+        if (label == null)
+            return -1;
+        int seatDash = label.lastIndexOf('-');
+        int rowDash = seatDash > 0 ? label.lastIndexOf('-', seatDash - 1) : -1;
+        if (rowDash <= 0)
+            return -1;
+        Integer i = sectionIndex.get(label.substring(0, rowDash));
+        if (i == null)
+            return -1;
+        try {
+            int row = Integer.parseInt(label.substring(rowDash + 1, seatDash)) - 1;
+            int col = Integer.parseInt(label.substring(seatDash + 1)) - 1;
+            Section s = sections.get(i);
+            if (row < 0 || row >= s.rows() || col < 0 || col >= s.seatsPerRow())
+                return -1;
+            return sectionOffset[i] + row * s.seatsPerRow() + col;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /* -------------------- persistence pages -------------------- */
+
+    public int pageCount() {
+        return (taken.length + PAGE_WORDS - 1) / PAGE_WORDS;
+    }
+
+    public synchronized byte[] pageBytes(int page) {
+        int from = page * PAGE_WORDS;
+        int to = Math.min(from + PAGE_WORDS, taken.length);
+        ByteBuffer buf = ByteBuffer.allocate((to - from) * 8);
+        for (int w = from; w < to; w++)
+            buf.putLong(taken[w]);
+        return buf.array();
+    }
+
+    public synchronized void loadPage(int page, byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        int w = page * PAGE_WORDS;
+        while (buf.remaining() >= 8 && w < taken.length) {
+            long word = buf.getLong();
+            free += Long.bitCount(taken[w]) - Long.bitCount(word);
+            taken[w++] = word;
+        }
+    }
+
+    /** Pages changed since the last call; clears the dirty set. */
+    public synchronized int[] drainDirtyPages() {
+        int[] pages = dirtyPages.stream().toArray();
+        dirtyPages.clear();
+        return pages;
+    }
+
+    public synchronized void markDirty(int page) {
+        dirtyPages.set(page);
+    }
+
+    /* -------------------- search -------------------- */
+
+    private int[] findBest(int n) {
+        int[] seats = new int[n];
+        int k = 0;
+        for (int w = 0; w < taken.length && k < n; w++) {
+            long freeBits = ~taken[w];
+            if (w == taken.length - 1 && (capacity & 63) != 0)
+                freeBits &= (1L << (capacity & 63)) - 1;
+            while (freeBits != 0 && k < n) {
+                seats[k++] = (w << 6) + Long.numberOfTrailingZeros(freeBits);
+                freeBits &= freeBits - 1;
+            }
+        }
+        return k == n ? seats : null;
+    }
+
+    /**
+     * For every word, the start positions of n free seats in a row are
+     * ~taken & (~taken >>> 1) & ... & (~taken >>> n-1), borrowing the high
+     * bits from the next word. Only the surviving candidates are checked
+     * against row boundaries, so a nearly full venue costs ~n ops per word.
+     */
+    private int[] findAdjacent(int n) {
+        if (n > 64)
+            return null;
+        for (int i = 0; i < sections.size(); i++) {
+            Section s = sections.get(i);
+            if (s.seatsPerRow() < n)
+                continue;
+            int from = sectionOffset[i];
+            int to = from + s.rows() * s.seatsPerRow();
+            for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+                long lo = ~taken[w];
+                long hi = w + 1 < taken.length ? ~taken[w + 1] : 0L;
+                long starts = lo;
+                for (int j = 1; j < n && starts != 0; j++)
+                    starts &= (lo >>> j) | (hi << (64 - j));
+                if (w == from >>> 6)
+                    starts &= -1L << (from & 63);
+
+                while (starts != 0) {
+                    int at = (w << 6) + Long.numberOfTrailingZeros(starts);
+                    if (at + n > to)
+                        break;
+                    if ((at - from) % s.seatsPerRow() <= s.seatsPerRow() - n) {
+                        int[] seats = new int[n];
+                        for (int k = 0; k < n; k++)
+                            seats[k] = at + k;
+                        return seats;
+                    }
+                    starts &= starts - 1;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void mark(int[] seats, boolean value) {
+        for (int s : seats) {
+            if (value)
+                taken[s >>> 6] |= 1L << s;
+            else
+                taken[s >>> 6] &= ~(1L << s);
+            dirtyPages.set((s >>> 6) / PAGE_WORDS);
+        }
+        free += value ? -seats.length : seats.length;
+    }
+}
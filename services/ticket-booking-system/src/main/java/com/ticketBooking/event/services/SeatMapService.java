@@ -0,0 +1,260 @@
+package com.ticketBooking.event.services;
+
+import com.ticketBooking.booking.repository.BookingRepository;
+import com.ticketBooking.booking.service.SlotInventory;
+import com.ticketBooking.event.model.Event;
+import com.ticketBooking.event.model.SeatMapPage;
+import com.ticketBooking.event.model.SeatSection;
+import com.ticketBooking.event.repository.EventRepository;
+import com.ticketBooking.event.repository.SeatMapPageRepository;
+import com.ticketBooking.event.repository.SeatSectionRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the in-memory SeatMap of every event with assigned seating.
+ *
+ * A map is loaded on first use from its sections and persisted pages, then
+ * checked against the bookings ledger (CONFIRMED bookings own their seats;
+ * holds do not survive a restart). Seat changes only touch memory; dirty
+ * pages are written back by a scheduled flush.
+ *
+ * Events without sections are unseated: allocate() returns an empty list and
+ * the slot counter alone decides availability.
+ */
+@Service
+public class SeatMapService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatMapService.class);
+
+    private static final List<String> LIVE_STATUSES = List.of("PENDING", "PAID", "CONFIRMED", "QUEUED");
+
+    private final SeatSectionRepository sectionRepository;
+    private final SeatMapPageRepository pageRepository;
+    private final BookingRepository bookingRepository;
+    private final EventRepository eventRepository;
+    private final SlotInventory slotInventory;
+
+    // Optional.empty() caches "this event has no seat map"
+    private final Map<UUID, Optional<SeatMap>> maps = new ConcurrentHashMap<>();
+
+    public SeatMapService(SeatSectionRepository sectionRepository,
+                          SeatMapPageRepository pageRepository,
+                          BookingRepository bookingRepository,
+                          EventRepository eventRepository,
+                          SlotInventory slotInventory) {
+        this.sectionRepository = sectionRepository;
+        this.pageRepository = pageRepository;
+        this.bookingRepository = bookingRepository;
+        this.eventRepository = eventRepository;
+        this.slotInventory = slotInventory;
+    }
+
+    public boolean hasSeatMap(UUID eventId) {
+        return map(eventId).isPresent();
+    }
+
+    public Optional<SeatMap> seatMap(UUID eventId) {
+        return map(eventId);
+    }
+
+    /**
+     * Take n seats. With adjacent=true they are side by side in one row.
+     * Returns the seat labels, an empty list for unseated events, or null if
+     * no fitting seats are left.
+     */
+    public List<String> allocate(UUID eventId, int n, boolean adjacent) {
+        SeatMap map = map(eventId).orElse(null);
+        if (map == null)
+            return List.of();
+        int[] seats = map.allocate(n, adjacent);
+        if (seats == null)
+            return null;
+        List<String> labels = new ArrayList<>(n);
+        for (int s : seats)
+            labels.add(map.label(s));
+        return labels;
+    }
+
+    /**
+     * Take the given seats again after their hold lapsed; a null entry gets
+     * the best available seat instead. All-or-nothing: returns the resolved
+     * labels, or null if any named seat has been resold or nothing is left.
+     */
+    public List<String> retake(UUID eventId, List<String> labels) {
+        SeatMap map = map(eventId).orElse(null);
+        if (map == null)
+            return labels;
+        synchronized (map) {
+            int unassigned = 0;
+            List<Integer> named = new ArrayList<>();
+            for (String label : labels) {
+                if (label == null) {
+                    unassigned++;
+                    continue;
+                }
+                int seat = map.seatOf(label);
+                if (seat < 0 || map.isTaken(seat))
+                    return null;
+                named.add(seat);
+            }
+            int[] namedSeats = named.stream().mapToInt(Integer::intValue).toArray();
+            if (!map.take(namedSeats))
+                return null;
+            int[] extra = unassigned == 0 ? new int[0] : map.allocate(unassigned, false);
+            if (extra == null) {
+                map.release(namedSeats);
+                return null;
+            }
+            List<String> resolved = new ArrayList<>(labels.size());
+            int e = 0;
+            for (String label : labels)
+                resolved.add(label != null ? label : map.label(extra[e++]));
+            return resolved;
+        }
+    }
+
+    public void release(UUID eventId, List<String> labels) {
+        if (labels == null || labels.isEmpty())
+            return;
+        SeatMap map = map(eventId).orElse(null);
+        if (map == null)
+            return;
+        int[] seats = labels.stream()
+                .mapToInt(map::seatOf)
+                .filter(s -> s >= 0)
+                .toArray();
+        map.release(seats);
+    }
+
+    /**
+     * Replace the seat layout of an event. Only allowed while nobody holds a
+     * booking for it. The event's total slots become the seat count.
+     */
+    @Transactional
+    public SeatMap defineLayout(UUID eventId, List<SeatMap.Section> sections) {
+        if (sections == null || sections.isEmpty())
+            throw new RuntimeException("At least one section is required");
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new RuntimeException("Event not found"));
+        if (bookingRepository.countByEventIdAndStatusIn(eventId, LIVE_STATUSES) > 0)
+            throw new RuntimeException("Seat map cannot be changed once bookings exist");
+
+        SeatMap map = new SeatMap(sections);
+
+        sectionRepository.deleteByEventId(eventId);
+        pageRepository.deleteByEventId(eventId);
+        List<SeatSection> rows = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            SeatMap.Section s = sections.get(i);
+            rows.add(SeatSection.builder()
+                    .eventId(eventId)
+                    .name(s.name())
+                    .rowCount(s.rows())
+                    .seatsPerRow(s.seatsPerRow())
+                    .sortOrder(i)
+                    .build());
+        }
+        sectionRepository.saveAll(rows);
+        for (int p = 0; p < map.pageCount(); p++)
+            map.markDirty(p);
+
+        // available_slots moves through the inventory's deltas, not the entity
+        int oldTotal = event.getTotalSlots() != null ? event.getTotalSlots() : 0;
+        eventRepository.setTotalSlots(eventId, map.capacity());
+        slotInventory.adjust(eventId, map.capacity() - oldTotal);
+
+        maps.put(eventId, Optional.of(map));
+        log.info("SeatMapService: event {} now has {} seats in {} sections", eventId, map.capacity(), sections.size());
+        return map;
+    }
+
+    /**
+     * Write changed pages back to seat_map_pages.
+     */
+    @Scheduled(fixedDelayString = "${seatmap.flush-interval-ms:1000}")
+    public void flush() {
+        for (Map.Entry<UUID, Optional<SeatMap>> e : maps.entrySet()) {
+            SeatMap map = e.getValue().orElse(null);
+            if (map == null)
+                continue;
+            int[] dirty = map.drainDirtyPages();
+            if (dirty.length == 0)
+                continue;
+
+            LocalDateTime now = LocalDateTime.now();
+            List<SeatMapPage> pages = new ArrayList<>(dirty.length);
+            for (int p : dirty)
+                pages.add(new SeatMapPage(e.getKey(), p, map.pageBytes(p), now));
+            try {
+                pageRepository.saveAll(pages);
+            } catch (Exception ex) {
+                for (int p : dirty)
+                    map.markDirty(p);
+                log.warn("SeatMapService: flush of {} pages for event {} failed, will retry", dirty.length, e.getKey(), ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Optional<SeatMap> map(UUID eventId) {
+        Optional<SeatMap> cached = maps.get(eventId);
+        if (cached != null)
+            return cached;
+        return maps.computeIfAbsent(eventId, this::load);
+    }
+
+    private Optional<SeatMap> load(UUID eventId) {
+        List<SeatSection> rows = sectionRepository.findByEventIdOrderBySortOrderAsc(eventId);
+        if (rows.isEmpty())
+            return Optional.empty();
+
+        SeatMap map = new SeatMap(rows.stream()
+                .map(r -> new SeatMap.Section(r.getName(), r.getRowCount(), r.getSeatsPerRow()))
+                .toList());
+        for (SeatMapPage page : pageRepository.findByEventId(eventId)) {
+            if (page.getPageNo() < map.pageCount())
+                map.loadPage(page.getPageNo(), page.getBits());
+        }
+
+        // the ledger wins: drop seats nobody owns, take back seats that were never flushed
+        Set<Integer> owned = new HashSet<>();
+        for (String label : bookingRepository.findConfirmedSeatLabels(eventId)) {
+            int seat = map.seatOf(label);
+            if (seat >= 0)
+                owned.add(seat);
+        }
+        List<Integer> stale = new ArrayList<>();
+        for (int s = 0; s < map.capacity(); s++) {
+            if (map.isTaken(s) && !owned.contains(s))
+                stale.add(s);
+        }
+        List<Integer> missing = owned.stream().filter(s -> !map.isTaken(s)).toList();
+        map.release(stale.stream().mapToInt(Integer::intValue).toArray());
+        map.take(missing.stream().mapToInt(Integer::intValue).toArray());
+        if (!stale.isEmpty() || !missing.isEmpty())
+            log.info("SeatMapService: event {} reconciled, freed {} and restored {} seats",
+                    eventId, stale.size(), missing.size());
+        return Optional.of(map);
+    }
+}
@@ -20,6 +20,7 @@ public class CorsConfig {
         config.setAllowedOrigins(Arrays.asList("http://localhost:5173"));
         config.addAllowedHeader("*");
         config.addAllowedMethod("*");
+        config.addExposedHeader("X-Next-Cursor");
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
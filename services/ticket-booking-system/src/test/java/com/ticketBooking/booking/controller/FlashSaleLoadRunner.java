@@ -0,0 +1,213 @@
+package com.ticketBooking.booking.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end flash sale against a running instance started with
+ * payment.gateway=simulator: every user fires /order, pays through the
+ * simulator, calls /verify, and a seeded share of them cancels again. Prints
+ * throughput and per-step latency percentiles.
+ *
+ * Start the app with e.g.
+ *   -Dpayment.gateway=simulator -Dpayment.simulator.latency-median-ms=80 -Dpayment.simulator.seed=42
+ * (RZP_KEY_ID / RZP_KEY_SECRET may be any dummy values; QR_URL_SECRET,
+ * TICKET_SIGNING_SECRET and WAITING_ROOM_SECRET must be set and differ from
+ * them), create an event with enough slots as an organizer, then run:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.ticketBooking.booking.controller.FlashSaleLoadRunner
+ *       -Dload.event-id=... [-Dload.base-url=http://localhost:8080 -Dload.users=500 -Dload.amount=100
+ *        -Dload.cancel-rate=0.1 -Dload.seed=42]
+ *
+ * Users load-N@sim.local are registered on first use and reused afterwards.
+ */
+public class FlashSaleLoadRunner {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+
+    FlashSaleLoadRunner(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String eventId = System.getProperty("load.event-id");
+        if (eventId == null)
+            throw new IllegalArgumentException("-Dload.event-id is required");
+        int users = Integer.getInteger("load.users", 500);
+        int amount = Integer.getInteger("load.amount", 100);
+        double cancelRate = Double.parseDouble(System.getProperty("load.cancel-rate", "0.1"));
+        long seed = Long.getLong("load.seed", 42L);
+
+        FlashSaleLoadRunner runner = new FlashSaleLoadRunner(System.getProperty("load.base-url", "http://localhost:8080"));
+
+        List<String> tokens = runner.login(users);
+        Random random = new Random(seed);
+        boolean[] cancels = new boolean[users];
+        for (int i = 0; i < users; i++)
+            cancels[i] = random.nextDouble() < cancelRate;
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(users);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                String token = tokens.get(i);
+                boolean cancel = cancels[i];
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        runner.flow(token, eventId, amount, cancel);
+                    } catch (Exception ex) {
+                        runner.count("error: " + ex.getClass().getSimpleName());
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            done.await();
+            runner.report(users, (System.nanoTime() - began) / 1e9);
+        }
+    }
+
+    private List<String> login(int users) throws Exception {
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>(Collections.nCopies(users, null)));
+        try (ExecutorService pool = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < users; i++) {
+                int n = i;
+                pool.execute(() -> {
+                    String email = "load-" + n + "@sim.local";
+                    try {
+                        post("/api/auth/register", null, Map.of("name", "Load " + n, "email", email,
+                                "phone", "9" + String.format("%09d", n), "dob", "1990-01-01", "password", "load-pass"));
+                        JsonNode login = post("/api/auth/login", null, Map.of("email", email, "password", "load-pass"))
+                                .body();
+                        tokens.set(n, login.get("token").asText());
+                    } catch (Exception ex) {
+                        throw new IllegalStateException("Login of " + email + " failed", ex);
+                    }
+                });
+            }
+        }
+        if (tokens.contains(null))
+            throw new IllegalStateException("Not every user could log in");
+        return tokens;
+    }
+
+    private void flow(String token, String eventId, int amount, boolean cancel) throws Exception {
+        Result order = timed("order", () -> post("/api/booking/order", token,
+                Map.of("eventId", eventId, "amount", amount, "quantity", 1)));
+        if (order.status() == 409) {
+            count("sold out");
+            return;
+        }
+        if (order.status() != 200) {
+            count("order " + order.status());
+            return;
+        }
+        String orderId = order.body().get("orderId").asText();
+        String bookingId = order.body().get("bookingId").asText();
+
+        Result paid = timed("pay", () -> post("/api/booking/simulator/orders/" + orderId + "/pay", token, Map.of()));
+        if (paid.status() != 200) {
+            count("pay " + paid.status());
+            return;
+        }
+        String paymentId = paid.body().get("paymentId").asText();
+
+        Result verified = timed("verify", () -> post("/api/booking/verify?orderId=" + orderId + "&paymentId="
+                + paymentId, token, null));
+        if (verified.status() != 200) {
+            count("verify " + verified.status());
+            return;
+        }
+        count("confirmed");
+
+        if (cancel) {
+            Result cancelled = timed("cancel", () -> post("/api/booking/" + bookingId + "/cancel", token, null));
+            count(cancelled.status() == 200 ? "cancelled" : "cancel " + cancelled.status());
+        }
+    }
+
+    private record Result(int status, JsonNode body) {
+    }
+
+    private interface Call {
+        Result run() throws Exception;
+    }
+
+    private Result timed(String step, Call call) throws Exception {
+        long t0 = System.nanoTime();
+        try {
+            return call.run();
+        } finally {
+            latencies.computeIfAbsent(step, s -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - t0);
+        }
+    }
+
+    private Result post(String path, String token, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(body)));
+        if (token != null)
+            request.header("Authorization", "Bearer " + token);
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        JsonNode json;
+        try {
+            json = JSON.readTree(response.body());
+        } catch (Exception notJson) {
+            json = JSON.getNodeFactory().textNode(response.body());
+        }
+        return new Result(response.statusCode(), json);
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, o -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private void report(int users, double seconds) {
+        int confirmed = outcomes.getOrDefault("confirmed", new AtomicInteger()).get();
+        System.out.printf("%d users in %.2f s: %.1f flows/s, %.1f confirmations/s%n",
+                users, seconds, users / seconds, confirmed / seconds);
+        outcomes.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(e -> System.out.printf("  %-16s %d%n", e.getKey(), e.getValue().get()));
+        for (String step : List.of("order", "pay", "verify", "cancel")) {
+            ConcurrentLinkedQueue<Long> samples = latencies.get(step);
+            if (samples == null || samples.isEmpty())
+                continue;
+            List<Long> sorted = new ArrayList<>(samples);
+            Collections.sort(sorted);
+            System.out.printf("  %-7s n=%-6d p50=%6.1f ms  p95=%6.1f ms  p99=%6.1f ms%n", step, sorted.size(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99));
+        }
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        int i = (int) Math.min(sorted.size() - 1, Math.ceil(p * sorted.size()) - 1);
+        return sorted.get(Math.max(0, i)) / 1e6;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.Booking;
+import com.ticketBooking.event.services.SeatMapService;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingConfirmationPipelineTest {
+
+	// nothing below is touched for orders without a confirmable booking
+	private final BookingConfirmationPipeline pipeline = new BookingConfirmationPipeline(null, null, null, null,
+			null, null, null, null, null, 0, 256, 1);
+
+	private static Booking booking(UUID eventId, String status) {
+		return Booking.builder().bookingId(UUID.randomUUID()).eventId(eventId).userId(1).orderId("order_1")
+				.status(status).build();
+	}
+
+	private static Map<String, Object> row(Booking b, String status) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("booking_id", b.getBookingId());
+		row.put("status", status);
+		row.put("seat_label", "A-1-1");
+		row.put("qr_payload", "tkt_other");
+		row.put("qr_code", "/qr/other");
+		return row;
+	}
+
+	@Test
+	void ordersChangedSinceTheSnapshotAreNotReportedConfirmed() {
+		UUID eventId = UUID.randomUUID();
+		Booking open = booking(eventId, "PENDING");
+		Booking cancelled = booking(eventId, "PENDING"); // cancelled after the caller loaded it
+		Booking reaped = booking(eventId, "PENDING");
+		Booking elsewhere = booking(eventId, "PAID"); // confirmed by the promotion path meanwhile
+		List<Map<String, Object>> rows = List.of(row(open, "PENDING"), row(cancelled, "CANCELLED"),
+				row(elsewhere, "CONFIRMED"));
+
+		Map<String, List<Object[]>> batches = new HashMap<>();
+		JdbcTemplate jdbc = new JdbcTemplate() {
+			@Override
+			public List<Map<String, Object>> queryForList(String sql, Object... args) {
+				return rows;
+			}
+
+			@Override
+			public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+				batches.put(sql.trim().substring(0, 20), batchArgs);
+				return new int[batchArgs.size()];
+			}
+		};
+		TransactionTemplate inline = new TransactionTemplate() {
+			@Override
+			public <T> T execute(TransactionCallback<T> action) {
+				return action.doInTransaction((TransactionStatus) null);
+			}
+		};
+		AtomicInteger released = new AtomicInteger();
+		SlotInventory inventory = new SlotInventory(null, null) {
+			@Override
+			public int tryReserveUpTo(UUID id, int n) {
+				return n;
+			}
+
+			@Override
+			public void release(UUID id, int n) {
+				released.addAndGet(n);
+			}
+		};
+		SlotHoldService holds = new SlotHoldService(inventory, null, 600, 1000) {
+			@Override
+			public int consume(String orderId) {
+				return 0;
+			}
+		};
+		List<List<String>> seatsReleased = new ArrayList<>();
+		SeatMapService seats = new SeatMapService(null, null, null, null, null) {
+			@Override
+			public List<String> retake(UUID id, List<String> labels) {
+				return labels;
+			}
+
+			@Override
+			public void release(UUID id, List<String> labels) {
+				seatsReleased.add(labels);
+			}
+		};
+		List<UUID> rendered = new ArrayList<>();
+		QrRenderService qr = new QrRenderService(null, 1, 1, 0, 0, "qr-secret", "") {
+			@Override
+			public void renderLater(UUID bookingId, String payload) {
+				rendered.add(bookingId);
+			}
+		};
+		BookingConfirmationPipeline pipeline = new BookingConfirmationPipeline(inventory, holds, seats, qr,
+				new TicketTokenService("ticket-secret", ""), new BookingHistoryCache(null, null, 10, 2),
+				new WaitlistIndex(null), jdbc, inline, 200, 256, 1);
+		try {
+			CompletableFuture<BookingConfirmationPipeline.Result> a = pipeline.submit("order_a", List.of(open), "pay_a");
+			CompletableFuture<BookingConfirmationPipeline.Result> b = pipeline.submit("order_b", List.of(cancelled), "pay_b");
+			CompletableFuture<BookingConfirmationPipeline.Result> c = pipeline.submit("order_c", List.of(reaped), "pay_c");
+			CompletableFuture<BookingConfirmationPipeline.Result> d = pipeline.submit("order_d", List.of(elsewhere), "pay_d");
+
+			assertEquals(BookingConfirmationPipeline.Outcome.CONFIRMED, a.join().outcome());
+			assertEquals(BookingConfirmationPipeline.Outcome.CLOSED, b.join().outcome());
+			assertEquals(BookingConfirmationPipeline.Outcome.CLOSED, c.join().outcome());
+			BookingConfirmationPipeline.Result other = d.join();
+			assertEquals(BookingConfirmationPipeline.Outcome.ALREADY_CONFIRMED, other.outcome());
+			assertEquals("tkt_other", other.tickets().get(0).qrPayload());
+
+			// only the open order is written, its queue row too
+			List<Object[]> confirms = batches.get("UPDATE bookings SET ");
+			assertEquals(1, confirms.size());
+			assertEquals(open.getBookingId(), confirms.get(0)[4]);
+			assertEquals(1, batches.get("UPDATE event_queue S").size());
+			assertEquals(List.of(open.getBookingId()), rendered);
+
+			// four slots granted, three handed back; seats of the closed orders too
+			assertEquals(3, released.get());
+			assertEquals(3, seatsReleased.size());
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	void verifyAfterCancelDoesNotConfirmAgain() {
+		UUID eventId = UUID.randomUUID();
+		BookingConfirmationPipeline.Result cancelled = pipeline
+				.submit("order_1", List.of(booking(eventId, "CANCELLED")), "pay_1").join();
+		assertEquals(BookingConfirmationPipeline.Outcome.CLOSED, cancelled.outcome());
+		assertTrue(cancelled.tickets().isEmpty());
+
+		BookingConfirmationPipeline.Result failed = pipeline
+				.submit("order_2", List.of(booking(eventId, "FAILED_NO_SLOTS")), "pay_2").join();
+		assertEquals(BookingConfirmationPipeline.Outcome.CLOSED, failed.outcome());
+		pipeline.shutdown();
+	}
+
+	@Test
+	void partlyCancelledOrderOnlyReturnsItsConfirmedTickets() {
+		UUID eventId = UUID.randomUUID();
+		Booking kept = booking(eventId, "CONFIRMED");
+		BookingConfirmationPipeline.Result result = pipeline
+				.submit("order_1", List.of(kept, booking(eventId, "CANCELLED")), "pay_1").join();
+		assertEquals(BookingConfirmationPipeline.Outcome.ALREADY_CONFIRMED, result.outcome());
+		assertEquals(List.of(kept.getBookingId()), result.tickets().stream()
+				.map(BookingConfirmationPipeline.Ticket::bookingId).toList());
+		pipeline.shutdown();
+	}
+
+	@Test
+	void onlyOpenStatesAreConfirmable() {
+		UUID eventId = UUID.randomUUID();
+		for (String status : List.of("PENDING", "CREATED", "PAID"))
+			assertTrue(BookingConfirmationPipeline.isConfirmable(booking(eventId, status)), status);
+		for (String status : List.of("CONFIRMED", "CANCELLED", "FAILED_NO_SLOTS"))
+			assertFalse(BookingConfirmationPipeline.isConfirmable(booking(eventId, status)), status);
+	}
+}
@@ -0,0 +1,61 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.repository.BookingHistoryRepository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingHistoryCacheTest {
+
+	@Test
+	void servesFromCacheUntilTheUserWrites() {
+		AtomicInteger reads = new AtomicInteger();
+		BookingHistoryRepository repo = new BookingHistoryRepository(null) {
+			@Override
+			public Page findPage(Integer userId, String status, String cursor, int limit) {
+				reads.incrementAndGet();
+				return new Page(List.of(), null);
+			}
+		};
+		BookingHistoryCache cache = new BookingHistoryCache(repo, null, 100, 4);
+
+		String etag = cache.page(1, null, null, 50).etag();
+		assertEquals(etag, cache.page(1, null, null, 50).etag());
+		assertEquals(etag, cache.etag(1));
+		assertEquals(1, reads.get());
+
+		cache.invalidate(2); // another user
+		cache.page(1, null, null, 50);
+		assertEquals(1, reads.get());
+
+		cache.invalidate(1);
+		String fresh = cache.page(1, null, null, 50).etag();
+		assertNotEquals(etag, fresh);
+		assertEquals(2, reads.get());
+	}
+
+	@Test
+	void dropsAPageWhoseUserWroteDuringTheRead() {
+		AtomicInteger reads = new AtomicInteger();
+		BookingHistoryCache[] cache = new BookingHistoryCache[1];
+		BookingHistoryRepository repo = new BookingHistoryRepository(null) {
+			@Override
+			public Page findPage(Integer userId, String status, String cursor, int limit) {
+				if (reads.incrementAndGet() == 1)
+					cache[0].invalidate(userId); // a booking commits mid-read
+				return new Page(List.of(), null);
+			}
+		};
+		cache[0] = new BookingHistoryCache(repo, null, 100, 4);
+
+		cache[0].page(7, "CONFIRMED", null, 20);
+		cache[0].page(7, "CONFIRMED", null, 20);
+		assertEquals(2, reads.get());
+		cache[0].page(7, "CONFIRMED", null, 20);
+		assertEquals(2, reads.get());
+	}
+}
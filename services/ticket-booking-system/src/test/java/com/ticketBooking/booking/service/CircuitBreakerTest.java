@@ -0,0 +1,33 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+	@Test
+	void opensAfterConsecutiveFailuresAndLetsOneTrialThroughLater() {
+		CircuitBreaker breaker = new CircuitBreaker(3, 1_000);
+
+		breaker.failure(0);
+		breaker.failure(0);
+		breaker.success(); // the run is broken
+		breaker.failure(0);
+		breaker.failure(0);
+		assertTrue(breaker.allow(0));
+		breaker.failure(10);
+		assertTrue(breaker.isOpen());
+		assertFalse(breaker.allow(500));
+
+		assertTrue(breaker.allow(1_010)); // the trial
+		assertFalse(breaker.allow(1_020)); // only one at a time
+		breaker.failure(1_030);
+		assertFalse(breaker.allow(1_500)); // reopened for another period
+
+		assertTrue(breaker.allow(2_030));
+		breaker.success();
+		assertFalse(breaker.isOpen());
+		assertTrue(breaker.allow(2_040));
+	}
+}
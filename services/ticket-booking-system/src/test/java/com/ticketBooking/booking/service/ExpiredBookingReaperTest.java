@@ -0,0 +1,132 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiredBookingReaperTest {
+
+	private static final TransactionTemplate INLINE = new TransactionTemplate() {
+		@Override
+		public <T> T execute(TransactionCallback<T> action) {
+			return action.doInTransaction((TransactionStatus) null);
+		}
+	};
+
+	private final UUID eventId = UUID.randomUUID();
+
+	/**
+	 * Serves the scan a page at a time from rows sorted by created_at, records
+	 * the keyset it was asked for and deletes whatever was not paid meanwhile.
+	 */
+	private final class Table extends JdbcTemplate {
+		final List<Map<String, Object>> rows = new ArrayList<>();
+		final Set<UUID> paidMeanwhile = new HashSet<>();
+		final List<Object> keysets = new ArrayList<>();
+		final List<UUID> deleted = new ArrayList<>();
+		final List<UUID> queueRowsDeleted = new ArrayList<>();
+
+		void add(String idKey, UUID id, UUID bookingId, String orderId, int minutesAgo) {
+			Map<String, Object> row = new HashMap<>();
+			row.put(idKey, id);
+			row.put("booking_id", bookingId);
+			row.put("order_id", orderId);
+			row.put("created_at", Timestamp.valueOf(LocalDateTime.now().minusMinutes(minutesAgo)));
+			rows.add(row);
+		}
+
+		@Override
+		public List<Map<String, Object>> queryForList(String sql, Object... args) {
+			if (sql.trim().startsWith("DELETE")) {
+				List<Map<String, Object>> gone = new ArrayList<>();
+				for (Object id : args) {
+					if (paidMeanwhile.contains(id))
+						continue;
+					deleted.add((UUID) id);
+					gone.add(Map.of("booking_id", id, "event_id", eventId, "user_id", 1));
+				}
+				return gone;
+			}
+			Timestamp lastTime = (Timestamp) args[1];
+			keysets.add(args[2]);
+			int limit = (Integer) args[3];
+			return rows.stream()
+					.filter(r -> ((Timestamp) r.get("created_at")).after(lastTime))
+					.limit(limit)
+					.toList();
+		}
+
+		@Override
+		public int update(String sql, Object... args) {
+			queueRowsDeleted.addAll(Arrays.stream(args).map(UUID.class::cast).toList());
+			return args.length;
+		}
+	}
+
+	private ExpiredBookingReaper reaper(Table table, WaitlistIndex index, Set<String> heldOrders) {
+		SlotHoldService holds = new SlotHoldService(null, null, 600, 1000) {
+			@Override
+			public boolean isHeld(String orderId) {
+				return heldOrders.contains(orderId);
+			}
+		};
+		return new ExpiredBookingReaper(table, INLINE, holds, index, new BookingHistoryCache(null, null, 10, 2),
+				60, 1440, 2, 200);
+	}
+
+	@Test
+	void pendingBookingsAreReapedPageByPageSkippingHeldAndPaidOnes() {
+		Table table = new Table();
+		List<UUID> ids = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			UUID id = UUID.randomUUID();
+			ids.add(id);
+			table.add("booking_id", id, id, "order_" + i, 500 - i);
+		}
+		table.paidMeanwhile.add(ids.get(3));
+		ExpiredBookingReaper reaper = reaper(table, new WaitlistIndex(null), Set.of("order_1"));
+
+		assertEquals(3, reaper.reapPendingBookings(LocalDateTime.now()));
+		assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4)), table.deleted);
+		// batches of two, each resuming after the last row of the one before
+		assertEquals(Arrays.asList(new UUID(0, 0), ids.get(1), ids.get(3)), table.keysets);
+		assertTrue(table.queueRowsDeleted.isEmpty());
+		assertEquals(3, reaper.stats().bookingsReaped());
+	}
+
+	@Test
+	void reapedQueueEntriesLeaveTheWaitlist() {
+		Table table = new Table();
+		WaitlistIndex index = new WaitlistIndex(null);
+		UUID reaped = UUID.randomUUID();
+		UUID paid = UUID.randomUUID();
+		index.add(eventId, reaped, 1);
+		index.add(eventId, paid, 2);
+		table.add("queue_id", UUID.randomUUID(), reaped, null, 3000);
+		table.add("queue_id", UUID.randomUUID(), paid, null, 2900);
+		table.paidMeanwhile.add(paid);
+
+		ExpiredBookingReaper reaper = reaper(table, index, Set.of());
+		assertEquals(1, reaper.reapQueueEntries(LocalDateTime.now()));
+
+		// only the queue row of the deleted booking goes; the paid one keeps its place
+		assertEquals(List.of(reaped), table.queueRowsDeleted);
+		assertEquals(List.of(paid), index.peek(eventId, 10));
+		assertEquals(1, reaper.stats().queueEntriesReaped());
+	}
+}
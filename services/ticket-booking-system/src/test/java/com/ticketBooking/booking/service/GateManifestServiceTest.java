@@ -0,0 +1,33 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateManifestServiceTest {
+
+	private static final UUID A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+	private static final UUID B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+	private static final UUID C = UUID.fromString("00000000-0000-0000-0000-00000000000c");
+
+	@Test
+	void fingerprintMatchesWhatPostgresComputes() throws Exception {
+		// md5(string_agg(booking_id::text, ',' ORDER BY booking_id))
+		String expected = HexFormat.of().formatHex(MessageDigest.getInstance("MD5")
+				.digest((A + "," + B).getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(expected, GateManifestService.fingerprint(new UUID[] { A, B }));
+		assertNull(GateManifestService.fingerprint(new UUID[0]));
+	}
+
+	@Test
+	void oneCancelledAndOneConfirmedChangesTheFingerprint() {
+		// same count, different tickets: the gates must resync
+		assertNotEquals(GateManifestService.fingerprint(new UUID[] { A, B }),
+				GateManifestService.fingerprint(new UUID[] { A, C }));
+	}
+}
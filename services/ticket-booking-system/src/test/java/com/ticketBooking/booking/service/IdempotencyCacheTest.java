@@ -0,0 +1,99 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+	@Test
+	void retryGetsTheFirstResponse() {
+		IdempotencyCache cache = new IdempotencyCache(3600, 100, 1000);
+		AtomicInteger runs = new AtomicInteger();
+
+		ResponseEntity<?> first = cache.execute("u:/order", "k1", "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		ResponseEntity<?> retry = cache.execute("u:/order", "k1", "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		assertSame(first, retry);
+		assertEquals(1, runs.get());
+
+		// same key, other user or endpoint: a different request
+		cache.execute("v:/order", "k1", "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		cache.execute("u:/verify", "k1", "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		assertEquals(3, runs.get());
+
+		// no key: always runs
+		cache.execute("u:/order", null, "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		cache.execute("u:/order", null, "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		assertEquals(5, runs.get());
+	}
+
+	@Test
+	void keyReusedForAnotherBodyIsRejected() {
+		IdempotencyCache cache = new IdempotencyCache(3600, 100, 1000);
+		cache.execute("u:/order", "k1", "body-a", () -> ResponseEntity.ok("a"));
+
+		ResponseEntity<?> other = cache.execute("u:/order", "k1", "body-b", () -> ResponseEntity.ok("b"));
+		assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode());
+		assertEquals("a", cache.execute("u:/order", "k1", "body-a", () -> ResponseEntity.ok("c")).getBody());
+	}
+
+	@Test
+	void concurrentDuplicateWaitsForTheFirst() throws Exception {
+		IdempotencyCache cache = new IdempotencyCache(3600, 100, 5000);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() ->
+				cache.execute("u:/verify", "k1", "body", () -> {
+					runs.incrementAndGet();
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return ResponseEntity.ok("done");
+				}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<ResponseEntity<?>> duplicate = CompletableFuture.supplyAsync(() ->
+				cache.execute("u:/verify", "k1", "body", () -> ResponseEntity.ok(runs.incrementAndGet())));
+		Thread.sleep(100);
+		assertFalse(duplicate.isDone());
+
+		release.countDown();
+		assertEquals("done", first.get(5, TimeUnit.SECONDS).getBody());
+		assertEquals("done", duplicate.get(5, TimeUnit.SECONDS).getBody());
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void serverErrorsAreNotKept() {
+		IdempotencyCache cache = new IdempotencyCache(3600, 100, 1000);
+		AtomicInteger runs = new AtomicInteger();
+
+		ResponseEntity<?> failed = cache.execute("u:/order", "k1", "body", () -> {
+			runs.incrementAndGet();
+			return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+		});
+		assertEquals(HttpStatus.BAD_GATEWAY, failed.getStatusCode());
+
+		ResponseEntity<?> retry = cache.execute("u:/order", "k1", "body", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		assertEquals(HttpStatus.OK, retry.getStatusCode());
+		assertEquals(2, runs.get());
+
+		// a thrown exception is not kept either
+		assertThrows(IllegalStateException.class, () -> cache.execute("u:/order", "k2", "body", () -> {
+			throw new IllegalStateException("boom");
+		}));
+		assertEquals(HttpStatus.OK, cache.execute("u:/order", "k2", "body", () -> ResponseEntity.ok("ok")).getStatusCode());
+	}
+}
@@ -0,0 +1,48 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.service.PaymentReconciliationJob.Action;
+import com.ticketBooking.booking.service.PaymentReconciliationJob.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentReconciliationJobTest {
+
+	private static PaymentGateway.GatewayPayment payment(String id, String status, int amount, int refunded) {
+		return new PaymentGateway.GatewayPayment(id, "order_1", status, amount, refunded);
+	}
+
+	@Test
+	void paidBookingsAreConfirmedOnlyForCapturedPayments() {
+		assertEquals(Action.CONFIRM, PaymentReconciliationJob.decide(Kind.PAID_NOT_CONFIRMED, "pay_1", 10_000,
+				List.of(payment("pay_0", "failed", 10_000, 0), payment("pay_1", "captured", 10_000, 0))).action());
+		assertEquals(Action.REPORT, PaymentReconciliationJob.decide(Kind.PAID_NOT_CONFIRMED, "pay_1", 10_000,
+				List.of(payment("pay_1", "refunded", 10_000, 10_000))).action());
+		assertEquals(Action.REPORT, PaymentReconciliationJob.decide(Kind.PAID_NOT_CONFIRMED, "pay_1", 10_000,
+				List.of()).action());
+	}
+
+	@Test
+	void confirmedBookingsGetTheCapturedPaymentOfTheirOrder() {
+		PaymentReconciliationJob.Decision d = PaymentReconciliationJob.decide(Kind.CONFIRMED_NO_PAYMENT, null, 10_000,
+				List.of(payment("pay_0", "failed", 10_000, 0), payment("pay_1", "captured", 10_000, 0)));
+		assertEquals(Action.SET_PAYMENT_ID, d.action());
+		assertEquals("pay_1", d.payment().id());
+		assertEquals(Action.REPORT, PaymentReconciliationJob.decide(Kind.CONFIRMED_NO_PAYMENT, null, 10_000,
+				List.of(payment("pay_0", "failed", 10_000, 0))).action());
+	}
+
+	@Test
+	void cancelledBookingsAreRefundedUnlessTheGatewayAlreadyDid() {
+		assertEquals(Action.QUEUE_REFUND, PaymentReconciliationJob.decide(Kind.CANCELLED_NO_REFUND, "pay_1", 10_000,
+				List.of(payment("pay_1", "captured", 20_000, 0))).action());
+		assertEquals(Action.OK, PaymentReconciliationJob.decide(Kind.CANCELLED_NO_REFUND, "pay_1", 10_000,
+				List.of(payment("pay_1", "captured", 20_000, 10_000))).action());
+		assertEquals(Action.OK, PaymentReconciliationJob.decide(Kind.CANCELLED_NO_REFUND, "pay_1", 10_000,
+				List.of(payment("pay_1", "refunded", 20_000, 20_000))).action());
+		assertEquals(Action.REPORT, PaymentReconciliationJob.decide(Kind.CANCELLED_NO_REFUND, "pay_1", 10_000,
+				List.of(payment("pay_2", "captured", 20_000, 0))).action());
+	}
+}
@@ -0,0 +1,191 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentWebhookServiceTest {
+
+	private static final String REFUND = """
+			{"entity":"event","event":"refund.processed","payload":{"refund":{"entity":
+			{"id":"rfnd_1","payment_id":"pay_1","receipt":"ns_pay_1"}}}}""";
+
+	private static final String CAPTURED = """
+			{"entity":"event","event":"payment.captured","payload":{"payment":{"entity":
+			{"id":"pay_9","order_id":"order_gone","amount":50000,"status":"captured"}}}}""";
+
+	/** payment_webhook_inbox in memory: insert ignores known ids, DONE and retries are recorded. */
+	static class Inbox extends JdbcTemplate {
+		final Map<String, String> rows = new ConcurrentHashMap<>();
+		final Map<String, String> state = new ConcurrentHashMap<>();
+		volatile boolean down;
+
+		@Override
+		public int update(String sql, Object... args) {
+			if (down)
+				throw new DataAccessResourceFailureException("database down");
+			if (sql.contains("INSERT"))
+				return rows.putIfAbsent((String) args[0], (String) args[4]) == null ? 1 : 0;
+			String id = (String) args[args.length - 1];
+			state.put(id, sql.contains("'DONE'") ? "DONE" : "RETRY");
+			return 1;
+		}
+
+		@Override
+		public List<Map<String, Object>> queryForList(String sql, Object... args) {
+			return state.entrySet().stream()
+					.filter(e -> e.getValue().equals("RETRY"))
+					.map(e -> Map.<String, Object>of("event_id", e.getKey(), "payload", rows.get(e.getKey()),
+							"attempts", 2))
+					.toList();
+		}
+	}
+
+	private static final TransactionTemplate INLINE = new TransactionTemplate() {
+		@Override
+		public <T> T execute(TransactionCallback<T> action) {
+			return action.doInTransaction((TransactionStatus) null);
+		}
+	};
+
+	private static String sign(String secret, byte[] body) throws Exception {
+		Mac mac = PaymentWebhookService.hmac(secret);
+		return HexFormat.of().formatHex(mac.doFinal(body));
+	}
+
+	@Test
+	void signatureMustMatchTheRawBody() throws Exception {
+		Mac mac = PaymentWebhookService.hmac("s3cret");
+		byte[] body = REFUND.getBytes(StandardCharsets.UTF_8);
+		String signature = sign("s3cret", body);
+
+		assertTrue(PaymentWebhookService.signatureMatches(mac, body, signature));
+		assertTrue(PaymentWebhookService.signatureMatches(mac, body, signature.toUpperCase()));
+		assertFalse(PaymentWebhookService.signatureMatches(mac, body, sign("other", body)));
+		assertFalse(PaymentWebhookService.signatureMatches(mac, (REFUND + " ").getBytes(StandardCharsets.UTF_8),
+				signature));
+		assertFalse(PaymentWebhookService.signatureMatches(mac, body, null));
+		assertFalse(PaymentWebhookService.signatureMatches(null, body, signature)); // no secret configured
+	}
+
+	@Test
+	void redeliveriesAreDroppedByEventId() throws Exception {
+		Inbox inbox = new Inbox();
+		RefundOutboxService outbox = new RefundOutboxService(null, null, null, 1, 1, 1, 1, 1) {
+			@Override
+			public boolean markRefunded(String idempotencyKey, String refundId) {
+				return true;
+			}
+		};
+		PaymentWebhookService service = new PaymentWebhookService(null, null, null, null, outbox, inbox, INLINE,
+				"s3cret", 1, 10, 10, 60_000, 1, 1);
+		try {
+			byte[] body = REFUND.getBytes(StandardCharsets.UTF_8);
+			String signature = sign("s3cret", body);
+
+			assertEquals(PaymentWebhookService.Accepted.QUEUED, service.accept(body, signature, "evt_1"));
+			assertEquals(PaymentWebhookService.Accepted.DUPLICATE, service.accept(body, signature, "evt_1"));
+			assertEquals(PaymentWebhookService.Accepted.BAD_SIGNATURE, service.accept(body, "00", "evt_2"));
+
+			byte[] garbage = "not json".getBytes(StandardCharsets.UTF_8);
+			assertEquals(PaymentWebhookService.Accepted.MALFORMED, service.accept(garbage, sign("s3cret", garbage), "evt_3"));
+
+			// without an event id an exact replay is still recognised
+			assertEquals(PaymentWebhookService.Accepted.QUEUED, service.accept(body, signature, null));
+			assertEquals(PaymentWebhookService.Accepted.DUPLICATE, service.accept(body, signature, null));
+
+			// not stored, not acknowledged: Razorpay delivers it again
+			inbox.down = true;
+			assertEquals(PaymentWebhookService.Accepted.BUSY, service.accept(body, signature, "evt_4"));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void failedEventIsRetriedInsteadOfDropped() throws Exception {
+		AtomicInteger lookups = new AtomicInteger();
+		BookingRepository bookings = (BookingRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { BookingRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findAllByOrderId")) {
+						if (lookups.incrementAndGet() == 1)
+							throw new DataAccessResourceFailureException("connection reset");
+						return List.of();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		CompletableFuture<String> refunded = new CompletableFuture<>();
+		RefundOutboxService outbox = new RefundOutboxService(null, null, null, 1, 1, 1, 1, 1) {
+			@Override
+			public void enqueue(UUID bookingId, String orderId, String paymentId, Integer amountPaise, String reason,
+								String idempotencyKey) {
+				refunded.complete(paymentId);
+			}
+		};
+		Inbox inbox = new Inbox();
+		PaymentWebhookService service = new PaymentWebhookService(bookings, null, null, null, outbox, inbox, INLINE,
+				"s3cret", 1, 10, 10, 60_000, 1, 1);
+		try {
+			byte[] body = CAPTURED.getBytes(StandardCharsets.UTF_8);
+			assertEquals(PaymentWebhookService.Accepted.QUEUED, service.accept(body, sign("s3cret", body), "evt_9"));
+			for (int i = 0; i < 500 && !"RETRY".equals(inbox.state.get("evt_9")); i++)
+				Thread.sleep(10);
+			assertEquals("RETRY", inbox.state.get("evt_9"));
+			assertFalse(refunded.isDone());
+
+			service.retryDue();
+			assertEquals("pay_9", refunded.get(5, TimeUnit.SECONDS));
+			for (int i = 0; i < 500 && !"DONE".equals(inbox.state.get("evt_9")); i++)
+				Thread.sleep(10);
+			assertEquals("DONE", inbox.state.get("evt_9"));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void paymentForAnUnknownOrderIsRefunded() throws Exception {
+		BookingRepository bookings = (BookingRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { BookingRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findAllByOrderId"))
+						return List.of(); // reaped, or never ours
+					throw new UnsupportedOperationException(method.getName());
+				});
+		CompletableFuture<String> refunded = new CompletableFuture<>();
+		RefundOutboxService outbox = new RefundOutboxService(null, null, null, 1, 1, 1, 1, 1) {
+			@Override
+			public void enqueue(UUID bookingId, String orderId, String paymentId, Integer amountPaise, String reason,
+								String idempotencyKey) {
+				refunded.complete(orderId + " " + paymentId + " " + amountPaise + " " + reason + " " + idempotencyKey);
+			}
+		};
+		PaymentWebhookService service = new PaymentWebhookService(bookings, null, null, null, outbox, new Inbox(),
+				INLINE, "s3cret", 1, 10, 10, 60_000, 1, 1);
+		try {
+			byte[] body = CAPTURED.getBytes(StandardCharsets.UTF_8);
+			assertEquals(PaymentWebhookService.Accepted.QUEUED, service.accept(body, sign("s3cret", body), "evt_9"));
+			assertEquals("order_gone pay_9 null UNMATCHED " + RefundOutboxService.noSlotKey("pay_9"),
+					refunded.get(5, TimeUnit.SECONDS));
+		} finally {
+			service.shutdown();
+		}
+	}
+}
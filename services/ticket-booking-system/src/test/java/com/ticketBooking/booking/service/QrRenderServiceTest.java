@@ -0,0 +1,79 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrRenderServiceTest {
+
+	@Test
+	void urlsAreSignedPerBooking() {
+		QrRenderService qr = new QrRenderService(null, 1, 10, 0, 1 << 20, "qr-secret", "");
+		try {
+			UUID mine = UUID.randomUUID();
+			UUID other = UUID.randomUUID();
+			String url = qr.urlFor(mine);
+			String sig = url.substring(url.indexOf("sig=") + 4);
+
+			assertTrue(url.startsWith("/api/booking/ticket/" + mine + "/qr.png?sig="));
+			assertTrue(qr.isValidSignature(mine, sig));
+			assertFalse(qr.isValidSignature(other, sig));
+			assertFalse(qr.isValidSignature(mine, null));
+			assertFalse(qr.isValidSignature(mine, sig.substring(1) + "A"));
+
+			// another secret, another signature
+			QrRenderService rotated = new QrRenderService(null, 1, 10, 0, 1 << 20, "other-secret", "");
+			assertFalse(rotated.isValidSignature(mine, sig));
+			rotated.shutdown();
+		} finally {
+			qr.shutdown();
+		}
+	}
+
+	@Test
+	void imagesAreCachedAndTaggedByPayload() throws Exception {
+		QrRenderService qr = new QrRenderService(null, 1, 10, 2000, 1 << 20, "qr-secret", "");
+		try {
+			UUID a = UUID.randomUUID();
+			UUID b = UUID.randomUUID();
+
+			qr.renderLater(a, "tkt_a");
+			QrRenderService.Image image = qr.image(a, "tkt_a");
+			assertTrue(image.png().length > 0);
+			assertSame(image, qr.image(a, "tkt_a"));
+
+			// same payload, same bytes and etag; another payload, another etag
+			QrRenderService.Image same = qr.image(b, "tkt_a");
+			assertArrayEquals(image.png(), same.png());
+			assertEquals(image.etag(), same.etag());
+			assertNotEquals(image.etag(), qr.image(UUID.randomUUID(), "tkt_c").etag());
+		} finally {
+			qr.shutdown();
+		}
+	}
+
+	@Test
+	void cacheStaysWithinItsByteBudget() {
+		QrRenderService probe = new QrRenderService(null, 1, 10, 0, 1 << 20, "qr-secret", "");
+		int size = probe.image(UUID.randomUUID(), "tkt_0").png().length;
+		probe.shutdown();
+
+		// room for about two images
+		QrRenderService qr = new QrRenderService(null, 1, 10, 0, size * 2L + size / 2, "qr-secret", "");
+		try {
+			UUID first = UUID.randomUUID();
+			QrRenderService.Image kept = qr.image(first, "tkt_0");
+			assertSame(kept, qr.image(first, "tkt_0"));
+			for (int i = 1; i <= 3; i++)
+				qr.image(UUID.randomUUID(), "tkt_" + i);
+			// evicted: rendered again, equal content but a new instance
+			QrRenderService.Image again = qr.image(first, "tkt_0");
+			assertNotSame(kept, again);
+			assertEquals(kept.etag(), again.etag());
+		} finally {
+			qr.shutdown();
+		}
+	}
+}
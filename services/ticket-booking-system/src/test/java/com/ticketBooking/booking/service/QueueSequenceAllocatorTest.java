@@ -0,0 +1,89 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueSequenceAllocatorTest {
+
+	// getTransaction and commit are no-ops
+	private static final PlatformTransactionManager NO_TX = (PlatformTransactionManager) Proxy.newProxyInstance(
+			QueueSequenceAllocatorTest.class.getClassLoader(), new Class<?>[] { PlatformTransactionManager.class },
+			(proxy, method, args) -> null);
+
+	// queue_sequences: the upsert adds the block size and returns the new total
+	private static final class Sequences extends JdbcTemplate {
+		final Map<UUID, Long> allocated = new ConcurrentHashMap<>();
+		final AtomicInteger reserves = new AtomicInteger();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+			reserves.incrementAndGet();
+			long block = ((Integer) args[1]).longValue();
+			return (T) allocated.merge((UUID) args[0], block, Long::sum);
+		}
+	}
+
+	@Test
+	void numbersIncreaseAcrossBlocksAndEventsAreIndependent() {
+		Sequences db = new Sequences();
+		QueueSequenceAllocator allocator = new QueueSequenceAllocator(db, NO_TX, 100);
+		UUID a = UUID.randomUUID();
+		UUID b = UUID.randomUUID();
+
+		for (long i = 1; i <= 250; i++)
+			assertEquals(i, allocator.next(a));
+		assertEquals(3, db.reserves.get()); // one upsert per block, not per join
+		assertEquals(1, allocator.next(b));
+
+		// a restart starts at the next unreserved block; the rest of the old one is a gap
+		QueueSequenceAllocator restarted = new QueueSequenceAllocator(db, NO_TX, 100);
+		assertEquals(301, restarted.next(a));
+	}
+
+	@Test
+	void concurrentJoinsNeverShareANumber() throws Exception {
+		Sequences db = new Sequences();
+		QueueSequenceAllocator allocator = new QueueSequenceAllocator(db, NO_TX, 7);
+		UUID eventId = UUID.randomUUID();
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<List<Long>>> drawn = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				drawn.add(pool.submit(() -> {
+					List<Long> mine = new ArrayList<>();
+					for (int i = 0; i < 500; i++)
+						mine.add(allocator.next(eventId));
+					return mine;
+				}));
+			}
+			Set<Long> all = new HashSet<>();
+			for (Future<List<Long>> f : drawn) {
+				List<Long> mine = f.get();
+				for (int i = 1; i < mine.size(); i++)
+					assertTrue(mine.get(i) > mine.get(i - 1));
+				all.addAll(mine);
+			}
+			assertEquals(4000, all.size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
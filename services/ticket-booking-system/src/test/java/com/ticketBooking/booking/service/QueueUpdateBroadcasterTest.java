@@ -0,0 +1,96 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueUpdateBroadcasterTest {
+
+	private static final WaitlistIndex EMPTY_QUEUE = new WaitlistIndex(null) {
+		@Override
+		public int size(UUID eventId) {
+			return 0;
+		}
+
+		@Override
+		public int rank(UUID eventId, UUID bookingId) {
+			return 0;
+		}
+	};
+
+	private static final SlotInventory NO_SLOTS = new SlotInventory(null, null) {
+		@Override
+		public int available(UUID eventId) {
+			return 0;
+		}
+	};
+
+	@Test
+	void oneUserCannotTakeMoreThanItsShareOfStreams() throws Exception {
+		QueueUpdateBroadcaster broadcaster = new QueueUpdateBroadcaster(EMPTY_QUEUE, NO_SLOTS, 60_000, 10, 2);
+		UUID eventId = UUID.randomUUID();
+		try {
+			SseEmitter first = broadcaster.subscribe(eventId, null, "a@x.com");
+			broadcaster.subscribe(eventId, null, "a@x.com");
+			assertThrows(RuntimeException.class, () -> broadcaster.subscribe(eventId, null, "a@x.com"));
+			assertEquals(2, broadcaster.connections());
+
+			// other users still get in
+			broadcaster.subscribe(eventId, null, "b@x.com");
+			assertEquals(3, broadcaster.connections());
+
+			// a closed stream frees its user's slot
+			close(first);
+			broadcaster.subscribe(eventId, null, "a@x.com");
+			assertEquals(3, broadcaster.connections());
+		} finally {
+			broadcaster.shutdown();
+		}
+	}
+
+	@Test
+	void rejectedByTheGlobalLimitDoesNotCountAgainstTheUser() throws Exception {
+		QueueUpdateBroadcaster broadcaster = new QueueUpdateBroadcaster(EMPTY_QUEUE, NO_SLOTS, 60_000, 2, 2);
+		UUID eventId = UUID.randomUUID();
+		try {
+			List<SseEmitter> others = new ArrayList<>();
+			others.add(broadcaster.subscribe(eventId, null, "b@x.com"));
+			others.add(broadcaster.subscribe(eventId, null, "c@x.com"));
+			assertThrows(RuntimeException.class, () -> broadcaster.subscribe(eventId, null, "a@x.com"));
+			assertThrows(RuntimeException.class, () -> broadcaster.subscribe(eventId, null, "a@x.com"));
+
+			for (SseEmitter e : others)
+				close(e);
+			broadcaster.subscribe(eventId, null, "a@x.com");
+			broadcaster.subscribe(eventId, null, "a@x.com");
+			assertEquals(2, broadcaster.connections());
+		} finally {
+			broadcaster.shutdown();
+		}
+	}
+
+	// what the servlet container does when a client disconnects: hand the
+	// emitter a handler, then fire its completion callback
+	private static void close(SseEmitter emitter) throws Exception {
+		Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+		List<Runnable> onCompletion = new ArrayList<>();
+		Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[] { handlerType },
+				(proxy, method, args) -> {
+					if (method.getName().equals("onCompletion"))
+						onCompletion.add((Runnable) args[0]);
+					return null;
+				});
+		Method initialize = ResponseBodyEmitter.class.getDeclaredMethod("initialize", handlerType);
+		initialize.setAccessible(true);
+		initialize.invoke(emitter, handler);
+		onCompletion.forEach(Runnable::run);
+	}
+}
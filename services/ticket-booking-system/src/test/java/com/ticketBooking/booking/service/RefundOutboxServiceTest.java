@@ -0,0 +1,24 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefundOutboxServiceTest {
+
+	@Test
+	void backoffDoublesUpToTheCapWithJitterBelowTheFullDelay() {
+		assertEquals(5_000, RefundOutboxService.backoffMs(1, 5_000, 3_600_000, 0.999999), 1);
+		assertEquals(2_500, RefundOutboxService.backoffMs(1, 5_000, 3_600_000, 0));
+		assertEquals(20_000, RefundOutboxService.backoffMs(3, 5_000, 3_600_000, 0.999999), 1);
+		assertEquals(1_800_000, RefundOutboxService.backoffMs(40, 5_000, 3_600_000, 0)); // capped, no overflow
+	}
+
+	@Test
+	void idempotencyKeysFitTheGatewayLimit() {
+		assertTrue(RefundOutboxService.cancelKey(UUID.randomUUID()).length() <= 40);
+		assertTrue(RefundOutboxService.noSlotKey("pay_29QQoUBi66xm2f").length() <= 40);
+	}
+}
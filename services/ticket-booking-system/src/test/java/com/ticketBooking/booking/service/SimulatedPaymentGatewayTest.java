@@ -0,0 +1,39 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedPaymentGatewayTest {
+
+	@Test
+	void ordersCanBePaidOnceAndRefundedUpToTheCapturedAmount() {
+		SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(0, 0, 0, 42, "", "secret");
+
+		PaymentGateway.GatewayOrder order = gateway.createOrder(50_000).join();
+		String paymentId = gateway.capture(order.id()).join();
+		assertEquals(paymentId, gateway.capture(order.id()).join()); // paying twice is the same payment
+		assertEquals("captured", gateway.findPayments(order.id()).join().get(0).status());
+
+		assertEquals(20_000, gateway.refund(paymentId, 20_000, "r1").join().amountPaise());
+		assertEquals(30_000, gateway.refund(paymentId, null, "r2").join().amountPaise()); // the rest
+		assertEquals(30_000, gateway.refund(paymentId, null, "r2").join().amountPaise()); // retried, not repeated
+		assertTrue(gateway.findRefund(paymentId, "r1").join().isPresent());
+		assertEquals("refunded", gateway.findPayments(order.id()).join().get(0).status());
+		assertTrue(gateway.findPayments("order_missing").join().isEmpty());
+		assertThrows(CompletionException.class, () -> gateway.refund(paymentId, 1, "r3").join());
+		assertThrows(CompletionException.class, () -> gateway.capture("order_missing").join());
+		assertEquals(2, gateway.stats().refunds());
+	}
+
+	@Test
+	void injectsErrorsAtTheConfiguredRate() {
+		SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(0, 0, 1.0, 42, "", "secret");
+
+		CompletionException ex = assertThrows(CompletionException.class, () -> gateway.createOrder(100).join());
+		assertTrue(ex.getCause().getMessage().contains("Simulated order failure"));
+		assertEquals(0, gateway.stats().orders());
+	}
+}
@@ -0,0 +1,121 @@
+package com.ticketBooking.booking.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confirms/sec: SlotInventory.tryReserve vs the single-row
+ * "available_slots - 1" UPDATE that EventRepository.decrementAvailableSlotsIfPresent
+ * runs. Both hammer one event from 16 threads, like an on-sale.
+ *
+ * Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.ticketBooking.booking.service.SlotInventoryBenchmark
+ *       -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench -Dbench.jdbc.user=... -Dbench.jdbc.password=...
+ *
+ * Without bench.jdbc.url only the in-memory benchmark runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SlotInventoryBenchmark {
+
+    private static final int SEED = Integer.MAX_VALUE / 2;
+
+    @State(Scope.Benchmark)
+    public static class InventoryState {
+        final UUID eventId = UUID.randomUUID();
+        SlotInventory inventory;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            inventory = new SlotInventory(null, null);
+            inventory.put(eventId, SEED);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TableState {
+        final UUID eventId = UUID.randomUUID();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            try (Connection c = connect(); Statement st = c.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS bench_events (event_id uuid PRIMARY KEY, available_slots int)");
+                st.execute("INSERT INTO bench_events VALUES ('" + eventId + "', " + SEED + ")");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            try (Connection c = connect(); Statement st = c.createStatement()) {
+                st.execute("DELETE FROM bench_events WHERE event_id = '" + eventId + "'");
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ConnectionState {
+        Connection connection;
+        PreparedStatement decrement;
+
+        @Setup(Level.Trial)
+        public void setUp(TableState table) throws Exception {
+            connection = connect();
+            connection.setAutoCommit(true);
+            decrement = connection.prepareStatement(
+                    "UPDATE bench_events SET available_slots = available_slots - 1 "
+                            + "WHERE event_id = ? AND COALESCE(available_slots,0) > 0");
+            decrement.setObject(1, table.eventId);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public boolean inMemoryReserve(InventoryState s) {
+        return s.inventory.tryReserve(s.eventId, 1);
+    }
+
+    @Benchmark
+    public int singleRowUpdate(ConnectionState s) throws Exception {
+        return s.decrement.executeUpdate();
+    }
+
+    private static Connection connect() throws Exception {
+        String url = System.getProperty("bench.jdbc.url");
+        if (url == null)
+            throw new IllegalStateException("bench.jdbc.url not set — skipping the database benchmark");
+        return DriverManager.getConnection(url,
+                System.getProperty("bench.jdbc.user"),
+                System.getProperty("bench.jdbc.password"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        OptionsBuilder opt = new OptionsBuilder();
+        opt.include(SlotInventoryBenchmark.class.getSimpleName() + ".inMemoryReserve");
+        if (System.getProperty("bench.jdbc.url") != null) {
+            opt.include(SlotInventoryBenchmark.class.getSimpleName() + ".singleRowUpdate");
+            opt.jvmArgsAppend("-Dbench.jdbc.url=" + System.getProperty("bench.jdbc.url"),
+                    "-Dbench.jdbc.user=" + System.getProperty("bench.jdbc.user", ""),
+                    "-Dbench.jdbc.password=" + System.getProperty("bench.jdbc.password", ""));
+        }
+        Options options = opt.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,56 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketTokenServiceTest {
+
+	private final TicketTokenService tokens = new TicketTokenService("test-secret", "rzp-secret");
+
+	@Test
+	void issuedTokenVerifiesAndFitsAlphanumericQr() {
+		UUID bookingId = UUID.randomUUID();
+		UUID eventId = UUID.randomUUID();
+		String token = tokens.issue(bookingId, eventId);
+
+		assertEquals(83, token.length());
+		assertTrue(token.matches("[0-9A-Z $%*+\\-./:]+"));
+		TicketTokenService.Ticket ticket = tokens.verify(token);
+		assertNotNull(ticket);
+		assertEquals(bookingId, ticket.bookingId());
+		assertEquals(eventId, ticket.eventId());
+		assertNotNull(tokens.verify(token + "\r\n"));
+	}
+
+	@Test
+	void rejectsTamperingAndForeignKeys() {
+		String token = tokens.issue(UUID.randomUUID(), UUID.randomUUID());
+		char[] chars = token.toCharArray();
+		chars[10] = chars[10] == 'A' ? 'B' : 'A';
+		assertNull(tokens.verify(new String(chars)));
+		assertNull(tokens.verify(token.substring(0, token.length() - 3)));
+		assertNull(new TicketTokenService("other-secret", "rzp-secret").verify(token));
+		assertNull(tokens.verify("Booking ID: x"));
+	}
+
+	@Test
+	void base45RoundTrips() {
+		Random rnd = new Random(3);
+		for (int len = 0; len < 40; len++) {
+			byte[] in = new byte[len];
+			rnd.nextBytes(in);
+			assertArrayEquals(in, TicketTokenService.base45Decode(TicketTokenService.base45Encode(in)));
+		}
+		assertNull(TicketTokenService.base45Decode("GGW")); // 65535 < n
+	}
+
+	@Test
+	void refusesAMissingSecretOrThePaymentSecret() {
+		assertThrows(IllegalStateException.class, () -> new TicketTokenService("", "rzp-secret"));
+		assertThrows(IllegalStateException.class, () -> new TicketTokenService("rzp-secret", "rzp-secret"));
+	}
+}
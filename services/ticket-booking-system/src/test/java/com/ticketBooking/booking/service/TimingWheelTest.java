@@ -0,0 +1,47 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+	@Test
+	void firesEveryItemWithinOneTickAndNeverEarly() {
+		long start = 1_000_000L;
+		TimingWheel<Long> wheel = new TimingWheel<>(10, 8, start);
+		Random rnd = new Random(42);
+
+		List<Long> deadlines = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			long d = start + rnd.nextInt(200_000); // spans several levels
+			deadlines.add(d);
+			assertTrue(wheel.schedule(d, d));
+		}
+
+		int fired = 0;
+		for (long now = start; now <= start + 200_020; now += 7) {
+			for (long d : wheel.advance(now)) {
+				assertTrue(d < now, "fired early: " + d + " at " + now);
+				assertTrue(now - d <= 10 + 7, "fired late: " + d + " at " + now);
+				fired++;
+			}
+		}
+		assertEquals(deadlines.size(), fired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void rejectsPastDeadlinesAndSkipsIdleTime() {
+		TimingWheel<String> wheel = new TimingWheel<>(100, 4, 0);
+		wheel.advance(1_000_000);
+		assertFalse(wheel.schedule("late", 5_000));
+		assertTrue(wheel.schedule("soon", 1_000_150));
+		assertTrue(wheel.advance(1_000_150).isEmpty());
+		assertEquals(List.of("soon"), wheel.advance(1_000_200));
+	}
+}
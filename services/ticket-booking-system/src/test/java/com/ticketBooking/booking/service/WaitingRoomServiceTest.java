@@ -0,0 +1,80 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.event.model.Event;
+import com.ticketBooking.event.repository.EventRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitingRoomServiceTest {
+
+	private static final long SEC = 1_000_000_000L;
+
+	@Test
+	void admitsTicketsInArrivalOrderAtTheConfiguredRate() {
+		WaitingRoomService.Room room = new WaitingRoomService.Room(2, 0);
+		long[] tickets = new long[5];
+		for (int i = 0; i < 5; i++)
+			tickets[i] = room.join("user" + i, 0, 0);
+		assertEquals(1, tickets[0]);
+		assertEquals(tickets[2], room.join("user2", 0, 0)); // rejoining keeps the ticket
+
+		assertEquals(1, room.ahead(tickets[0], 0));
+		assertEquals(0, room.ahead(tickets[1], SEC)); // two per second
+		assertEquals(1, room.ahead(tickets[2], SEC));
+		assertEquals(0, room.ahead(tickets[4], SEC * 5 / 2));
+	}
+
+	@Test
+	void idleTimeBanksAtMostOneSecondOfAdmissions() {
+		WaitingRoomService.Room room = new WaitingRoomService.Room(3, 0);
+		room.ahead(0, 60 * SEC); // a quiet minute
+
+		long last = 0;
+		for (int i = 0; i < 10; i++)
+			last = room.join("user" + i, 60 * SEC, 0);
+		assertEquals(7, room.ahead(last, 60 * SEC));
+
+		room.setRate(10, 60 * SEC);
+		assertEquals(0, room.ahead(last, 61 * SEC));
+	}
+
+	@Test
+	void admissionExpiresOnceAndTheTokenIsSpentByOneOrder() throws Exception {
+		UUID eventId = UUID.randomUUID();
+		EventRepository events = (EventRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { EventRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findById"))
+						return Optional.of(Event.builder().eventId(eventId).waitingRoomRate(1000).build());
+					throw new UnsupportedOperationException(method.getName());
+				});
+		WaitingRoomService service = new WaitingRoomService(events, "room-secret", "", 600);
+
+		WaitingRoomService.Status status = service.join(eventId, "alice").orElseThrow();
+		for (int i = 0; i < 200 && !status.admitted(); i++) {
+			Thread.sleep(5);
+			status = service.status(eventId, "alice").orElseThrow();
+		}
+		assertTrue(status.admitted());
+		String token = status.admissionToken();
+
+		// polling again does not push the expiry out
+		Thread.sleep(1100);
+		WaitingRoomService.Status again = service.status(eventId, "alice").orElseThrow();
+		assertEquals(status.tokenExpiresAt(), again.tokenExpiresAt());
+		assertEquals(token, again.admissionToken());
+
+		assertFalse(service.admits(eventId, "bob", token)); // bound to the user
+		assertTrue(service.admits(eventId, "alice", token));
+		assertTrue(service.spend(eventId, "alice", token));
+		assertFalse(service.spend(eventId, "alice", token)); // one order per admission
+		assertTrue(service.status(eventId, "alice").isEmpty());
+
+		// ordering again means queueing again
+		assertTrue(service.join(eventId, "alice").orElseThrow().ticket() > status.ticket());
+	}
+}
@@ -0,0 +1,70 @@
+package com.ticketBooking.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistIndexTest {
+
+	@Test
+	void ranksMatchANaiveQueueThroughJoinsLeavesAndRebuilds() {
+		WaitlistIndex.Waitlist w = new WaitlistIndex.Waitlist();
+		TreeMap<Long, UUID> naive = new TreeMap<>();
+		Random rnd = new Random(7);
+		long seq = 1000;
+
+		for (int op = 0; op < 20_000; op++) {
+			int r = rnd.nextInt(10);
+			if (naive.isEmpty() || r < 6) {
+				seq += 1 + rnd.nextInt(3); // gaps from failed joins and restarts
+				UUID id = UUID.randomUUID();
+				naive.put(seq, id);
+				assertEquals(naive.headMap(seq, true).size(), w.add(id, seq));
+			} else if (r < 8) {
+				Map.Entry<Long, UUID> head = naive.pollFirstEntry(); // auto-book
+				assertEquals(head.getValue(), w.head());
+				assertEquals(head.getKey(), w.remove(head.getValue()));
+			} else {
+				List<Long> keys = new ArrayList<>(naive.keySet());
+				UUID id = naive.remove(keys.get(rnd.nextInt(keys.size()))); // cancel
+				assertNotNull(w.remove(id));
+			}
+			if (op % 97 == 0) {
+				int rank = 1;
+				for (UUID id : naive.values())
+					assertEquals(rank++, w.rank(id));
+			}
+		}
+		assertEquals(naive.size(), w.size());
+		assertEquals(naive.isEmpty() ? null : naive.firstEntry().getValue(), w.head());
+		assertEquals(new ArrayList<>(naive.values()).subList(0, Math.min(50, naive.size())), w.peek(50));
+		assertEquals(new ArrayList<>(naive.values()), w.peek(naive.size() + 10));
+	}
+
+	@Test
+	void aRolledBackLeaveGoesBackInPlaceAndLegacyRowsSortFirst() {
+		WaitlistIndex.Waitlist w = new WaitlistIndex.Waitlist();
+		UUID a = UUID.randomUUID(), b = UUID.randomUUID(), c = UUID.randomUUID(), old = UUID.randomUUID();
+		w.add(a, 5);
+		w.add(b, 6);
+		w.add(c, 7);
+
+		long seq = w.remove(b);
+		assertEquals(2, w.rank(c));
+		w.add(b, seq);
+		assertEquals(2, w.rank(b));
+		assertEquals(3, w.rank(c));
+
+		w.add(old, -3); // below the window: rebuilt around it
+		assertEquals(old, w.head());
+		assertEquals(4, w.rank(c));
+		assertEquals(0, w.rank(UUID.randomUUID()));
+	}
+}
@@ -0,0 +1,176 @@
+package com.ticketBooking.booking.service;
+
+import com.ticketBooking.booking.model.Booking;
+import com.ticketBooking.booking.model.EventQueue;
+import com.ticketBooking.booking.repository.BookingRepository;
+import com.ticketBooking.booking.repository.EventQueueRepository;
+import com.ticketBooking.event.services.SeatMapService;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistPromotionServiceTest {
+
+	private static final TransactionTemplate INLINE = new TransactionTemplate() {
+		@Override
+		public <T> T execute(TransactionCallback<T> action) {
+			return action.doInTransaction((TransactionStatus) null);
+		}
+	};
+
+	private final UUID eventId = UUID.randomUUID();
+	private final WaitlistIndex index = new WaitlistIndex(null);
+	private final Map<UUID, Booking> bookings = new LinkedHashMap<>();
+	private final Map<UUID, EventQueue> queueRows = new LinkedHashMap<>();
+	private final Set<UUID> lostRace = new HashSet<>(); // confirmed elsewhere between read and write
+	private final List<UUID> written = new ArrayList<>();
+
+	// free slots, with what was taken and handed back
+	private final AtomicInteger available = new AtomicInteger();
+	private final AtomicInteger reserved = new AtomicInteger();
+	private final AtomicInteger released = new AtomicInteger();
+	private final SlotInventory inventory = new SlotInventory(null, null) {
+		@Override
+		public int tryReserveUpTo(UUID id, int n) {
+			int take = Math.min(available.get(), n);
+			available.addAndGet(-take);
+			reserved.addAndGet(take);
+			return take;
+		}
+
+		@Override
+		public void release(UUID id, int n) {
+			available.addAndGet(n);
+			released.addAndGet(n);
+		}
+	};
+
+	private UUID waiter(String bookingStatus, String queueStatus, String paymentId) {
+		UUID id = UUID.randomUUID();
+		bookings.put(id, Booking.builder().bookingId(id).eventId(eventId).userId(1).status(bookingStatus)
+				.paymentId(paymentId).build());
+		queueRows.put(id, EventQueue.builder().bookingId(id).eventId(eventId).status(queueStatus)
+				.paymentId(paymentId).build());
+		index.add(eventId, id, bookings.size()); // join order
+		return id;
+	}
+
+	private WaitlistPromotionService service(SeatMapService seats) {
+		BookingRepository bookingRepository = (BookingRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { BookingRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findAllById"))
+						return ((List<?>) args[0]).stream().map(bookings::get).filter(b -> b != null).toList();
+					throw new UnsupportedOperationException(method.getName());
+				});
+		EventQueueRepository queueRepository = (EventQueueRepository) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { EventQueueRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findAllByBookingIdIn"))
+						return ((List<?>) args[0]).stream().map(queueRows::get).filter(q -> q != null).toList();
+					throw new UnsupportedOperationException(method.getName());
+				});
+		JdbcTemplate jdbc = new JdbcTemplate() {
+			@Override
+			public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+				int[] counts = new int[batchArgs.size()];
+				for (int i = 0; i < counts.length; i++) {
+					if (sql.contains("UPDATE bookings")) {
+						UUID id = (UUID) batchArgs.get(i)[4];
+						if (lostRace.contains(id))
+							continue;
+						written.add(id);
+					}
+					counts[i] = 1;
+				}
+				return counts;
+			}
+		};
+		QrRenderService qr = new QrRenderService(null, 1, 1, 0, 0, "qr-secret", "") {
+			@Override
+			public void renderLater(UUID bookingId, String payload) {
+			}
+		};
+		return new WaitlistPromotionService(index, inventory, seats, bookingRepository, queueRepository,
+				new TicketTokenService("ticket-secret", ""), qr, new BookingHistoryCache(null, null, 10, 2), null,
+				jdbc, INLINE, 500, 5000, 10);
+	}
+
+	private static SeatMapService unseated() {
+		return new SeatMapService(null, null, null, null, null) {
+			@Override
+			public List<String> retake(UUID id, List<String> labels) {
+				return List.of();
+			}
+		};
+	}
+
+	@Test
+	void everyGrantedSlotIsConfirmedOrHandedBack() {
+		UUID cancelled = waiter("CANCELLED", "WAITING", "pay_0");
+		UUID a = waiter("PAID", "WAITING", "pay_a");
+		UUID unpaid = waiter("PENDING", "WAITING", null);
+		UUID booked = waiter("PAID", "BOOKED", "pay_x"); // queue row already closed
+		UUID b = waiter("PAID", "WAITING", "pay_b");
+		UUID raced = waiter("PAID", "WAITING", "pay_c");
+		UUID d = waiter("PAID", "WAITING", "pay_d");
+		lostRace.add(raced);
+		available.set(3);
+
+		WaitlistPromotionService service = service(unseated());
+		try {
+			assertEquals(3, service.promote(eventId));
+		} finally {
+			service.shutdown();
+		}
+
+		assertEquals(List.of(a, b, d), written);
+		assertEquals(written.size(), reserved.get() - released.get());
+		assertEquals(0, available.get());
+
+		// stale and raced waiters leave the index; the unpaid one keeps its place
+		assertEquals(List.of(unpaid), index.peek(eventId, 10));
+		for (UUID gone : List.of(cancelled, booked, raced))
+			assertEquals(0, index.rank(eventId, gone));
+	}
+
+	@Test
+	void slotsWithoutASeatAreHandedBack() {
+		UUID first = waiter("PAID", "WAITING", "pay_a");
+		UUID second = waiter("PAID", "WAITING", "pay_b");
+		UUID third = waiter("PAID", "WAITING", "pay_c");
+		available.set(3);
+
+		AtomicInteger seatsLeft = new AtomicInteger(1);
+		SeatMapService seats = new SeatMapService(null, null, null, null, null) {
+			@Override
+			public List<String> retake(UUID id, List<String> labels) {
+				return seatsLeft.getAndDecrement() > 0 ? List.of("A-1-1") : null;
+			}
+		};
+		WaitlistPromotionService service = service(seats);
+		try {
+			assertEquals(1, service.promote(eventId));
+		} finally {
+			service.shutdown();
+		}
+
+		assertEquals(List.of(first), written);
+		assertEquals(written.size(), reserved.get() - released.get());
+		assertEquals(2, available.get());
+		// nobody could be seated, so the others keep waiting in order
+		assertEquals(List.of(second, third), index.peek(eventId, 10));
+	}
+}
@@ -0,0 +1,99 @@
+package com.ticketBooking.event.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat search on a 50,000-seat venue (5 sections x 100 rows x 100 seats)
+ * filled to `fill` percent with randomly scattered sales, the worst case for
+ * adjacent search. SeatMap.find is compared with a seat-by-seat scan of a
+ * boolean[] of the same layout.
+ *
+ * Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.ticketBooking.event.services.SeatMapBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatMapBenchmark {
+
+    private static final int SECTIONS = 5, ROWS = 100, SEATS_PER_ROW = 100;
+
+    @Param({ "50", "90", "99" })
+    int fill;
+
+    SeatMap map;
+    boolean[] taken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = new SeatMap(List.of(
+                new SeatMap.Section("VIP", ROWS, SEATS_PER_ROW),
+                new SeatMap.Section("GOLD", ROWS, SEATS_PER_ROW),
+                new SeatMap.Section("SILVER", ROWS, SEATS_PER_ROW),
+                new SeatMap.Section("BRONZE", ROWS, SEATS_PER_ROW),
+                new SeatMap.Section("GENERAL", ROWS, SEATS_PER_ROW)));
+        taken = new boolean[map.capacity()];
+        Random rnd = new Random(7);
+        for (int s = 0; s < map.capacity(); s++) {
+            if (rnd.nextInt(100) < fill) {
+                map.take(new int[] { s });
+                taken[s] = true;
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] bestAvailable4() {
+        return map.find(4, false);
+    }
+
+    @Benchmark
+    public int[] adjacent4() {
+        return map.find(4, true);
+    }
+
+    @Benchmark
+    public int[] adjacent8() {
+        return map.find(8, true);
+    }
+
+    @Benchmark
+    public int naiveAdjacent4() {
+        return naiveAdjacent(4);
+    }
+
+    @Benchmark
+    public int naiveAdjacent8() {
+        return naiveAdjacent(8);
+    }
+
+    private int naiveAdjacent(int n) {
+        for (int row = 0; row < taken.length / SEATS_PER_ROW; row++) {
+            int run = 0;
+            for (int s = row * SEATS_PER_ROW; s < (row + 1) * SEATS_PER_ROW; s++) {
+                run = taken[s] ? 0 : run + 1;
+                if (run == n)
+                    return s - n + 1;
+            }
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(SeatMapBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.ticketBooking.event.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapTest {
+
+	@Test
+	void adjacentSearchMatchesSeatBySeatScan() {
+		// 70 seats per row: rows straddle word boundaries
+		SeatMap map = new SeatMap(List.of(new SeatMap.Section("A", 40, 70), new SeatMap.Section("B", 10, 9)));
+		boolean[] taken = new boolean[map.capacity()];
+		Random rnd = new Random(1);
+		for (int s = 0; s < taken.length; s++) {
+			if (rnd.nextInt(100) < 80) {
+				assertTrue(map.take(new int[] { s }));
+				taken[s] = true;
+			}
+		}
+
+		for (int n = 1; n <= 9; n++) {
+			int[] seats = map.find(n, true);
+			int expected = -1;
+			for (int row = 0, start = 0; row < 50 && expected < 0; row++) {
+				int width = row < 40 ? 70 : 9;
+				int run = 0;
+				for (int s = start; s < start + width; s++) {
+					run = taken[s] ? 0 : run + 1;
+					if (run == n) {
+						expected = s - n + 1;
+						break;
+					}
+				}
+				start += width;
+			}
+			assertEquals(expected, seats == null ? -1 : seats[0], "n=" + n);
+		}
+	}
+
+	@Test
+	void repeatedSeatsAreCountedOnce() {
+		SeatMap map = new SeatMap(List.of(new SeatMap.Section("A", 2, 10)));
+		assertFalse(map.take(new int[] { 3, 3 }));
+		assertFalse(map.isTaken(3));
+		assertEquals(20, map.free());
+
+		assertTrue(map.take(new int[] { 3, 4 }));
+		assertEquals(18, map.free());
+		map.release(new int[] { 3, 3, 4 });
+		assertEquals(20, map.free());
+		assertFalse(map.isTaken(4));
+	}
+
+	@Test
+	void labelsRoundTripAndPagesRestoreState() {
+		SeatMap map = new SeatMap(List.of(new SeatMap.Section("GOLD", 100, 50), new SeatMap.Section("SILVER", 20, 10)));
+		int[] block = map.allocate(4, true);
+		assertEquals("GOLD-1-1", map.label(block[0]));
+		assertEquals("SILVER-2-3", map.label(5000 + 12));
+		for (int s = 0; s < map.capacity(); s += 97)
+			assertEquals(s, map.seatOf(map.label(s)));
+		assertEquals(-1, map.seatOf("GOLD-101-1"));
+
+		map.allocate(3, false);
+		SeatMap copy = new SeatMap(map.sections());
+		for (int p : map.drainDirtyPages())
+			copy.loadPage(p, map.pageBytes(p));
+		assertEquals(map.free(), copy.free());
+		assertEquals(map.capacity() - 7, copy.free());
+		assertTrue(copy.isTaken(block[3]));
+	}
+}